@@ -0,0 +1,48 @@
+package simulation;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+// Needs JDK 16 or later, so it lives outside the Java 8 source root, in the RescueSimulation-vector module. Without
+// the IDE, build it into the same output with
+//   javac --release 17 --add-modules jdk.incubator.vector -cp out -d out src-vector/simulation/VectorHealthKernel.java
+// and run with --add-modules jdk.incubator.vector; HealthKernel.load() falls back to the scalar kernel otherwise,
+// and Simulator.getHealthKernelName() tells which one was picked.
+final class VectorHealthKernel extends HealthKernel {
+
+    // A state lane is one byte, so the int species needs at least 8 lanes for a matching byte shape.
+    private static final VectorSpecies<Integer> INTS = IntVector.SPECIES_PREFERRED.length() >= 8
+            ? IntVector.SPECIES_PREFERRED : IntVector.SPECIES_256;
+    private static final VectorSpecies<Byte> STATES =
+            VectorSpecies.of(byte.class, VectorShape.forBitSize(INTS.length() * Byte.SIZE));
+
+    @Override
+    public String getName() {
+        return "vector/" + INTS.length();
+    }
+
+    @Override
+    public void step(int[] hp, int[] bloodLoss, int[] toxicity, byte[] states, int rows) {
+        int row = 0;
+        for (int upper = INTS.loopBound(rows); row < upper; row += INTS.length()) {
+            VectorMask<Integer> alive = ByteVector.fromArray(STATES, states, row)
+                    .compare(VectorOperators.NE, DECEASED).cast(INTS);
+            IntVector damage = damageFrom(IntVector.fromArray(INTS, bloodLoss, row))
+                    .add(damageFrom(IntVector.fromArray(INTS, toxicity, row)));
+            IntVector.fromArray(INTS, hp, row).sub(damage).max(0).intoArray(hp, row, alive);
+        }
+        step(hp, bloodLoss, toxicity, states, row, rows);
+    }
+
+    // The bands of Citizen.damageFrom: 5 above 0, 10 from 30, 15 from 70.
+    private static IntVector damageFrom(IntVector level) {
+        return IntVector.zero(INTS)
+                .add(5, level.compare(VectorOperators.GT, 0))
+                .add(5, level.compare(VectorOperators.GE, 30))
+                .add(5, level.compare(VectorOperators.GE, 70));
+    }
+}
@@ -7,6 +7,7 @@ import model.infrastructure.ResidentialBuilding;
 import model.people.Citizen;
 import model.units.Unit;
 import simulation.Rescuable;
+import simulation.Scenario;
 import simulation.Simulator;
 import view.GameView;
 import view.UnitBlock;
@@ -34,10 +35,11 @@ public class CommandCenter implements SOSListener {
     private UnitBlock selectedUnit;
 
     public CommandCenter() throws Exception {
-        engine = new Simulator(this);
+        Scenario scenario = new Scenario(10, 10);
+        engine = new Simulator(this, scenario);
         emergencyUnits = engine.getEmergencyUnits();
-        gameView = new GameView();
-        engine.setGameView(gameView);
+        gameView = new GameView(scenario.getWorldWidth(), scenario.getWorldHeight());
+        engine.addSimulationListener(gameView);
 
         for (Unit unit : emergencyUnits) {
             UnitBlock unitBlock = new UnitBlock(unit);
@@ -17,6 +17,16 @@ public class Collapse extends Disaster {
         residentialBuilding.setFoundationDamage(residentialBuilding.getFoundationDamage() + 10);
     }
 
+    @Override
+    public int countQuietCycles() {
+        return Integer.MAX_VALUE;
+    }
+
+    @Override
+    public void skipCycles(int cycles) {
+        residentialBuilding.setFoundationDamage((int) Math.min(Integer.MAX_VALUE, residentialBuilding.getFoundationDamage() + 10L * cycles));
+    }
+
     @Override
     public void strike() throws DisasterException {
         super.strike();
@@ -3,6 +3,7 @@ package model.disasters;
 import exceptions.BuildingAlreadyCollapsedException;
 import exceptions.CitizenAlreadyDeadException;
 import exceptions.DisasterException;
+import model.events.StateListener;
 import model.infrastructure.ResidentialBuilding;
 import model.people.Citizen;
 import model.people.CitizenState;
@@ -15,6 +16,8 @@ public abstract class Disaster implements Simulatable {
     private Rescuable target;
     private boolean active;
 
+    private StateListener stateListener;
+
     public Disaster(int startCycle, Rescuable target) {
         this.startCycle = startCycle;
         this.target = target;
@@ -25,7 +28,9 @@ public abstract class Disaster implements Simulatable {
     }
 
     public void setActive(boolean active) {
+        if (this.active == active) return;
         this.active = active;
+        if (stateListener != null) stateListener.disasterActivityChanged(this);
     }
 
     public int getStartCycle() {
@@ -36,6 +41,24 @@ public abstract class Disaster implements Simulatable {
         return target;
     }
 
+    public StateListener getStateListener() {
+        return stateListener;
+    }
+
+    public void setStateListener(StateListener stateListener) {
+        this.stateListener = stateListener;
+    }
+
+    // Number of upcoming cycleSteps that can be applied in bulk through skipCycles without any state
+    // transition, arrival or strike happening in between. What the ticks do to the target, a death or a
+    // collapse, is bounded by the simulator, which forecasts it from every disaster on the target.
+    public int countQuietCycles() {
+        return 0;
+    }
+
+    public void skipCycles(int cycles) {
+    }
+
     public void strike() throws DisasterException {
         if (target instanceof ResidentialBuilding && ((ResidentialBuilding) target).getStructuralIntegrity() == 0) {
             throw new BuildingAlreadyCollapsedException(this);
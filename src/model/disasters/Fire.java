@@ -17,6 +17,16 @@ public class Fire extends Disaster {
         residentialBuilding.setFireDamage(residentialBuilding.getFireDamage() + 10);
     }
 
+    @Override
+    public int countQuietCycles() {
+        return Integer.MAX_VALUE;
+    }
+
+    @Override
+    public void skipCycles(int cycles) {
+        residentialBuilding.setFireDamage((int) Math.min(100, residentialBuilding.getFireDamage() + 10L * cycles));
+    }
+
     @Override
     public void strike() throws DisasterException {
         super.strike();
@@ -17,6 +17,16 @@ public class GasLeak extends Disaster {
         residentialBuilding.setGasLevel(residentialBuilding.getGasLevel() + 15);
     }
 
+    @Override
+    public int countQuietCycles() {
+        return Integer.MAX_VALUE;
+    }
+
+    @Override
+    public void skipCycles(int cycles) {
+        residentialBuilding.setGasLevel((int) Math.min(100, residentialBuilding.getGasLevel() + 15L * cycles));
+    }
+
     @Override
     public void strike() throws DisasterException {
         super.strike();
@@ -17,6 +17,16 @@ public class Infection extends Disaster {
         citizen.setToxicity(citizen.getToxicity() + 15);
     }
 
+    @Override
+    public int countQuietCycles() {
+        return Integer.MAX_VALUE;
+    }
+
+    @Override
+    public void skipCycles(int cycles) {
+        citizen.setToxicity((int) Math.min(100, citizen.getToxicity() + 15L * cycles));
+    }
+
     @Override
     public void strike() throws DisasterException {
         super.strike();
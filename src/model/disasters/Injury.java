@@ -17,6 +17,16 @@ public class Injury extends Disaster {
         citizen.setBloodLoss(citizen.getBloodLoss() + 10);
     }
 
+    @Override
+    public int countQuietCycles() {
+        return Integer.MAX_VALUE;
+    }
+
+    @Override
+    public void skipCycles(int cycles) {
+        citizen.setBloodLoss((int) Math.min(100, citizen.getBloodLoss() + 10L * cycles));
+    }
+
     @Override
     public void strike() throws DisasterException {
         super.strike();
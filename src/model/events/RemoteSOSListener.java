@@ -0,0 +1,6 @@
+package model.events;
+
+public interface RemoteSOSListener {
+    // nationalID is null when the caller is a building.
+    void receiveSOSCall(int x, int y, String nationalID);
+}
@@ -0,0 +1,20 @@
+package model.events;
+
+import model.disasters.Disaster;
+import model.infrastructure.ResidentialBuilding;
+import model.people.Citizen;
+import simulation.Address;
+import simulation.Simulatable;
+import simulation.Simulator;
+
+public interface SimulationListener {
+    void disasterStruck(Disaster disaster);
+
+    void buildingCollapsed(ResidentialBuilding building);
+
+    void citizenDied(Citizen citizen);
+
+    void simulatableMoved(Simulatable simulatable, Address oldLocation);
+
+    void cycleEnded(Simulator simulator, int cycle);
+}
@@ -0,0 +1,22 @@
+package model.events;
+
+import model.disasters.Disaster;
+import model.infrastructure.ResidentialBuilding;
+import model.people.Citizen;
+import model.people.CitizenState;
+import model.units.Unit;
+import model.units.UnitState;
+
+public interface StateListener {
+    void disasterActivityChanged(Disaster disaster);
+
+    void citizenStateChanged(Citizen citizen, CitizenState oldState);
+
+    void citizenDamaged(Citizen citizen);
+
+    void buildingCollapseChanged(ResidentialBuilding building);
+
+    void buildingDamaged(ResidentialBuilding building);
+
+    void unitStateChanged(Unit unit, UnitState oldState);
+}
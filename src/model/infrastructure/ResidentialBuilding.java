@@ -2,17 +2,20 @@ package model.infrastructure;
 
 import model.disasters.Disaster;
 import model.events.SOSListener;
+import model.events.StateListener;
 import model.people.Citizen;
 import simulation.Address;
+import simulation.PopulationStore;
 import simulation.Rescuable;
 import simulation.Simulatable;
+import simulation.util.RandomStream;
 
 import java.util.ArrayList;
-import java.util.Random;
 
 public class ResidentialBuilding implements Simulatable, Rescuable {
 
     private Address location;
+    private int entityId = -1;
 
     private int structuralIntegrity = 100;
     private int fireDamage, foundationDamage, gasLevel;
@@ -21,12 +24,23 @@ public class ResidentialBuilding implements Simulatable, Rescuable {
     private Disaster disaster;
 
     private SOSListener emergencyService;
+    private StateListener stateListener;
+    private RandomStream randomStream;
+    private PopulationStore store;
     private boolean isCollapsed;
 
     public ResidentialBuilding(Address location) {
         this.location = location;
     }
 
+    public int getEntityId() {
+        return entityId;
+    }
+
+    public void setEntityId(int entityId) {
+        this.entityId = entityId;
+    }
+
     public Disaster getDisaster() {
         return disaster;
     }
@@ -41,46 +55,82 @@ public class ResidentialBuilding implements Simulatable, Rescuable {
         emergencyService.receiveSOSCall(this);
     }
 
+    // Points a building reopened from a world store back at the disaster that last struck it, without striking
+    // again.
+    public void resumeDisaster(Disaster d) {
+        disaster = d;
+    }
+
     public int getStructuralIntegrity() {
-        return structuralIntegrity;
+        return store != null ? store.getStructuralIntegrity(entityId) : structuralIntegrity;
     }
 
     public void setStructuralIntegrity(int structuralIntegrity) {
-        this.structuralIntegrity = Math.max(structuralIntegrity, 0);
-        if (this.structuralIntegrity == 0) {
-            isCollapsed = true;
+        int oldIntegrity = getStructuralIntegrity();
+        int value = Math.max(structuralIntegrity, 0);
+        if (store != null) {
+            store.setStructuralIntegrity(entityId, value);
+        } else {
+            this.structuralIntegrity = value;
+        }
+        if (value == 0) {
+            if (store != null) {
+                store.setCollapsed(entityId, true);
+            } else {
+                isCollapsed = true;
+            }
             for (Citizen citizen : occupants) {
                 citizen.setHp(0);
             }
         }
+        if ((oldIntegrity == 0) != (value == 0) && stateListener != null) {
+            stateListener.buildingCollapseChanged(this);
+        }
     }
 
     public int getFireDamage() {
-        return fireDamage;
+        return store != null ? store.getFireDamage(entityId) : fireDamage;
     }
 
     public void setFireDamage(int fireDamage) {
-        this.fireDamage = Math.min(Math.max(fireDamage, 0), 100);
+        int value = Math.min(Math.max(fireDamage, 0), 100);
+        if (store != null) {
+            store.setFireDamage(entityId, value);
+        } else {
+            this.fireDamage = value;
+        }
+        if (value > 0 && stateListener != null) stateListener.buildingDamaged(this);
     }
 
     public int getFoundationDamage() {
-        return foundationDamage;
+        return store != null ? store.getFoundationDamage(entityId) : foundationDamage;
     }
 
     public void setFoundationDamage(int foundationDamage) {
-        this.foundationDamage = Math.max(foundationDamage, 0);
-        if (this.foundationDamage >= 100) {
+        int value = Math.max(foundationDamage, 0);
+        if (store != null) {
+            store.setFoundationDamage(entityId, value);
+        } else {
+            this.foundationDamage = value;
+        }
+        if (value >= 100) {
             setStructuralIntegrity(0);
         }
+        if (value > 0 && stateListener != null) stateListener.buildingDamaged(this);
     }
 
     public int getGasLevel() {
-        return gasLevel;
+        return store != null ? store.getGasLevel(entityId) : gasLevel;
     }
 
     public void setGasLevel(int gasLevel) {
-        this.gasLevel = Math.min(Math.max(gasLevel, 0), 100);
-        if (this.gasLevel == 100) {
+        int value = Math.min(Math.max(gasLevel, 0), 100);
+        if (store != null) {
+            store.setGasLevel(entityId, value);
+        } else {
+            this.gasLevel = value;
+        }
+        if (value == 100) {
             for (Citizen citizen : occupants) {
                 citizen.setHp(0);
             }
@@ -100,35 +150,71 @@ public class ResidentialBuilding implements Simulatable, Rescuable {
     }
 
     public boolean isCollapsed() {
-        return isCollapsed;
+        return store != null ? store.isCollapsed(entityId) : isCollapsed;
     }
 
     @Override
     public void cycleStep() {
-        if (foundationDamage > 0) {
-            setStructuralIntegrity(structuralIntegrity - (new Random().nextInt(6) + 5));
+        if (getFoundationDamage() > 0) {
+            setStructuralIntegrity(getStructuralIntegrity() - foundationLoss());
         }
+        int fireLoss = fireLoss(getFireDamage());
+        if (fireLoss > 0) setStructuralIntegrity(getStructuralIntegrity() - fireLoss);
+    }
+
+    public int foundationLoss() {
+        if (randomStream == null) randomStream = new RandomStream(System.nanoTime() ^ System.identityHashCode(this));
+        return randomStream.nextInt(6) + 5;
+    }
+
+    public static int fireLoss(int fireDamage) {
         if (0 < fireDamage && fireDamage < 30) {
-            setStructuralIntegrity(structuralIntegrity - 3);
+            return 3;
         } else if (30 <= fireDamage && fireDamage < 70) {
-            setStructuralIntegrity(structuralIntegrity - 5);
+            return 5;
         } else if (70 <= fireDamage) {
-            setStructuralIntegrity(structuralIntegrity - 7);
+            return 7;
         }
+        return 0;
     }
 
     public void setEmergencyService(SOSListener sosListener) {
         this.emergencyService = sosListener;
     }
 
+    public StateListener getStateListener() {
+        return stateListener;
+    }
+
+    public void setStateListener(StateListener stateListener) {
+        this.stateListener = stateListener;
+    }
+
+    public RandomStream getRandomStream() {
+        return randomStream;
+    }
+
+    public void setRandomStream(RandomStream randomStream) {
+        this.randomStream = randomStream;
+    }
+
+    public PopulationStore getStore() {
+        return store;
+    }
+
+    // Called by PopulationStore.attach once it holds this building's values; from then on they live in the store.
+    public void setStore(PopulationStore store) {
+        this.store = store;
+    }
+
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder("Location: (" + location.getX() + "," + location.getY() + ")" +
                 "\nOccupants Amount: " + occupants.size() +
-                "\nStructural Integrity: " + structuralIntegrity +
-                "\nFire Damage: " + fireDamage +
-                "\nGas Level: " + gasLevel +
-                "\nFoundation Damage: " + foundationDamage +
+                "\nStructural Integrity: " + getStructuralIntegrity() +
+                "\nFire Damage: " + getFireDamage() +
+                "\nGas Level: " + getGasLevel() +
+                "\nFoundation Damage: " + getFoundationDamage() +
                 "\nCurrent Disaster: " + (disaster != null ? disaster.getClass().getSimpleName() : "None"));
         for (int i = 1; i <= occupants.size(); i++) {
             sb.append("\n\n<b>Occupant ").append(i).append(":</b>\n").append(occupants.get(i - 1).toString());
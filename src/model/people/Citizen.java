@@ -2,15 +2,19 @@ package model.people;
 
 import model.disasters.Disaster;
 import model.events.SOSListener;
+import model.events.StateListener;
 import model.events.WorldListener;
 import simulation.Address;
+import simulation.PopulationStore;
 import simulation.Rescuable;
 import simulation.Simulatable;
 
 public class Citizen implements Simulatable, Rescuable {
 
     private Address location;
+    private int entityId = -1;
     private String nationalID, name;
+    private long numericID = -1;
     private int age;
     private CitizenState state = CitizenState.SAFE;
     private int hp = 100;
@@ -19,6 +23,8 @@ public class Citizen implements Simulatable, Rescuable {
 
     private SOSListener emergencyService;
     private WorldListener worldListener;
+    private StateListener stateListener;
+    private PopulationStore store;
 
     private boolean isDead;
 
@@ -30,12 +36,26 @@ public class Citizen implements Simulatable, Rescuable {
         setWorldListener(worldListener);
     }
 
+    public int getEntityId() {
+        return entityId;
+    }
+
+    public void setEntityId(int entityId) {
+        this.entityId = entityId;
+    }
+
     public CitizenState getState() {
-        return state;
+        return store != null ? store.getState(entityId) : state;
     }
 
     public void setState(CitizenState state) {
-        this.state = state;
+        CitizenState oldState = getState();
+        if (store != null) {
+            store.setState(entityId, state);
+        } else {
+            this.state = state;
+        }
+        if (oldState != state && stateListener != null) stateListener.citizenStateChanged(this, oldState);
     }
 
     public Disaster getDisaster() {
@@ -51,11 +71,27 @@ public class Citizen implements Simulatable, Rescuable {
     }
 
     public String getNationalID() {
-        return nationalID;
+        return nationalID != null ? nationalID : Long.toString(numericID);
+    }
+
+    public long getNumericID() {
+        return numericID;
     }
 
+    // Lets the registry drop the ID string once it can answer lookups by number; getNationalID builds a new one
+    // on every call, so code that runs per citizen should read the number instead. A citizen reopened from a
+    // world store never had the string and takes the number as it is.
+    public void setNumericID(long numericID) {
+        if (numericID < 0 || nationalID != null && !Long.toString(numericID).equals(nationalID)) {
+            throw new IllegalArgumentException("National ID " + getNationalID() + " is not the number " + numericID);
+        }
+        this.numericID = numericID;
+        nationalID = null;
+    }
+
+    // Citizens reopened from a world store read their name from its row when asked.
     public String getName() {
-        return name;
+        return name != null || store == null ? name : store.getName(entityId);
     }
 
     public int getAge() {
@@ -63,55 +99,77 @@ public class Citizen implements Simulatable, Rescuable {
     }
 
     public int getHp() {
-        return hp;
+        return store != null ? store.getHp(entityId) : hp;
     }
 
     public void setHp(int hp) {
-        this.hp = Math.min(Math.max(hp, 0), 100);
-        if (this.hp == 0) {
-            isDead = true;
-            state = CitizenState.DECEASED;
+        int value = Math.min(Math.max(hp, 0), 100);
+        if (store != null) {
+            store.setHp(entityId, value);
+        } else {
+            this.hp = value;
+        }
+        if (value == 0) {
+            if (store != null) {
+                store.setDead(entityId, true);
+            } else {
+                isDead = true;
+            }
+            setState(CitizenState.DECEASED);
         }
     }
 
     public int getBloodLoss() {
-        return bloodLoss;
+        return store != null ? store.getBloodLoss(entityId) : bloodLoss;
     }
 
     public void setBloodLoss(int bloodLoss) {
-        this.bloodLoss = Math.min(Math.max(bloodLoss, 0), 100);
-        if (this.bloodLoss == 100) setHp(0);
+        int value = Math.min(Math.max(bloodLoss, 0), 100);
+        if (store != null) {
+            store.setBloodLoss(entityId, value);
+        } else {
+            this.bloodLoss = value;
+        }
+        if (value == 100) setHp(0);
+        if (value > 0 && stateListener != null) stateListener.citizenDamaged(this);
     }
 
     public int getToxicity() {
-        return toxicity;
+        return store != null ? store.getToxicity(entityId) : toxicity;
     }
 
     public void setToxicity(int toxicity) {
-        this.toxicity = Math.min(Math.max(toxicity, 0), 100);
-        if (this.toxicity == 100) setHp(0);
+        int value = Math.min(Math.max(toxicity, 0), 100);
+        if (store != null) {
+            store.setToxicity(entityId, value);
+        } else {
+            this.toxicity = value;
+        }
+        if (value == 100) setHp(0);
+        if (value > 0 && stateListener != null) stateListener.citizenDamaged(this);
     }
 
     public boolean isDead() {
-        return isDead;
+        return store != null ? store.isDead(entityId) : isDead;
     }
 
     @Override
     public void cycleStep() {
-        if (0 < bloodLoss && bloodLoss < 30) {
-            setHp(hp - 5);
-        } else if (30 <= bloodLoss && bloodLoss < 70) {
-            setHp(hp - 10);
-        } else if (70 <= bloodLoss) {
-            setHp(hp - 15);
-        }
-        if (0 < toxicity && toxicity < 30) {
-            setHp(hp - 5);
-        } else if (30 <= toxicity && toxicity < 70) {
-            setHp(hp - 10);
-        } else if (70 <= toxicity) {
-            setHp(hp - 15);
+        int damage = damageFrom(getBloodLoss());
+        if (damage > 0) setHp(getHp() - damage);
+        damage = damageFrom(getToxicity());
+        if (damage > 0) setHp(getHp() - damage);
+    }
+
+    public static int damageFrom(int level) {
+        if (0 < level && level < 30) {
+            return 5;
+        } else if (30 <= level && level < 70) {
+            return 10;
+        } else if (70 <= level) {
+            return 15;
         }
+        return 0;
     }
 
     @Override
@@ -121,6 +179,11 @@ public class Citizen implements Simulatable, Rescuable {
         emergencyService.receiveSOSCall(this);
     }
 
+    // For a citizen reopened from a world store; the disaster already struck before the world was saved.
+    public void resumeDisaster(Disaster d) {
+        disaster = d;
+    }
+
     public void setEmergencyService(SOSListener sosListener) {
         this.emergencyService = sosListener;
     }
@@ -133,16 +196,33 @@ public class Citizen implements Simulatable, Rescuable {
         this.worldListener = worldListener;
     }
 
+    public StateListener getStateListener() {
+        return stateListener;
+    }
+
+    public void setStateListener(StateListener stateListener) {
+        this.stateListener = stateListener;
+    }
+
+    public PopulationStore getStore() {
+        return store;
+    }
+
+    // Called by PopulationStore.attach once it holds this citizen's values; from then on they live in the store.
+    public void setStore(PopulationStore store) {
+        this.store = store;
+    }
+
     @Override
     public String toString() {
         return "Location: (" + location.getX() + "," + location.getY() + ")" +
                 "\nName: " + name +
                 "\nAge: " + age +
-                "\nNational ID: " + nationalID +
-                "\nHP: " + hp +
-                "\nBlood Loss: " + bloodLoss +
-                "\nToxicity: " + toxicity +
-                "\nState: " + state +
+                "\nNational ID: " + getNationalID() +
+                "\nHP: " + getHp() +
+                "\nBlood Loss: " + getBloodLoss() +
+                "\nToxicity: " + getToxicity() +
+                "\nState: " + getState() +
                 "\nCurrent Disaster: " + (disaster != null ? disaster.getClass().getSimpleName() : "None");
     }
 }
@@ -6,6 +6,7 @@ import model.infrastructure.ResidentialBuilding;
 import model.people.Citizen;
 import model.people.CitizenState;
 import simulation.Address;
+import simulation.Coordinates;
 import simulation.Rescuable;
 
 public class Evacuator extends PoliceUnit {
@@ -32,7 +33,7 @@ public class Evacuator extends PoliceUnit {
     @Override
     public void respond(Rescuable r) throws UnitException {
         super.respond(r);
-        setDistanceToBase(getLocation().getX() + getLocation().getY());
+        setDistanceToBase(Coordinates.x(getCell()) + Coordinates.y(getCell()));
     }
 
     @Override
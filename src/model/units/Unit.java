@@ -4,33 +4,53 @@ import exceptions.CannotTreatException;
 import exceptions.IncompatibleTargetException;
 import exceptions.UnitException;
 import model.events.SOSResponder;
+import model.events.StateListener;
 import model.events.WorldListener;
 import model.infrastructure.ResidentialBuilding;
 import model.people.Citizen;
 import model.people.CitizenState;
 import simulation.Address;
+import simulation.Coordinates;
 import simulation.Rescuable;
 import simulation.Simulatable;
+import simulation.TypeRegistry;
 
 public abstract class Unit implements Simulatable, SOSResponder {
 
     private String unitID;
+    private int entityId = -1;
+    private final int typeCode = TypeRegistry.typeOf(this);
     private UnitState state;
     private Address location;
+    // The location packed, which is what the engine measures distances from; the Address is only handed out.
+    private long cell;
     private Rescuable target;
     private int distanceToTarget;
     private int stepsPerCycle;
 
     private WorldListener worldListener;
+    private StateListener stateListener;
 
     public Unit(String unitID, Address location, int stepsPerCycle, WorldListener worldListener) {
         this.unitID = unitID;
-        this.location = location;
+        setLocation(location);
         this.stepsPerCycle = stepsPerCycle;
         state = UnitState.IDLE;
         setWorldListener(worldListener);
     }
 
+    public int getEntityId() {
+        return entityId;
+    }
+
+    public void setEntityId(int entityId) {
+        this.entityId = entityId;
+    }
+
+    public int getTypeCode() {
+        return typeCode;
+    }
+
     public String getUnitID() {
         return unitID;
     }
@@ -40,7 +60,9 @@ public abstract class Unit implements Simulatable, SOSResponder {
     }
 
     public void setState(UnitState state) {
+        UnitState oldState = this.state;
         this.state = state;
+        if (oldState != state && stateListener != null) stateListener.unitStateChanged(this, oldState);
     }
 
     public Address getLocation() {
@@ -49,16 +71,32 @@ public abstract class Unit implements Simulatable, SOSResponder {
 
     public void setLocation(Address location) {
         this.location = location;
+        cell = location != null ? location.getPacked() : 0;
+    }
+
+    public long getCell() {
+        return cell;
     }
 
     public Rescuable getTarget() {
         return target;
     }
 
+    // Puts a unit reopened from a world store back on the job it had, without responding again.
+    public void resumeJob(UnitState state, Rescuable target, int distanceToTarget) {
+        this.state = state;
+        this.target = target;
+        this.distanceToTarget = distanceToTarget;
+    }
+
     public int getStepsPerCycle() {
         return stepsPerCycle;
     }
 
+    public int getDistanceToTarget() {
+        return distanceToTarget;
+    }
+
     public void setDistanceToTarget(int distanceToTarget) {
         this.distanceToTarget = distanceToTarget;
     }
@@ -71,15 +109,23 @@ public abstract class Unit implements Simulatable, SOSResponder {
         this.worldListener = worldListener;
     }
 
+    public StateListener getStateListener() {
+        return stateListener;
+    }
+
+    public void setStateListener(StateListener stateListener) {
+        this.stateListener = stateListener;
+    }
+
     public void cycleStep() {
         if (state != UnitState.IDLE) {
-            if (this instanceof Evacuator) {
+            if (typeCode == TypeRegistry.EVACUATOR) {
                 Evacuator evacuator = (Evacuator) this;
                 ResidentialBuilding building = (ResidentialBuilding) target;
                 if (evacuator.getPassengers().isEmpty()) {
                     if (distanceToTarget == 0) {
                         // Fill citizens
-                        evacuator.setDistanceToBase(getLocation().getX() + getLocation().getY());
+                        evacuator.setDistanceToBase(Coordinates.x(cell) + Coordinates.y(cell));
                         if (building.getStructuralIntegrity() == 0 || building.getOccupants().size() == 0) {
                             jobsDone();
                         } else {
@@ -92,7 +138,7 @@ public abstract class Unit implements Simulatable, SOSResponder {
                         evacuator.setDistanceToTarget(distanceToTarget - movedDistance);
                         evacuator.setDistanceToBase(evacuator.getDistanceToBase() + movedDistance);
                         if (distanceToTarget == 0) {
-                            worldListener.assignAddress(this, target.getLocation().getX(), target.getLocation().getY());
+                            arrive();
                         }
                     }
                 } else {
@@ -103,8 +149,7 @@ public abstract class Unit implements Simulatable, SOSResponder {
                             citizen.setState(CitizenState.RESCUED);
                             evacuator.getPassengers().remove(citizen);
                         }
-                        evacuator.setDistanceToTarget(Math.abs(target.getLocation().getX() - getLocation().getX()) +
-                                Math.abs(target.getLocation().getY() - getLocation().getY()));
+                        evacuator.setDistanceToTarget(distanceTo(target.getLocation()));
                         if (building.getStructuralIntegrity() == 0 || building.getOccupants().size() == 0) {
                             jobsDone();
                         }
@@ -124,9 +169,8 @@ public abstract class Unit implements Simulatable, SOSResponder {
                 }
             } else {
                 if (distanceToTarget == 0) {
-                    worldListener.assignAddress(this, target.getLocation().getX(), target.getLocation().getY());
-                    if ((target instanceof Citizen && ((Citizen) target).getState() == CitizenState.DECEASED) ||
-                            (target instanceof ResidentialBuilding && ((ResidentialBuilding) target).getStructuralIntegrity() == 0)) {
+                    arrive();
+                    if (isTargetLost()) {
                         jobsDone();
                     } else {
                         treat();
@@ -134,13 +178,52 @@ public abstract class Unit implements Simulatable, SOSResponder {
                 } else {
                     distanceToTarget = Math.max(distanceToTarget - stepsPerCycle, 0);
                     if (distanceToTarget == 0) {
-                        worldListener.assignAddress(this, target.getLocation().getX(), target.getLocation().getY());
+                        arrive();
                     }
                 }
             }
         }
     }
 
+    // Number of upcoming cycleSteps that are pure travel: no arrival, state change or treatment.
+    public int countQuietCycles() {
+        if (state == UnitState.IDLE) return Integer.MAX_VALUE;
+        if (stepsPerCycle <= 0) return 0;
+        if (typeCode == TypeRegistry.EVACUATOR) {
+            Evacuator evacuator = (Evacuator) this;
+            if (evacuator.getPassengers().isEmpty()) {
+                if (distanceToTarget == 0 || state != UnitState.RESPONDING) return 0;
+                return (distanceToTarget - 1) / stepsPerCycle;
+            }
+            if (evacuator.getDistanceToBase() == 0) return 0;
+            return (evacuator.getDistanceToBase() - 1) / stepsPerCycle;
+        }
+        if (distanceToTarget == 0) return 0;
+        return (distanceToTarget - 1) / stepsPerCycle;
+    }
+
+    public void skipCycles(int cycles) {
+        if (cycles <= 0 || state == UnitState.IDLE) return;
+        int distance = cycles * stepsPerCycle;
+        if (typeCode == TypeRegistry.EVACUATOR) {
+            Evacuator evacuator = (Evacuator) this;
+            if (evacuator.getPassengers().isEmpty()) {
+                evacuator.setDistanceToTarget(distanceToTarget - distance);
+                evacuator.setDistanceToBase(evacuator.getDistanceToBase() + distance);
+            } else {
+                evacuator.setDistanceToBase(evacuator.getDistanceToBase() - distance);
+                evacuator.setDistanceToTarget(distanceToTarget + distance);
+            }
+        } else {
+            distanceToTarget -= distance;
+        }
+    }
+
+    private void arrive() {
+        Address destination = target.getLocation();
+        worldListener.assignAddress(this, destination.getX(), destination.getY());
+    }
+
     public void treat() {
         target.getDisaster().setActive(false);
         setState(UnitState.TREATING);
@@ -153,16 +236,14 @@ public abstract class Unit implements Simulatable, SOSResponder {
 
     @Override
     public void respond(Rescuable r) throws UnitException {
-        if (((this instanceof FireUnit || this instanceof PoliceUnit || this instanceof GasControlUnit) && r instanceof Citizen)
-                || ((this instanceof MedicalUnit) && r instanceof ResidentialBuilding)) {
-            throw new IncompatibleTargetException(this, r);
-        }
+        int targetType = TypeRegistry.typeOf(r);
+        if (TypeRegistry.isIncompatible(typeCode, targetType)) throw new IncompatibleTargetException(this, r);
         if (!canTreat(r)) throw new CannotTreatException(this, r);
         setState(UnitState.RESPONDING);
         if (target != null) {
-            if (r instanceof Citizen) {
+            if (targetType == TypeRegistry.CITIZEN) {
                 Citizen citizen = (Citizen) r;
-                if (!(this instanceof MedicalUnit && citizen.getHp() < 100 && citizen.getBloodLoss() == 0 && citizen.getToxicity() == 0)) {
+                if (!(TypeRegistry.isA(typeCode, TypeRegistry.MEDICAL_UNIT) && citizen.getHp() < 100 && citizen.getBloodLoss() == 0 && citizen.getToxicity() == 0)) {
                     target.getDisaster().setActive(true);
                 }
             } else {
@@ -170,22 +251,43 @@ public abstract class Unit implements Simulatable, SOSResponder {
             }
         }
         target = r;
-        setDistanceToTarget(Math.abs(target.getLocation().getX() - getLocation().getX()) +
-                Math.abs(target.getLocation().getY() - getLocation().getY()));
+        setDistanceToTarget(distanceTo(target.getLocation()));
+    }
+
+    private int distanceTo(Address destination) {
+        return Math.abs(destination.getX() - Coordinates.x(cell)) + Math.abs(destination.getY() - Coordinates.y(cell));
     }
 
     public boolean canTreat(Rescuable r) {
-        if (r instanceof ResidentialBuilding) {
-            ResidentialBuilding building = (ResidentialBuilding) r;
-            return (this instanceof Evacuator && building.getFoundationDamage() != 0)
-                    || (this instanceof FireTruck && building.getFireDamage() != 0)
-                    || (this instanceof GasControlUnit && building.getGasLevel() != 0);
-        } else if (r instanceof Citizen) {
-            Citizen citizen = (Citizen) r;
-            return (this instanceof Ambulance && citizen.getBloodLoss() != 0)
-                    || (this instanceof DiseaseControlUnit && citizen.getToxicity() != 0);
+        int disasterType = TypeRegistry.treatedDisaster(typeCode);
+        if (disasterType == TypeRegistry.UNKNOWN || TypeRegistry.typeOf(r) != TypeRegistry.targetOf(disasterType)) {
+            return false;
+        }
+        switch (disasterType) {
+            case TypeRegistry.COLLAPSE:
+                return ((ResidentialBuilding) r).getFoundationDamage() != 0;
+            case TypeRegistry.FIRE:
+                return ((ResidentialBuilding) r).getFireDamage() != 0;
+            case TypeRegistry.GAS_LEAK:
+                return ((ResidentialBuilding) r).getGasLevel() != 0;
+            case TypeRegistry.INJURY:
+                return ((Citizen) r).getBloodLoss() != 0;
+            case TypeRegistry.INFECTION:
+                return ((Citizen) r).getToxicity() != 0;
+            default:
+                return false;
+        }
+    }
+
+    private boolean isTargetLost() {
+        switch (TypeRegistry.typeOf(target)) {
+            case TypeRegistry.CITIZEN:
+                return ((Citizen) target).getState() == CitizenState.DECEASED;
+            case TypeRegistry.BUILDING:
+                return ((ResidentialBuilding) target).getStructuralIntegrity() == 0;
+            default:
+                return false;
         }
-        return false;
     }
 
     @Override
@@ -16,4 +16,15 @@ public class Address {
     public int getY() {
         return y;
     }
+
+    // Packed from the fields on each call, since x and y can be written through reflection; entities that measure
+    // distances every cycle keep their own packed cell instead.
+    public long getPacked() {
+        return Coordinates.pack(x, y);
+    }
+
+    @Override
+    public String toString() {
+        return "(" + x + "," + y + ")";
+    }
 }
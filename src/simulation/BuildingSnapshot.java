@@ -0,0 +1,57 @@
+package simulation;
+
+import model.infrastructure.ResidentialBuilding;
+
+// A building as it stood at the end of one cycle.
+public final class BuildingSnapshot {
+
+    private final int entityId;
+    private final Address location;
+    private final int structuralIntegrity;
+    private final int fireDamage;
+    private final int gasLevel;
+    private final int foundationDamage;
+    private final int occupants;
+
+    BuildingSnapshot(ResidentialBuilding building) {
+        entityId = building.getEntityId();
+        location = building.getLocation();
+        structuralIntegrity = building.getStructuralIntegrity();
+        fireDamage = building.getFireDamage();
+        gasLevel = building.getGasLevel();
+        foundationDamage = building.getFoundationDamage();
+        occupants = building.getOccupants().size();
+    }
+
+    public int getEntityId() {
+        return entityId;
+    }
+
+    public Address getLocation() {
+        return location;
+    }
+
+    public int getStructuralIntegrity() {
+        return structuralIntegrity;
+    }
+
+    public int getFireDamage() {
+        return fireDamage;
+    }
+
+    public int getGasLevel() {
+        return gasLevel;
+    }
+
+    public int getFoundationDamage() {
+        return foundationDamage;
+    }
+
+    public int getOccupants() {
+        return occupants;
+    }
+
+    public boolean isCollapsed() {
+        return structuralIntegrity == 0;
+    }
+}
@@ -0,0 +1,73 @@
+package simulation;
+
+import model.people.Citizen;
+import model.people.CitizenState;
+
+// A citizen as they stood at the end of one cycle.
+public final class CitizenSnapshot {
+
+    private final int entityId;
+    private final long numericID;
+    // Only set for IDs that are not kept as a number.
+    private final String nationalID;
+    private final String name;
+    private final int age;
+    private final Address location;
+    private final int hp;
+    private final int bloodLoss;
+    private final int toxicity;
+    private final CitizenState state;
+
+    CitizenSnapshot(Citizen citizen) {
+        entityId = citizen.getEntityId();
+        numericID = citizen.getNumericID();
+        nationalID = numericID >= 0 ? null : citizen.getNationalID();
+        name = citizen.getName();
+        age = citizen.getAge();
+        location = citizen.getLocation();
+        hp = citizen.getHp();
+        bloodLoss = citizen.getBloodLoss();
+        toxicity = citizen.getToxicity();
+        state = citizen.getState();
+    }
+
+    public int getEntityId() {
+        return entityId;
+    }
+
+    public long getNumericID() {
+        return numericID;
+    }
+
+    public String getNationalID() {
+        return nationalID != null ? nationalID : Long.toString(numericID);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getAge() {
+        return age;
+    }
+
+    public Address getLocation() {
+        return location;
+    }
+
+    public int getHp() {
+        return hp;
+    }
+
+    public int getBloodLoss() {
+        return bloodLoss;
+    }
+
+    public int getToxicity() {
+        return toxicity;
+    }
+
+    public CitizenState getState() {
+        return state;
+    }
+}
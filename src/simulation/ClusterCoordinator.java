@@ -0,0 +1,339 @@
+package simulation;
+
+import exceptions.BuildingAlreadyCollapsedException;
+import exceptions.CannotTreatException;
+import exceptions.CitizenAlreadyDeadException;
+import exceptions.DisasterException;
+import exceptions.IncompatibleTargetException;
+import exceptions.UnitException;
+import model.events.RemoteSOSListener;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+// Drives a simulation split over worker processes on this machine, one per region of a columns x rows grid.
+// Workers meet at a barrier after every partitioned phase, where the coordinator hands each of them the
+// shares of all the others; dispatches go to every worker, and SOS calls come back from the caller's region.
+public class ClusterCoordinator implements Closeable {
+
+    private static final int CONNECT_TIMEOUT = 60000;
+
+    private Scenario scenario;
+    private long seed;
+    private int columns, rows;
+
+    private ServerSocket server;
+    private Socket[] sockets;
+    private DataInputStream[] inputs;
+    private DataOutputStream[] outputs;
+    private Process[] processes;
+    private RemoteSOSListener sosListener;
+    private int currentCycle;
+
+    private long[] sosSequence = new long[16];
+    private int[] sosX = new int[16], sosY = new int[16];
+    private String[] sosCallers = new String[16];
+    private int sosCount;
+    private String cycleError, cycleErrorMessage;
+    private String failure;
+
+    public ClusterCoordinator(Scenario scenario, EngineSettings settings, int columns, int rows) throws IOException {
+        if (columns < 1 || rows < 1) {
+            throw new IllegalArgumentException("Region grid must be at least 1x1: " + columns + "x" + rows);
+        }
+        this.scenario = scenario;
+        this.seed = settings.getSeed();
+        this.columns = columns;
+        this.rows = rows;
+        server = new ServerSocket(0, columns * rows, InetAddress.getLoopbackAddress());
+        server.setSoTimeout(CONNECT_TIMEOUT);
+    }
+
+    public int getPort() {
+        return server.getLocalPort();
+    }
+
+    public int getRegionCount() {
+        return columns * rows;
+    }
+
+    public int getCurrentCycle() {
+        return currentCycle;
+    }
+
+    public void setSOSListener(RemoteSOSListener sosListener) {
+        this.sosListener = sosListener;
+    }
+
+    // Starts one JVM per region with this JVM's class path, then waits for all of them to load the scenario.
+    public void launchWorkers() throws IOException {
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        processes = new Process[getRegionCount()];
+        for (int i = 0; i < processes.length; i++) {
+            processes[i] = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                    ClusterWorker.class.getName(), server.getInetAddress().getHostAddress(), String.valueOf(getPort()))
+                    .inheritIO().start();
+        }
+        connectWorkers();
+    }
+
+    // Waits for workers started elsewhere to connect; regions are handed out in connection order.
+    public void connectWorkers() throws IOException {
+        int count = getRegionCount();
+        sockets = new Socket[count];
+        inputs = new DataInputStream[count];
+        outputs = new DataOutputStream[count];
+        for (int region = 0; region < count; region++) {
+            Socket socket = server.accept();
+            socket.setTcpNoDelay(true);
+            sockets[region] = socket;
+            inputs[region] = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            outputs[region] = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            DataOutputStream out = outputs[region];
+            out.writeByte(ClusterProtocol.INIT);
+            out.writeInt(region);
+            out.writeInt(columns);
+            out.writeInt(rows);
+            out.writeInt(scenario.getWorldWidth());
+            out.writeInt(scenario.getWorldHeight());
+            out.writeUTF(new File(scenario.getBuildingsFile()).getAbsolutePath());
+            out.writeUTF(new File(scenario.getCitizensFile()).getAbsolutePath());
+            out.writeUTF(new File(scenario.getUnitsFile()).getAbsolutePath());
+            out.writeUTF(new File(scenario.getDisastersFile()).getAbsolutePath());
+            out.writeLong(seed);
+            out.flush();
+        }
+        for (int region = 0; region < count; region++) {
+            int message = inputs[region].readByte();
+            if (message == ClusterProtocol.FAILED) failed(region);
+            ClusterProtocol.expect(ClusterProtocol.READY, message);
+        }
+    }
+
+    public void dispatchToCitizen(String unitID, String nationalID) throws UnitException, IOException {
+        checkRunning();
+        for (DataOutputStream out : outputs) {
+            out.writeByte(ClusterProtocol.DISPATCH_TO_CITIZEN);
+            out.writeUTF(unitID);
+            out.writeUTF(nationalID);
+            out.flush();
+        }
+        collectDispatch();
+    }
+
+    public void dispatchToBuilding(String unitID, int x, int y) throws UnitException, IOException {
+        checkRunning();
+        for (DataOutputStream out : outputs) {
+            out.writeByte(ClusterProtocol.DISPATCH_TO_BUILDING);
+            out.writeUTF(unitID);
+            out.writeInt(x);
+            out.writeInt(y);
+            out.flush();
+        }
+        collectDispatch();
+    }
+
+    // Every worker applies the dispatch to its copy of the unit, so they all answer the same way.
+    private void collectDispatch() throws UnitException, IOException {
+        String error = null, message = null;
+        for (int region = 0; region < inputs.length; region++) {
+            int reply = inputs[region].readByte();
+            if (reply == ClusterProtocol.FAILED) failed(region);
+            if (reply == ClusterProtocol.ERROR) {
+                error = inputs[region].readUTF();
+                message = inputs[region].readUTF();
+            } else {
+                ClusterProtocol.expect(ClusterProtocol.OK, reply);
+            }
+        }
+        if (error == null) return;
+        if (error.equals(IncompatibleTargetException.class.getSimpleName())) {
+            throw new IncompatibleTargetException(null, null, message);
+        }
+        throw new CannotTreatException(null, null, message);
+    }
+
+    public void nextCycle() throws DisasterException, IOException {
+        checkRunning();
+        currentCycle++;
+        try {
+            exchangePhases();
+        } catch (IOException e) {
+            stop(String.valueOf(e.getMessage()));
+            throw e;
+        }
+        deliverSOSCalls();
+        // Strikes run in every region, so a failed strike fails everywhere with the same exception.
+        if (cycleError != null) {
+            if (cycleError.equals(CitizenAlreadyDeadException.class.getSimpleName())) {
+                throw new CitizenAlreadyDeadException(null, cycleErrorMessage);
+            }
+            throw new BuildingAlreadyCollapsedException(null, cycleErrorMessage);
+        }
+    }
+
+    // Runs the barriers of one cycle until every region is done. A region that fails leaves the others waiting
+    // for shares that will not come, so any failure here stops the whole cluster.
+    private void exchangePhases() throws IOException {
+        for (DataOutputStream out : outputs) {
+            out.writeByte(ClusterProtocol.CYCLE);
+            out.flush();
+        }
+        int count = inputs.length;
+        byte[][] shares = new byte[count][];
+        sosCount = 0;
+        cycleError = null;
+        while (true) {
+            int phases = 0;
+            for (int region = 0; region < count; region++) {
+                int message = inputs[region].readByte();
+                if (message == ClusterProtocol.FAILED) failed(region);
+                if (message == ClusterProtocol.PHASE) {
+                    shares[region] = ClusterProtocol.readBytes(inputs[region]);
+                    phases++;
+                } else {
+                    ClusterProtocol.expect(ClusterProtocol.DONE, message);
+                    readCycleResult(inputs[region]);
+                }
+            }
+            if (phases == 0) break;
+            if (phases != count) throw new IOException("Regions disagree on the phases of cycle " + currentCycle);
+            for (int region = 0; region < count; region++) {
+                DataOutputStream out = outputs[region];
+                out.writeByte(ClusterProtocol.MERGED);
+                out.writeInt(count - 1);
+                for (int other = 0; other < count; other++) {
+                    if (other != region) ClusterProtocol.writeBytes(out, shares[other]);
+                }
+                out.flush();
+            }
+        }
+    }
+
+    public int calculateCasualties() throws IOException {
+        checkRunning();
+        int casualties = 0;
+        for (int region = 0; region < outputs.length; region++) {
+            outputs[region].writeByte(ClusterProtocol.CASUALTIES);
+            outputs[region].flush();
+            casualties += readReply(region).readInt();
+        }
+        return casualties;
+    }
+
+    public boolean checkGameOver() throws IOException {
+        checkRunning();
+        boolean over = true;
+        for (int region = 0; region < outputs.length; region++) {
+            outputs[region].writeByte(ClusterProtocol.GAME_OVER);
+            outputs[region].flush();
+            over &= readReply(region).readBoolean();
+        }
+        return over;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (outputs != null) {
+            for (DataOutputStream out : outputs) {
+                if (out == null) continue;
+                try {
+                    out.writeByte(ClusterProtocol.CLOSE);
+                    out.flush();
+                } catch (IOException e) {
+                    // The worker is already gone.
+                }
+            }
+            for (Socket socket : sockets) {
+                if (socket != null) socket.close();
+            }
+        }
+        server.close();
+        if (processes != null) {
+            for (Process process : processes) {
+                try {
+                    if (!process.waitFor(10, TimeUnit.SECONDS)) process.destroyForcibly();
+                } catch (InterruptedException e) {
+                    process.destroyForcibly();
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    private DataInputStream readReply(int region) throws IOException {
+        int message = inputs[region].readByte();
+        if (message == ClusterProtocol.FAILED) failed(region);
+        ClusterProtocol.expect(ClusterProtocol.OK, message);
+        return inputs[region];
+    }
+
+    private void readCycleResult(DataInputStream in) throws IOException {
+        for (int n = in.readInt(); n > 0; n--) {
+            if (sosCount == sosSequence.length) {
+                sosSequence = Arrays.copyOf(sosSequence, sosCount << 1);
+                sosX = Arrays.copyOf(sosX, sosCount << 1);
+                sosY = Arrays.copyOf(sosY, sosCount << 1);
+                sosCallers = Arrays.copyOf(sosCallers, sosCount << 1);
+            }
+            sosSequence[sosCount] = ((long) in.readInt() << 32) | sosCount;
+            sosX[sosCount] = in.readInt();
+            sosY[sosCount] = in.readInt();
+            String nationalID = in.readUTF();
+            sosCallers[sosCount] = nationalID.isEmpty() ? null : nationalID;
+            sosCount++;
+        }
+        int status = in.readByte();
+        if (status == ClusterProtocol.ERROR) {
+            cycleError = in.readUTF();
+            cycleErrorMessage = in.readUTF();
+        } else {
+            ClusterProtocol.expect(ClusterProtocol.OK, status);
+        }
+    }
+
+    // Calls are keyed by their position in the cycle in the high half, so sorting restores the order in which
+    // a single process would have made them.
+    private void deliverSOSCalls() {
+        Arrays.sort(sosSequence, 0, sosCount);
+        for (int i = 0; i < sosCount; i++) {
+            int call = (int) sosSequence[i];
+            if (sosListener != null) sosListener.receiveSOSCall(sosX[call], sosY[call], sosCallers[call]);
+            sosCallers[call] = null;
+        }
+        sosCount = 0;
+    }
+
+    private void failed(int region) throws IOException {
+        String message = "Region " + region + " failed: " + inputs[region].readUTF();
+        stop(message);
+        throw new IOException(message);
+    }
+
+    // Drops every worker connection; workers waiting at a barrier see the end of their stream and exit.
+    private void stop(String reason) {
+        if (failure != null) return;
+        failure = reason;
+        for (Socket socket : sockets) {
+            try {
+                if (socket != null) socket.close();
+            } catch (IOException e) {
+                // Closing anyway.
+            }
+        }
+    }
+
+    private void checkRunning() throws IOException {
+        if (failure != null) throw new IOException("The cluster was stopped after a failure: " + failure);
+    }
+}
@@ -0,0 +1,45 @@
+package simulation;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+// Messages between a ClusterCoordinator and its workers. Every message starts with one of these bytes.
+final class ClusterProtocol {
+
+    // coordinator to worker
+    static final int INIT = 1;
+    static final int DISPATCH_TO_CITIZEN = 2;
+    static final int DISPATCH_TO_BUILDING = 3;
+    static final int CYCLE = 4;
+    static final int MERGED = 5;
+    static final int CASUALTIES = 6;
+    static final int GAME_OVER = 7;
+    static final int CLOSE = 8;
+
+    // worker to coordinator
+    static final int READY = 20;
+    static final int OK = 21;
+    static final int ERROR = 22;
+    static final int PHASE = 23;
+    static final int DONE = 24;
+    static final int FAILED = 25;
+
+    private ClusterProtocol() {
+    }
+
+    static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static byte[] readBytes(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    static void expect(int expected, int actual) throws IOException {
+        if (expected != actual) throw new IOException("Expected message " + expected + " but got " + actual);
+    }
+}
@@ -0,0 +1,214 @@
+package simulation;
+
+import exceptions.SimulationException;
+import model.events.SOSListener;
+import model.people.Citizen;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.ArrayList;
+
+// One process of a distributed simulation. It loads the whole scenario, steps its own region of every
+// partitioned phase and reports the SOS calls raised in that region. Started by ClusterCoordinator as
+//   java -cp <class path> simulation.ClusterWorker <host> <port>
+public class ClusterWorker implements Runnable, SOSListener, RegionLink {
+
+    private String host;
+    private int port;
+
+    private DataInputStream in;
+    private DataOutputStream out;
+    private Simulator simulator;
+    private ShardLayout regions;
+    private int region;
+    private Exception failure;
+
+    private int sosCalls;
+    private ArrayList<Integer> sosSequence = new ArrayList<>();
+    private ArrayList<Rescuable> sosCallers = new ArrayList<>();
+
+    public ClusterWorker(String host, int port) {
+        this.host = host;
+        this.port = port;
+    }
+
+    public static void main(String[] args) {
+        if (args.length != 2) {
+            System.err.println("Usage: ClusterWorker <host> <port>");
+            System.exit(2);
+        }
+        ClusterWorker worker = new ClusterWorker(args[0], Integer.parseInt(args[1]));
+        worker.run();
+        if (worker.getFailure() != null) {
+            System.err.println("Cluster worker stopped: " + worker.getFailure());
+            System.exit(1);
+        }
+    }
+
+    public Simulator getSimulator() {
+        return simulator;
+    }
+
+    // Whether the partitioned phases step the items on this cell here rather than on another worker.
+    public boolean owns(Address location) {
+        return regions.shardOf(location) == region;
+    }
+
+    // Why the worker stopped, or null if the coordinator closed it or went away between messages.
+    public Exception getFailure() {
+        return failure;
+    }
+
+    @Override
+    public void run() {
+        try (Socket socket = new Socket(host, port)) {
+            socket.setTcpNoDelay(true);
+            in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            serve();
+        } catch (EOFException e) {
+            // The coordinator went away, or stopped the cluster after another region failed; nothing left to do.
+        } catch (IOException e) {
+            failure = e;
+        }
+    }
+
+    private void serve() throws IOException {
+        ClusterProtocol.expect(ClusterProtocol.INIT, in.readByte());
+        region = in.readInt();
+        int columns = in.readInt();
+        int rows = in.readInt();
+        Scenario scenario = new Scenario(in.readInt(), in.readInt(), in.readUTF(), in.readUTF(), in.readUTF(), in.readUTF());
+        EngineSettings settings = new EngineSettings();
+        settings.setSeed(in.readLong());
+        try {
+            simulator = new Simulator(this, scenario, settings);
+        } catch (Exception e) {
+            fail(e);
+            return;
+        }
+        regions = new ShardLayout(scenario.getWorldWidth(), scenario.getWorldHeight(), columns, rows);
+        simulator.joinCluster(regions, region, this);
+        out.writeByte(ClusterProtocol.READY);
+        out.flush();
+        while (true) {
+            int message = in.readByte();
+            try {
+                switch (message) {
+                    case ClusterProtocol.DISPATCH_TO_CITIZEN:
+                        dispatch(in.readUTF(), in.readUTF(), 0, 0);
+                        break;
+                    case ClusterProtocol.DISPATCH_TO_BUILDING:
+                        dispatch(in.readUTF(), null, in.readInt(), in.readInt());
+                        break;
+                    case ClusterProtocol.CYCLE:
+                        cycle();
+                        break;
+                    case ClusterProtocol.CASUALTIES:
+                        out.writeByte(ClusterProtocol.OK);
+                        out.writeInt(simulator.countRegionCasualties());
+                        break;
+                    case ClusterProtocol.GAME_OVER:
+                        out.writeByte(ClusterProtocol.OK);
+                        out.writeBoolean(simulator.checkGameOver());
+                        break;
+                    case ClusterProtocol.CLOSE:
+                        return;
+                    default:
+                        throw new IOException("Unknown message " + message);
+                }
+            } catch (RuntimeException e) {
+                // Also a barrier that broke under a partitioned phase, which arrives as an UncheckedIOException.
+                fail(e);
+                return;
+            }
+            out.flush();
+        }
+    }
+
+    private void dispatch(String unitID, String nationalID, int x, int y) throws IOException {
+        try {
+            if (nationalID != null) {
+                simulator.dispatchToCitizen(unitID, nationalID);
+            } else {
+                simulator.dispatchToBuilding(unitID, x, y);
+            }
+            out.writeByte(ClusterProtocol.OK);
+        } catch (SimulationException e) {
+            writeError(e);
+        }
+    }
+
+    private void cycle() throws IOException {
+        sosCalls = 0;
+        sosSequence.clear();
+        sosCallers.clear();
+        SimulationException error = null;
+        try {
+            simulator.nextCycle();
+        } catch (SimulationException e) {
+            error = e;
+        }
+        out.writeByte(ClusterProtocol.DONE);
+        out.writeInt(sosSequence.size());
+        for (int i = 0; i < sosSequence.size(); i++) {
+            Rescuable caller = sosCallers.get(i);
+            out.writeInt(sosSequence.get(i));
+            out.writeInt(caller.getLocation().getX());
+            out.writeInt(caller.getLocation().getY());
+            out.writeUTF(caller instanceof Citizen ? ((Citizen) caller).getNationalID() : "");
+        }
+        if (error == null) {
+            out.writeByte(ClusterProtocol.OK);
+        } else {
+            writeError(error);
+        }
+    }
+
+    private void writeError(SimulationException e) throws IOException {
+        out.writeByte(ClusterProtocol.ERROR);
+        out.writeUTF(e.getClass().getSimpleName());
+        out.writeUTF(String.valueOf(e.getMessage()));
+    }
+
+    // Reports the failure if the coordinator can still hear it; getFailure keeps it either way.
+    private void fail(Exception e) {
+        failure = e;
+        try {
+            out.writeByte(ClusterProtocol.FAILED);
+            out.writeUTF(String.valueOf(e));
+            out.flush();
+        } catch (IOException lost) {
+            // The coordinator is gone.
+        }
+    }
+
+    // Every worker sees every SOS call, since strikes run everywhere; only the caller's region reports it,
+    // tagged with its position in the cycle so the coordinator can restore the order.
+    @Override
+    public void receiveSOSCall(Rescuable r) {
+        int sequence = sosCalls++;
+        if (regions.shardOf(r.getLocation()) == region) {
+            sosSequence.add(sequence);
+            sosCallers.add(r);
+        }
+    }
+
+    @Override
+    public byte[][] exchange(byte[] share) throws IOException {
+        out.writeByte(ClusterProtocol.PHASE);
+        ClusterProtocol.writeBytes(out, share);
+        out.flush();
+        ClusterProtocol.expect(ClusterProtocol.MERGED, in.readByte());
+        byte[][] shares = new byte[in.readInt()][];
+        for (int i = 0; i < shares.length; i++) {
+            shares[i] = ClusterProtocol.readBytes(in);
+        }
+        return shares;
+    }
+}
@@ -0,0 +1,21 @@
+package simulation;
+
+// A cell packed into a long, x in the high half and y in the low half, for engine code that would otherwise
+// pass Address objects around just to read their fields.
+public final class Coordinates {
+
+    private Coordinates() {
+    }
+
+    public static long pack(int x, int y) {
+        return ((long) x << 32) | (y & 0xFFFFFFFFL);
+    }
+
+    public static int x(long cell) {
+        return (int) (cell >> 32);
+    }
+
+    public static int y(long cell) {
+        return (int) cell;
+    }
+}
@@ -0,0 +1,94 @@
+package simulation;
+
+import model.infrastructure.ResidentialBuilding;
+import model.people.Citizen;
+import simulation.util.Worklist;
+
+import java.util.Arrays;
+
+// Back buffer for the damage phases: losses are computed from the state captured at the start of the
+// cycle and only written to the entities when the cycle commits.
+class CycleBuffer {
+
+    private ResidentialBuilding[] buildings = new ResidentialBuilding[16];
+    private int[] integrityLoss = new int[16];
+    private int buildingCount;
+
+    private Citizen[] citizens = new Citizen[16];
+    private int[] hpLoss = new int[16];
+    private int citizenCount;
+
+    private PhaseExecutor.Phase buildingPhase = new PhaseExecutor.Phase() {
+        @Override
+        void step(int item) {
+            ResidentialBuilding building = buildings[item];
+            int loss = ResidentialBuilding.fireLoss(building.getFireDamage());
+            if (building.getFoundationDamage() > 0) loss += building.foundationLoss();
+            integrityLoss[item] = loss;
+        }
+    };
+    private PhaseExecutor.Phase citizenPhase = new PhaseExecutor.Phase() {
+        @Override
+        void step(int item) {
+            Citizen citizen = citizens[item];
+            hpLoss[item] = Citizen.damageFrom(citizen.getBloodLoss()) + Citizen.damageFrom(citizen.getToxicity());
+        }
+    };
+
+    void reserve(int buildingCapacity, int citizenCapacity) {
+        if (buildings.length < buildingCapacity) {
+            buildings = new ResidentialBuilding[buildingCapacity];
+            integrityLoss = new int[buildingCapacity];
+        }
+        if (citizens.length < citizenCapacity) {
+            citizens = new Citizen[citizenCapacity];
+            hpLoss = new int[citizenCapacity];
+        }
+    }
+
+    void capture(Worklist<ResidentialBuilding> damagedBuildings, Worklist<Citizen> damagedCitizens, PhaseExecutor executor) {
+        buildingCount = damagedBuildings.size();
+        if (buildings.length < buildingCount) {
+            buildings = new ResidentialBuilding[buildingCount];
+            integrityLoss = new int[buildingCount];
+        }
+        for (int i = 0; i < buildingCount; i++) {
+            buildings[i] = damagedBuildings.get(i);
+        }
+        citizenCount = damagedCitizens.size();
+        if (citizens.length < citizenCount) {
+            citizens = new Citizen[citizenCount];
+            hpLoss = new int[citizenCount];
+        }
+        for (int i = 0; i < citizenCount; i++) {
+            citizens[i] = damagedCitizens.get(i);
+        }
+        run(buildingPhase, buildingCount, executor);
+        run(citizenPhase, citizenCount, executor);
+    }
+
+    void commit() {
+        for (int i = 0; i < buildingCount; i++) {
+            ResidentialBuilding building = buildings[i];
+            if (integrityLoss[i] > 0) building.setStructuralIntegrity(building.getStructuralIntegrity() - integrityLoss[i]);
+        }
+        for (int i = 0; i < citizenCount; i++) {
+            Citizen citizen = citizens[i];
+            if (hpLoss[i] > 0) citizen.setHp(citizen.getHp() - hpLoss[i]);
+        }
+        Arrays.fill(buildings, 0, buildingCount, null);
+        Arrays.fill(citizens, 0, citizenCount, null);
+        buildingCount = 0;
+        citizenCount = 0;
+    }
+
+    private static void run(PhaseExecutor.Phase phase, int count, PhaseExecutor executor) {
+        if (executor != null && count >= PhaseExecutor.MIN_PARALLEL_ITEMS) {
+            executor.run(phase, count);
+        } else {
+            for (int i = 0; i < count; i++) {
+                phase.step(i);
+            }
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package simulation;
+
+import model.disasters.Disaster;
+import model.events.StateListener;
+import model.infrastructure.ResidentialBuilding;
+import model.people.Citizen;
+import model.people.CitizenState;
+import model.units.Unit;
+import model.units.UnitState;
+import simulation.util.ListView;
+import simulation.util.ObjectIntMap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+
+// Every disaster that has struck: the active ones in activation order and indexed by target, the inactive ones
+// moved to an archive that no cycle walks. A disaster that becomes active again moves back out of the archive.
+public class DisasterLedger {
+
+    private StateListener stateListener;
+
+    private LinkedHashSet<Disaster> active = new LinkedHashSet<>();
+    private Disaster[] activeOrder = new Disaster[16];
+    private int activeOrderCount;
+    private boolean activeOrderStale;
+    private IdentityHashMap<Rescuable, ArrayList<Disaster>> activeByTarget = new IdentityHashMap<>();
+    private int activeOnLiveTargets;
+
+    // Unordered; a disaster leaving it is replaced by the last one, and slots says where each one is.
+    private Disaster[] archive = new Disaster[16];
+    private int archived;
+    private ObjectIntMap<Disaster> slots = new ObjectIntMap<>();
+
+    private ListView<Disaster> list = new ListView<Disaster>() {
+        @Override
+        protected int count() {
+            return active.size() + archived;
+        }
+
+        @Override
+        protected Disaster element(int index) {
+            return index < active.size() ? getActive(index) : archive[index - active.size()];
+        }
+
+        @Override
+        protected void append(Disaster disaster) {
+            DisasterLedger.this.add(disaster);
+        }
+
+        @Override
+        protected void removeElements() {
+            DisasterLedger.this.clear();
+        }
+    };
+
+    private StateListener targetListener = new StateListener() {
+        @Override
+        public void disasterActivityChanged(Disaster disaster) {
+        }
+
+        @Override
+        public void citizenStateChanged(Citizen citizen, CitizenState oldState) {
+            if (StateEventBuffer.defer(StateEventBuffer.CITIZEN_STATE, this, citizen, oldState)) return;
+            if ((oldState == CitizenState.DECEASED) != (citizen.getState() == CitizenState.DECEASED)) {
+                targetLivenessChanged(citizen);
+            }
+        }
+
+        @Override
+        public void citizenDamaged(Citizen citizen) {
+        }
+
+        @Override
+        public void buildingCollapseChanged(ResidentialBuilding building) {
+            if (StateEventBuffer.defer(StateEventBuffer.BUILDING_COLLAPSE, this, building, null)) return;
+            targetLivenessChanged(building);
+        }
+
+        @Override
+        public void buildingDamaged(ResidentialBuilding building) {
+        }
+
+        @Override
+        public void unitStateChanged(Unit unit, UnitState oldState) {
+        }
+    };
+
+    public DisasterLedger(StateListener stateListener) {
+        this.stateListener = stateListener;
+    }
+
+    public void add(Disaster disaster) {
+        disaster.setStateListener(stateListener);
+        if (disaster.isActive()) {
+            activate(disaster);
+        } else {
+            toArchive(disaster);
+        }
+    }
+
+    public void clear() {
+        active.clear();
+        activeByTarget.clear();
+        activeOnLiveTargets = 0;
+        activeOrderStale = true;
+        Arrays.fill(archive, 0, archived, null);
+        archived = 0;
+        slots.clear();
+    }
+
+    // The ledger as an ArrayList, active disasters first, for code that reaches the simulator's executedDisasters
+    // field by reflection.
+    public ArrayList<Disaster> asList() {
+        return list;
+    }
+
+    public Collection<Disaster> getActive() {
+        return Collections.unmodifiableCollection(active);
+    }
+
+    public int countActive() {
+        return active.size();
+    }
+
+    public int countArchived() {
+        return archived;
+    }
+
+    // Indexed view of the active disasters in activation order. It is only rebuilt after the active set
+    // changes, so walking it in a quiet cycle does not allocate.
+    public Disaster getActive(int index) {
+        if (activeOrderStale) {
+            if (activeOrder.length < active.size()) activeOrder = new Disaster[Math.max(active.size(), activeOrder.length << 1)];
+            int i = 0;
+            for (Disaster disaster : active) {
+                activeOrder[i++] = disaster;
+            }
+            if (i < activeOrderCount) Arrays.fill(activeOrder, i, activeOrderCount, null);
+            activeOrderCount = i;
+            activeOrderStale = false;
+        }
+        if (index >= active.size()) throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + active.size());
+        return activeOrder[index];
+    }
+
+    public void reserve(int capacity) {
+        if (archive.length < capacity) archive = Arrays.copyOf(archive, capacity);
+        slots.reserve(capacity);
+        if (activeOrder.length < capacity) {
+            activeOrder = new Disaster[capacity];
+            activeOrderCount = 0;
+            activeOrderStale = true;
+        }
+    }
+
+    public int countActiveOnLiveTargets() {
+        return activeOnLiveTargets;
+    }
+
+    public ArrayList<Disaster> getActiveOn(Rescuable target) {
+        return activeByTarget.get(target);
+    }
+
+    public void update(Disaster disaster) {
+        if (disaster.isActive()) {
+            activate(disaster);
+        } else {
+            deactivate(disaster);
+        }
+    }
+
+    public void targetLivenessChanged(Rescuable target) {
+        ArrayList<Disaster> disasters = activeByTarget.get(target);
+        if (disasters == null) return;
+        activeOnLiveTargets += isLive(target) ? disasters.size() : -disasters.size();
+    }
+
+    public void deactivateAll(Rescuable target) {
+        ArrayList<Disaster> disasters = activeByTarget.remove(target);
+        if (disasters == null) return;
+        if (isLive(target)) activeOnLiveTargets -= disasters.size();
+        for (Disaster disaster : disasters) {
+            active.remove(disaster);
+            toArchive(disaster);
+        }
+        activeOrderStale = true;
+        for (Disaster disaster : disasters) {
+            disaster.setActive(false);
+        }
+    }
+
+    private void activate(Disaster disaster) {
+        if (!active.add(disaster)) return;
+        activeOrderStale = true;
+        fromArchive(disaster);
+        Rescuable target = disaster.getTarget();
+        ArrayList<Disaster> disasters = activeByTarget.get(target);
+        if (disasters == null) {
+            disasters = new ArrayList<>(2);
+            activeByTarget.put(target, disasters);
+            watch(target);
+        }
+        disasters.add(disaster);
+        if (isLive(target)) activeOnLiveTargets++;
+    }
+
+    private void deactivate(Disaster disaster) {
+        if (!active.remove(disaster)) return;
+        activeOrderStale = true;
+        Rescuable target = disaster.getTarget();
+        ArrayList<Disaster> disasters = activeByTarget.get(target);
+        disasters.remove(disaster);
+        if (disasters.isEmpty()) activeByTarget.remove(target);
+        if (isLive(target)) activeOnLiveTargets--;
+        toArchive(disaster);
+    }
+
+    private void toArchive(Disaster disaster) {
+        if (slots.get(disaster, -1) >= 0) return;
+        if (archived == archive.length) archive = Arrays.copyOf(archive, archived << 1);
+        slots.put(disaster, archived);
+        archive[archived++] = disaster;
+    }
+
+    private void fromArchive(Disaster disaster) {
+        int slot = slots.remove(disaster, -1);
+        if (slot < 0) return;
+        Disaster last = archive[--archived];
+        archive[archived] = null;
+        if (slot != archived) {
+            archive[slot] = last;
+            slots.put(last, slot);
+        }
+    }
+
+    private void watch(Rescuable target) {
+        if (target instanceof Citizen) {
+            Citizen citizen = (Citizen) target;
+            if (citizen.getStateListener() == null) citizen.setStateListener(targetListener);
+        } else if (target instanceof ResidentialBuilding) {
+            ResidentialBuilding building = (ResidentialBuilding) target;
+            if (building.getStateListener() == null) building.setStateListener(targetListener);
+        }
+    }
+
+    private static boolean isLive(Rescuable target) {
+        if (target instanceof ResidentialBuilding) {
+            return ((ResidentialBuilding) target).getStructuralIntegrity() != 0;
+        }
+        return !(target instanceof Citizen) || ((Citizen) target).getState() != CitizenState.DECEASED;
+    }
+}
@@ -0,0 +1,135 @@
+package simulation;
+
+import model.disasters.Disaster;
+import simulation.util.ListView;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+// The planned disasters as a timeline of buckets, one per start cycle and sorted by it, so that a cycle only
+// looks at the bucket due in it. Disasters whose start cycle passed before they could strike are never due, as
+// before; they wait in the overdue list until the schedule is cleared.
+public class DisasterSchedule {
+
+    private int[] cycles = new int[16];
+    private ArrayList<Disaster>[] buckets = newBuckets(16);
+    // Buckets head to tail - 1 are still pending.
+    private int head, tail;
+    private ArrayList<Disaster> overdue = new ArrayList<>();
+    private int size;
+    // Where the last lookup by index ended, so that walking the list in order does not restart at the head.
+    private int cursorBucket = -1, cursorStart;
+
+    private ListView<Disaster> list = new ListView<Disaster>() {
+        @Override
+        protected int count() {
+            return DisasterSchedule.this.size;
+        }
+
+        @Override
+        protected Disaster element(int index) {
+            return DisasterSchedule.this.get(index);
+        }
+
+        @Override
+        protected void append(Disaster disaster) {
+            DisasterSchedule.this.add(disaster);
+        }
+
+        @Override
+        protected void removeElements() {
+            DisasterSchedule.this.clear();
+        }
+    };
+
+    public void add(Disaster disaster) {
+        int cycle = disaster.getStartCycle();
+        int index = Arrays.binarySearch(cycles, head, tail, cycle);
+        if (index < 0) {
+            index = insertBucket(-index - 1, cycle);
+        }
+        buckets[index].add(disaster);
+        size++;
+        cursorBucket = -1;
+    }
+
+    public ArrayList<Disaster> pollDue(int currentCycle) {
+        while (head < tail && cycles[head] < currentCycle) {
+            overdue.addAll(buckets[head]);
+            buckets[head++] = null;
+            cursorBucket = -1;
+        }
+        ArrayList<Disaster> due = null;
+        if (head < tail && cycles[head] == currentCycle) {
+            due = buckets[head];
+            buckets[head++] = null;
+            size -= due.size();
+            cursorBucket = -1;
+        }
+        if (head == tail) head = tail = 0;
+        return due;
+    }
+
+    public int nextStartCycle() {
+        return head < tail ? cycles[head] : Integer.MAX_VALUE;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        Arrays.fill(buckets, head, tail, null);
+        head = tail = 0;
+        overdue.clear();
+        size = 0;
+        cursorBucket = -1;
+    }
+
+    // The overdue disasters first, then the pending ones by start cycle, each cycle in the order it was added.
+    public Disaster get(int index) {
+        if (index < overdue.size()) return overdue.get(index);
+        index -= overdue.size();
+        if (cursorBucket < head || index < cursorStart) {
+            cursorBucket = head;
+            cursorStart = 0;
+        }
+        while (index - cursorStart >= buckets[cursorBucket].size()) {
+            cursorStart += buckets[cursorBucket++].size();
+        }
+        return buckets[cursorBucket].get(index - cursorStart);
+    }
+
+    // The schedule as an ArrayList, for code that reaches the simulator's plannedDisasters field by reflection.
+    public ArrayList<Disaster> asList() {
+        return list;
+    }
+
+    private int insertBucket(int index, int cycle) {
+        if (tail == cycles.length) {
+            if (head > cycles.length >>> 1) {
+                int count = tail - head;
+                System.arraycopy(cycles, head, cycles, 0, count);
+                System.arraycopy(buckets, head, buckets, 0, count);
+                Arrays.fill(buckets, count, tail, null);
+                index -= head;
+                head = 0;
+                tail = count;
+            } else {
+                cycles = Arrays.copyOf(cycles, tail << 1);
+                buckets = Arrays.copyOf(buckets, tail << 1);
+            }
+        }
+        System.arraycopy(cycles, index, cycles, index + 1, tail - index);
+        System.arraycopy(buckets, index, buckets, index + 1, tail - index);
+        tail++;
+        cycles[index] = cycle;
+        buckets[index] = new ArrayList<>();
+        return index;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ArrayList<Disaster>[] newBuckets(int capacity) {
+        return new ArrayList[capacity];
+    }
+}
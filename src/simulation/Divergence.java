@@ -0,0 +1,52 @@
+package simulation;
+
+// The first difference a LockstepVerifier found between its reference and candidate simulators.
+public class Divergence {
+
+    private int cycle;
+    private String entity;
+    private int index;
+    private String field;
+    private String referenceValue, candidateValue;
+
+    public Divergence(int cycle, String entity, int index, String field, String referenceValue, String candidateValue) {
+        this.cycle = cycle;
+        this.entity = entity;
+        this.index = index;
+        this.field = field;
+        this.referenceValue = referenceValue;
+        this.candidateValue = candidateValue;
+    }
+
+    public int getCycle() {
+        return cycle;
+    }
+
+    // "building", "citizen", "unit" or "simulator".
+    public String getEntity() {
+        return entity;
+    }
+
+    // Position in the simulator's list of that entity, or -1 for the simulator itself.
+    public int getIndex() {
+        return index;
+    }
+
+    public String getField() {
+        return field;
+    }
+
+    public String getReferenceValue() {
+        return referenceValue;
+    }
+
+    public String getCandidateValue() {
+        return candidateValue;
+    }
+
+    @Override
+    public String toString() {
+        return "Cycle " + cycle + ": " + entity + (index >= 0 ? " " + index : "") + " differs in " + field +
+                " (reference " + referenceValue + ", candidate " + candidateValue + ")";
+    }
+}
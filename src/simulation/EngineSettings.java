@@ -0,0 +1,83 @@
+package simulation;
+
+public class EngineSettings {
+
+    private int parallelism = 1;
+    private boolean doubleBuffered;
+    private long seed = System.nanoTime();
+    private boolean zeroAllocation;
+    private boolean columnarStorage;
+    private String worldStore;
+    private boolean vectorizedHealth;
+    private boolean snapshots;
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public void setParallelism(int parallelism) {
+        if (parallelism < 1) throw new IllegalArgumentException("Parallelism must be at least 1: " + parallelism);
+        this.parallelism = parallelism;
+    }
+
+    public boolean isDoubleBuffered() {
+        return doubleBuffered;
+    }
+
+    public void setDoubleBuffered(boolean doubleBuffered) {
+        this.doubleBuffered = doubleBuffered;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    public boolean isZeroAllocation() {
+        return zeroAllocation;
+    }
+
+    public void setZeroAllocation(boolean zeroAllocation) {
+        this.zeroAllocation = zeroAllocation;
+    }
+
+    public boolean isColumnarStorage() {
+        return columnarStorage;
+    }
+
+    public void setColumnarStorage(boolean columnarStorage) {
+        this.columnarStorage = columnarStorage;
+    }
+
+    public String getWorldStore() {
+        return worldStore;
+    }
+
+    // A directory for a memory-mapped population store; implies columnar storage.
+    public void setWorldStore(String worldStore) {
+        this.worldStore = worldStore;
+    }
+
+    public boolean isVectorizedHealth() {
+        return vectorizedHealth;
+    }
+
+    // Steps citizen damage for the whole population at once, on SIMD lanes when the vector kernel is available;
+    // implies columnar storage.
+    public void setVectorizedHealth(boolean vectorizedHealth) {
+        this.vectorizedHealth = vectorizedHealth;
+    }
+
+    public boolean isSnapshots() {
+        return snapshots;
+    }
+
+    // Publishes an immutable snapshot of the world after every cycle for readers on other threads; every version
+    // allocates, so it cannot be combined with zero-allocation mode.
+    public void setSnapshots(boolean snapshots) {
+        this.snapshots = snapshots;
+    }
+}
@@ -0,0 +1,128 @@
+package simulation;
+
+import model.infrastructure.ResidentialBuilding;
+import model.people.Citizen;
+import model.units.Unit;
+import simulation.util.LongIntMap;
+import simulation.util.ObjectIntMap;
+
+import java.util.Arrays;
+
+public class EntityRegistry {
+
+    private static final int MISSING = -1;
+
+    private Citizen[] citizens = new Citizen[16];
+    private Unit[] units = new Unit[16];
+    private ResidentialBuilding[] buildings = new ResidentialBuilding[16];
+    private int citizenCount, unitCount, buildingCount;
+
+    private LongIntMap numericCitizenIDs = new LongIntMap();
+    private ObjectIntMap<String> otherCitizenIDs = new ObjectIntMap<>();
+    private LongIntMap numericUnitIDs = new LongIntMap();
+    private ObjectIntMap<String> otherUnitIDs = new ObjectIntMap<>();
+
+    public int registerCitizen(Citizen citizen) {
+        if (citizenCount == citizens.length) citizens = Arrays.copyOf(citizens, citizenCount << 1);
+        int id = citizenCount++;
+        citizens[id] = citizen;
+        citizen.setEntityId(id);
+        long numericID = citizen.getNumericID();
+        if (numericID == MISSING) numericID = parseNumericID(citizen.getNationalID());
+        if (numericID != MISSING) {
+            citizen.setNumericID(numericID);
+            if (!numericCitizenIDs.containsKey(numericID)) numericCitizenIDs.put(numericID, id);
+        } else {
+            putKey(numericCitizenIDs, otherCitizenIDs, citizen.getNationalID(), id);
+        }
+        return id;
+    }
+
+    public int registerUnit(Unit unit) {
+        if (unitCount == units.length) units = Arrays.copyOf(units, unitCount << 1);
+        int id = unitCount++;
+        units[id] = unit;
+        unit.setEntityId(id);
+        putKey(numericUnitIDs, otherUnitIDs, unit.getUnitID(), id);
+        return id;
+    }
+
+    public int registerBuilding(ResidentialBuilding building) {
+        if (buildingCount == buildings.length) buildings = Arrays.copyOf(buildings, buildingCount << 1);
+        int id = buildingCount++;
+        buildings[id] = building;
+        building.setEntityId(id);
+        return id;
+    }
+
+    public Citizen getCitizen(int id) {
+        return citizens[id];
+    }
+
+    public Unit getUnit(int id) {
+        return units[id];
+    }
+
+    public ResidentialBuilding getBuilding(int id) {
+        return buildings[id];
+    }
+
+    public int findCitizenId(String nationalID) {
+        return getKey(numericCitizenIDs, otherCitizenIDs, nationalID);
+    }
+
+    public int findUnitId(String unitID) {
+        return getKey(numericUnitIDs, otherUnitIDs, unitID);
+    }
+
+    public Citizen findCitizen(String nationalID) {
+        int id = findCitizenId(nationalID);
+        return id == MISSING ? null : citizens[id];
+    }
+
+    public Unit findUnit(String unitID) {
+        int id = findUnitId(unitID);
+        return id == MISSING ? null : units[id];
+    }
+
+    public int getCitizenCount() {
+        return citizenCount;
+    }
+
+    public int getUnitCount() {
+        return unitCount;
+    }
+
+    public int getBuildingCount() {
+        return buildingCount;
+    }
+
+    // A duplicate ID keeps pointing at the entity registered first, as the list scans it replaces did.
+    private static void putKey(LongIntMap numericIDs, ObjectIntMap<String> otherIDs, String key, int id) {
+        long numericKey = parseNumericID(key);
+        if (numericKey != MISSING) {
+            if (!numericIDs.containsKey(numericKey)) numericIDs.put(numericKey, id);
+        } else if (key != null && otherIDs.get(key, MISSING) == MISSING) {
+            otherIDs.put(key, id);
+        }
+    }
+
+    private static int getKey(LongIntMap numericIDs, ObjectIntMap<String> otherIDs, String key) {
+        long numericKey = parseNumericID(key);
+        if (numericKey != MISSING) return numericIDs.get(numericKey, MISSING);
+        return key == null ? MISSING : otherIDs.get(key, MISSING);
+    }
+
+    static long parseNumericID(String id) {
+        if (id == null) return MISSING;
+        int length = id.length();
+        if (length == 0 || length > 18 || (length > 1 && id.charAt(0) == '0')) return MISSING;
+        long value = 0;
+        for (int i = 0; i < length; i++) {
+            char c = id.charAt(i);
+            if (c < '0' || c > '9') return MISSING;
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+}
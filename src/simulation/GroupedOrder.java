@@ -0,0 +1,57 @@
+package simulation;
+
+import java.util.Arrays;
+
+// Collects a group number per item and sorts the items into the order and group ends PhaseExecutor.run
+// expects. Items keep their relative order inside a group.
+class GroupedOrder {
+
+    private int[] groups = new int[16];
+    private int[] order = new int[16];
+    private int[] groupEnds = new int[16];
+    private int size, groupCount;
+
+    void clear() {
+        size = 0;
+        groupCount = 0;
+    }
+
+    // Adds item number size() to the given group.
+    void add(int group) {
+        if (size == groups.length) {
+            groups = Arrays.copyOf(groups, size << 1);
+            order = Arrays.copyOf(order, size << 1);
+        }
+        if (group >= groupEnds.length) groupEnds = Arrays.copyOf(groupEnds, Math.max(groupEnds.length << 1, group + 1));
+        while (groupCount <= group) {
+            groupEnds[groupCount++] = 0;
+        }
+        groups[size++] = group;
+        groupEnds[group]++;
+    }
+
+    void sort() {
+        for (int g = 1; g < groupCount; g++) {
+            groupEnds[g] += groupEnds[g - 1];
+        }
+        for (int i = size - 1; i >= 0; i--) {
+            order[--groupEnds[groups[i]]] = i;
+        }
+        for (int g = 0; g < groupCount; g++) {
+            groupEnds[g] = g + 1 < groupCount ? groupEnds[g + 1] : size;
+        }
+    }
+
+    void run(PhaseExecutor executor, PhaseExecutor.Phase phase) {
+        sort();
+        executor.run(phase, size, order, groupEnds, groupCount);
+    }
+
+    int size() {
+        return size;
+    }
+
+    int getGroupCount() {
+        return groupCount;
+    }
+}
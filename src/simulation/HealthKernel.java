@@ -0,0 +1,37 @@
+package simulation;
+
+import model.people.Citizen;
+import model.people.CitizenState;
+
+// Steps citizen damage over whole columns. This class is the scalar version; when the optional
+// VectorHealthKernel is on the class path and jdk.incubator.vector is available, load() returns that instead.
+public class HealthKernel {
+
+    static final byte DECEASED = (byte) CitizenState.DECEASED.ordinal();
+
+    private static final String VECTOR_KERNEL = "simulation.VectorHealthKernel";
+
+    public static HealthKernel load() {
+        try {
+            return (HealthKernel) Class.forName(VECTOR_KERNEL).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return new HealthKernel();
+        }
+    }
+
+    public String getName() {
+        return "scalar";
+    }
+
+    // Leaves hp at max(hp - damage, 0) for every row that is not deceased; deaths are settled by the caller.
+    public void step(int[] hp, int[] bloodLoss, int[] toxicity, byte[] states, int rows) {
+        step(hp, bloodLoss, toxicity, states, 0, rows);
+    }
+
+    static void step(int[] hp, int[] bloodLoss, int[] toxicity, byte[] states, int from, int to) {
+        for (int row = from; row < to; row++) {
+            if (states[row] == DECEASED) continue;
+            hp[row] = Math.max(hp[row] - Citizen.damageFrom(bloodLoss[row]) - Citizen.damageFrom(toxicity[row]), 0);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package simulation;
+
+import model.disasters.Disaster;
+import model.infrastructure.ResidentialBuilding;
+
+final class InteractionRules {
+
+    static final int STRIKE = 0;
+    static final int COLLAPSE = 1;
+    static final int DESTROY = 2;
+
+    private static final int NO_MEASURE = 0;
+    private static final int GAS_LEVEL = 1;
+
+    private static final int LEVELS = 101;
+    private static final int PAIRS = TypeRegistry.TYPE_COUNT * TypeRegistry.TYPE_COUNT;
+
+    private static final byte[] MEASURES = new byte[PAIRS];
+    private static final byte[] OUTCOMES = new byte[PAIRS * LEVELS];
+
+    static {
+        // current disaster, incoming disaster, measured level, then (lowest level, outcome) bands in ascending order
+        rule(TypeRegistry.GAS_LEAK, TypeRegistry.FIRE, GAS_LEVEL,
+                0, STRIKE,
+                1, COLLAPSE,
+                70, DESTROY);
+        rule(TypeRegistry.FIRE, TypeRegistry.GAS_LEAK, NO_MEASURE,
+                0, COLLAPSE);
+    }
+
+    private InteractionRules() {
+    }
+
+    private static void rule(int current, int incoming, int measure, int... bands) {
+        if (bands.length == 0 || bands.length % 2 != 0 || bands[0] != 0) {
+            throw new IllegalArgumentException("Bands must be (level, outcome) pairs starting at level 0");
+        }
+        int pair = current * TypeRegistry.TYPE_COUNT + incoming;
+        MEASURES[pair] = (byte) measure;
+        for (int i = 0; i < bands.length; i += 2) {
+            int to = i + 2 < bands.length ? bands[i + 2] : LEVELS;
+            if (to <= bands[i] || to > LEVELS) throw new IllegalArgumentException("Bands must be ascending within 0-100");
+            for (int level = bands[i]; level < to; level++) {
+                OUTCOMES[pair * LEVELS + level] = (byte) bands[i + 1];
+            }
+        }
+    }
+
+    static int resolve(ResidentialBuilding building, Disaster incoming) {
+        int pair = TypeRegistry.typeOf(building.getDisaster()) * TypeRegistry.TYPE_COUNT + TypeRegistry.typeOf(incoming);
+        return OUTCOMES[pair * LEVELS + level(MEASURES[pair], building)];
+    }
+
+    private static int level(int measure, ResidentialBuilding building) {
+        if (measure != GAS_LEVEL) return 0;
+        int level = building.getGasLevel();
+        return level < 0 ? 0 : level >= LEVELS ? LEVELS - 1 : level;
+    }
+}
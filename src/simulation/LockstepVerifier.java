@@ -0,0 +1,202 @@
+package simulation;
+
+import exceptions.DisasterException;
+import exceptions.UnitException;
+import model.events.SOSListener;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Arrays;
+
+// Runs a candidate engine configuration next to the plain sequential engine on the same scenario and seed,
+// feeds both the same commands, and compares the whole state of the two after every step. Each step returns
+// the first divergence found, or null while the two still agree. Dispatches only compare their outcome; the
+// state they change is compared with everything else at the end of the cycle.
+public class LockstepVerifier implements Closeable {
+
+    private Scenario scenario;
+    private EngineSettings candidateSettings;
+    private Simulator reference, candidate;
+    private Recorder referenceCalls = new Recorder();
+    private Recorder candidateCalls = new Recorder();
+    private StateDigest referenceDigest = new StateDigest();
+    private StateDigest candidateDigest = new StateDigest();
+    private int cycle;
+
+    public LockstepVerifier(Scenario scenario, EngineSettings candidateSettings) throws Exception {
+        this(scenario, plain(candidateSettings.getSeed()), candidateSettings);
+    }
+
+    // Compares with another reference configuration, for a candidate that only matches a variant of the plain
+    // engine, such as the double-buffered one.
+    public LockstepVerifier(Scenario scenario, EngineSettings referenceSettings, EngineSettings candidateSettings)
+            throws Exception {
+        this.scenario = scenario;
+        this.candidateSettings = candidateSettings;
+        reference = new Simulator(referenceCalls, scenario, referenceSettings);
+        try {
+            candidate = new Simulator(candidateCalls, scenario, candidateSettings);
+        } catch (Exception e) {
+            reference.close();
+            throw e;
+        }
+    }
+
+    private static EngineSettings plain(long seed) {
+        EngineSettings settings = new EngineSettings();
+        settings.setSeed(seed);
+        return settings;
+    }
+
+    public Simulator getReference() {
+        return reference;
+    }
+
+    public Simulator getCandidate() {
+        return candidate;
+    }
+
+    public int getCycle() {
+        return cycle;
+    }
+
+    // Closes the candidate and opens it again with the same scenario and settings, which for a candidate with a
+    // world store resumes whatever it saved last.
+    public void reopenCandidate() throws Exception {
+        candidate.close();
+        candidate = new Simulator(candidateCalls, scenario, candidateSettings);
+    }
+
+    public Divergence dispatchToCitizen(String unitID, String nationalID) {
+        UnitException referenceError = null, candidateError = null;
+        try {
+            reference.dispatchToCitizen(unitID, nationalID);
+        } catch (UnitException e) {
+            referenceError = e;
+        }
+        try {
+            candidate.dispatchToCitizen(unitID, nationalID);
+        } catch (UnitException e) {
+            candidateError = e;
+        }
+        return compareErrors("dispatch", referenceError, candidateError);
+    }
+
+    public Divergence dispatchToBuilding(String unitID, int x, int y) {
+        UnitException referenceError = null, candidateError = null;
+        try {
+            reference.dispatchToBuilding(unitID, x, y);
+        } catch (UnitException e) {
+            referenceError = e;
+        }
+        try {
+            candidate.dispatchToBuilding(unitID, x, y);
+        } catch (UnitException e) {
+            candidateError = e;
+        }
+        return compareErrors("dispatch", referenceError, candidateError);
+    }
+
+    public Divergence nextCycle() {
+        cycle++;
+        DisasterException referenceError = null, candidateError = null;
+        try {
+            reference.nextCycle();
+        } catch (DisasterException e) {
+            referenceError = e;
+        }
+        try {
+            candidate.nextCycle();
+        } catch (DisasterException e) {
+            candidateError = e;
+        }
+        Divergence divergence = compareErrors("disaster", referenceError, candidateError);
+        return divergence != null ? divergence : compare();
+    }
+
+    // The candidate jumps over its quiet cycles while the reference steps through them one by one.
+    public Divergence skipQuietCycles(int maxCycles) {
+        int skipped = candidate.skipQuietCycles(maxCycles);
+        for (int i = 0; i < skipped; i++) {
+            try {
+                reference.nextCycle();
+            } catch (DisasterException e) {
+                return new Divergence(cycle + i + 1, "simulator", -1, "disaster", describe(e), "skipped");
+            }
+        }
+        cycle += skipped;
+        return compare();
+    }
+
+    public Divergence compare() {
+        Divergence divergence = compareCalls();
+        if (divergence != null) return divergence;
+        return compare(candidate);
+    }
+
+    // Compares the reference with a simulator stepped elsewhere, such as one worker of a cluster.
+    public Divergence compare(Simulator other) {
+        referenceDigest.capture(reference);
+        candidateDigest.capture(other);
+        return referenceDigest.compare(candidateDigest, reference, other, cycle);
+    }
+
+    // SOS calls since the last comparison, in the order they were made.
+    private Divergence compareCalls() {
+        int count = Math.max(referenceCalls.getCount(), candidateCalls.getCount());
+        for (int i = 0; i < count; i++) {
+            String expected = referenceCalls.describe(i);
+            String actual = candidateCalls.describe(i);
+            if (!expected.equals(actual)) {
+                return new Divergence(cycle, "simulator", -1, "sosCall " + i, expected, actual);
+            }
+        }
+        referenceCalls.clear();
+        candidateCalls.clear();
+        return null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            candidate.close();
+        } finally {
+            reference.close();
+        }
+    }
+
+    private Divergence compareErrors(String field, Exception referenceError, Exception candidateError) {
+        String expected = describe(referenceError);
+        String actual = describe(candidateError);
+        return expected.equals(actual) ? null : new Divergence(cycle, "simulator", -1, field, expected, actual);
+    }
+
+    private static String describe(Exception e) {
+        return e == null ? "none" : e.getClass().getSimpleName() + ": " + e.getMessage();
+    }
+
+    private static class Recorder implements SOSListener {
+
+        private long[] callers = new long[16];
+        private int count;
+
+        @Override
+        public void receiveSOSCall(Rescuable r) {
+            if (count == callers.length) callers = Arrays.copyOf(callers, count << 1);
+            callers[count++] = r.getLocation().getPacked();
+        }
+
+        int getCount() {
+            return count;
+        }
+
+        String describe(int call) {
+            if (call >= count) return "none";
+            return "(" + Coordinates.x(callers[call]) + "," + Coordinates.y(callers[call]) + ")";
+        }
+
+        void clear() {
+            count = 0;
+        }
+    }
+}
@@ -0,0 +1,496 @@
+package simulation;
+
+import model.disasters.Disaster;
+import model.infrastructure.ResidentialBuilding;
+import model.people.Citizen;
+import model.people.CitizenState;
+import model.units.PoliceUnit;
+import model.units.Unit;
+import model.units.UnitState;
+import simulation.util.MappedRecords;
+import simulation.util.Worklist;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+
+// The citizen and building columns mapped from files, written as the world steps, plus the units and disasters
+// written whenever the world is saved. A store can be reopened in the cycle it was last saved in; entities are
+// then rebuilt from their rows, and their names and numeric IDs are only read from the rows when asked for.
+public class MappedPopulationStore extends PopulationStore implements Closeable {
+
+    private static final CitizenState[] STATES = CitizenState.values();
+    private static final UnitState[] UNIT_STATES = UnitState.values();
+    private static final int TEXT_WIDTH = 32;
+
+    private static final int CITIZEN_X = 0;
+    private static final int CITIZEN_Y = 4;
+    private static final int AGE = 8;
+    private static final int HP = 12;
+    private static final int BLOOD_LOSS = 16;
+    private static final int TOXICITY = 20;
+    private static final int STATE = 24;
+    private static final int DEAD = 25;
+    private static final int NATIONAL_ID = 28;
+    private static final int NAME = NATIONAL_ID + TEXT_WIDTH;
+    // A numeric national ID is kept as its number and leaves the text empty.
+    private static final int NUMERIC_ID = NAME + TEXT_WIDTH + 4;
+    // The rest of a citizen's row is only written when the world is saved.
+    private static final int CARRIER = NUMERIC_ID + 8;
+    private static final int CITIZEN_DISASTER = CARRIER + 4;
+    private static final int OCCUPANT = CITIZEN_DISASTER + 4;
+    // Position in the simulator's damage worklist, or -1; stepping order decides the order of strikes.
+    private static final int CITIZEN_STEP_ORDER = OCCUPANT + 4;
+    private static final int CITIZEN_RECORD = CITIZEN_STEP_ORDER + 4;
+
+    private static final int BUILDING_X = 0;
+    private static final int BUILDING_Y = 4;
+    private static final int STRUCTURAL_INTEGRITY = 8;
+    private static final int FIRE_DAMAGE = 12;
+    private static final int FOUNDATION_DAMAGE = 16;
+    private static final int GAS_LEVEL = 20;
+    private static final int COLLAPSED = 24;
+    private static final int BUILDING_DISASTER = 28;
+    private static final int RANDOM_STATE = 32;
+    private static final int BUILDING_STEP_ORDER = 40;
+    private static final int BUILDING_RECORD = 48;
+
+    private static final int UNIT_X = 0;
+    private static final int UNIT_Y = 4;
+    private static final int UNIT_STATE = 8;
+    private static final int TARGET_TYPE = 9;
+    private static final int TARGET = 12;
+    private static final int DISTANCE_TO_TARGET = 16;
+    private static final int DISTANCE_TO_BASE = 20;
+    private static final int UNIT_RECORD = 24;
+
+    private static final int DISASTER_TYPE = 0;
+    private static final int START_CYCLE = 4;
+    private static final int DISASTER_TARGET = 8;
+    private static final int ACTIVE = 12;
+    private static final int PLANNED = 13;
+    private static final int DISASTER_RECORD = 16;
+
+    private MappedRecords citizenRecords;
+    private MappedRecords buildingRecords;
+    private MappedRecords unitRecords;
+    // Its tag is the cycle the world was last saved in plus one; 0 if it never was.
+    private MappedRecords disasterRecords;
+    private int savedCitizens, savedBuildings;
+
+    public MappedPopulationStore(String directory) throws IOException {
+        File folder = new File(directory);
+        if (!folder.isDirectory() && !folder.mkdirs()) throw new IOException("Cannot create world store " + directory);
+        buildingRecords = new MappedRecords(new File(folder, "buildings.dat"), BUILDING_RECORD);
+        try {
+            citizenRecords = new MappedRecords(new File(folder, "citizens.dat"), CITIZEN_RECORD);
+            unitRecords = new MappedRecords(new File(folder, "units.dat"), UNIT_RECORD);
+            disasterRecords = new MappedRecords(new File(folder, "disasters.dat"), DISASTER_RECORD);
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+        savedBuildings = buildingRecords.getRows();
+        savedCitizens = citizenRecords.getRows();
+    }
+
+    public int getSavedCitizens() {
+        return savedCitizens;
+    }
+
+    public int getSavedBuildings() {
+        return savedBuildings;
+    }
+
+    // The cycle the rows were last written in.
+    public int getCycle() {
+        return buildingRecords.getTag();
+    }
+
+    public void setCycle(int cycle) {
+        buildingRecords.setTag(cycle);
+    }
+
+    public int getCitizenX(int row) {
+        return citizenRecords.getInt(row, CITIZEN_X);
+    }
+
+    public int getCitizenY(int row) {
+        return citizenRecords.getInt(row, CITIZEN_Y);
+    }
+
+    public int getAge(int row) {
+        return citizenRecords.getInt(row, AGE);
+    }
+
+    public long getNumericID(int row) {
+        return citizenRecords.getLong(row, NUMERIC_ID);
+    }
+
+    public String getNationalID(int row) {
+        long numericID = getNumericID(row);
+        return numericID >= 0 ? Long.toString(numericID) : citizenRecords.getString(row, NATIONAL_ID, TEXT_WIDTH);
+    }
+
+    @Override
+    public String getName(int row) {
+        return citizenRecords.getString(row, NAME, TEXT_WIDTH);
+    }
+
+    public int getBuildingX(int row) {
+        return buildingRecords.getInt(row, BUILDING_X);
+    }
+
+    public int getBuildingY(int row) {
+        return buildingRecords.getInt(row, BUILDING_Y);
+    }
+
+    // Binds a citizen rebuilt from a saved row; its state stays whatever the file holds.
+    public void bind(Citizen citizen) {
+        adoptCitizenRow(citizen.getEntityId());
+        citizen.setStore(this);
+    }
+
+    public void bind(ResidentialBuilding building) {
+        adoptBuildingRow(building.getEntityId());
+        building.setStore(this);
+    }
+
+    public void moveCitizen(Citizen citizen) {
+        citizenRecords.putInt(citizen.getEntityId(), CITIZEN_X, citizen.getLocation().getX());
+        citizenRecords.putInt(citizen.getEntityId(), CITIZEN_Y, citizen.getLocation().getY());
+    }
+
+    public boolean isSaved() {
+        return disasterRecords.getTag() > 0;
+    }
+
+    public int getSavedCycle() {
+        return disasterRecords.getTag() - 1;
+    }
+
+    // Writes what the columns do not hold: where units are and what they do, every disaster that struck or is
+    // still planned, and each entity's last disaster, carrier, occupancy, place in the damage worklists and
+    // random stream. Disasters are written struck first, in the order given; rows refer to them by that position.
+    public void save(int cycle, ArrayList<ResidentialBuilding> buildings, ArrayList<Citizen> citizens,
+                     ArrayList<Unit> units, ArrayList<Disaster> struck, ArrayList<Disaster> planned,
+                     Worklist<ResidentialBuilding> damagedBuildings, Worklist<Citizen> damagedCitizens) {
+        for (Citizen citizen : citizens) {
+            if (citizen.getStore() != this) continue;
+            int row = citizen.getEntityId();
+            citizenRecords.putInt(row, CARRIER, -1);
+            citizenRecords.putInt(row, CITIZEN_DISASTER, -1);
+            citizenRecords.putByte(row, OCCUPANT, (byte) 0);
+            citizenRecords.putInt(row, CITIZEN_STEP_ORDER, -1);
+        }
+        for (ResidentialBuilding building : buildings) {
+            if (building.getStore() != this) continue;
+            int row = building.getEntityId();
+            buildingRecords.putInt(row, BUILDING_DISASTER, -1);
+            buildingRecords.putLong(row, RANDOM_STATE, building.getRandomStream().getState());
+            buildingRecords.putInt(row, BUILDING_STEP_ORDER, -1);
+            for (Citizen citizen : building.getOccupants()) {
+                if (citizen.getStore() == this) citizenRecords.putByte(citizen.getEntityId(), OCCUPANT, (byte) 1);
+            }
+        }
+        for (int i = 0; i < damagedBuildings.size(); i++) {
+            ResidentialBuilding building = damagedBuildings.get(i);
+            if (building.getStore() == this) buildingRecords.putInt(building.getEntityId(), BUILDING_STEP_ORDER, i);
+        }
+        for (int i = 0; i < damagedCitizens.size(); i++) {
+            Citizen citizen = damagedCitizens.get(i);
+            if (citizen.getStore() == this) citizenRecords.putInt(citizen.getEntityId(), CITIZEN_STEP_ORDER, i);
+        }
+
+        unitRecords.ensureRows(units.size());
+        unitRecords.truncateRows(units.size());
+        for (int row = 0; row < units.size(); row++) {
+            Unit unit = units.get(row);
+            unitRecords.putInt(row, UNIT_X, unit.getLocation().getX());
+            unitRecords.putInt(row, UNIT_Y, unit.getLocation().getY());
+            unitRecords.putByte(row, UNIT_STATE, (byte) unit.getState().ordinal());
+            Rescuable target = unit.getTarget();
+            unitRecords.putByte(row, TARGET_TYPE, (byte) (target != null ? TypeRegistry.typeOf(target) : TypeRegistry.UNKNOWN));
+            unitRecords.putInt(row, TARGET, target != null ? entityId(target) : -1);
+            unitRecords.putInt(row, DISTANCE_TO_TARGET, unit.getDistanceToTarget());
+            if (unit instanceof PoliceUnit) {
+                PoliceUnit policeUnit = (PoliceUnit) unit;
+                unitRecords.putInt(row, DISTANCE_TO_BASE, policeUnit.getDistanceToBase());
+                for (Citizen passenger : policeUnit.getPassengers()) {
+                    if (passenger.getStore() == this) citizenRecords.putInt(passenger.getEntityId(), CARRIER, row);
+                }
+            }
+        }
+
+        int count = struck.size() + planned.size();
+        disasterRecords.ensureRows(count);
+        disasterRecords.truncateRows(count);
+        for (int row = 0; row < count; row++) {
+            Disaster disaster = row < struck.size() ? struck.get(row) : planned.get(row - struck.size());
+            Rescuable target = disaster.getTarget();
+            disasterRecords.putInt(row, DISASTER_TYPE, TypeRegistry.typeOf(disaster));
+            disasterRecords.putInt(row, START_CYCLE, disaster.getStartCycle());
+            disasterRecords.putInt(row, DISASTER_TARGET, entityId(target));
+            disasterRecords.putByte(row, ACTIVE, (byte) (disaster.isActive() ? 1 : 0));
+            disasterRecords.putByte(row, PLANNED, (byte) (row < struck.size() ? 0 : 1));
+            if (row >= struck.size()) continue;
+            if (target instanceof ResidentialBuilding) {
+                ResidentialBuilding building = (ResidentialBuilding) target;
+                if (building.getStore() == this && building.getDisaster() == disaster) {
+                    buildingRecords.putInt(building.getEntityId(), BUILDING_DISASTER, row);
+                }
+            } else {
+                Citizen citizen = (Citizen) target;
+                if (citizen.getStore() == this && citizen.getDisaster() == disaster) {
+                    citizenRecords.putInt(citizen.getEntityId(), CITIZEN_DISASTER, row);
+                }
+            }
+        }
+        setCycle(cycle);
+        disasterRecords.setTag(cycle + 1);
+        force();
+    }
+
+    public boolean isOccupant(int row) {
+        return citizenRecords.getByte(row, OCCUPANT) != 0;
+    }
+
+    public int getCarrier(int row) {
+        return citizenRecords.getInt(row, CARRIER);
+    }
+
+    public int getCitizenDisaster(int row) {
+        return citizenRecords.getInt(row, CITIZEN_DISASTER);
+    }
+
+    public int getBuildingDisaster(int row) {
+        return buildingRecords.getInt(row, BUILDING_DISASTER);
+    }
+
+    public int getStepOrder(Citizen citizen) {
+        return citizenRecords.getInt(citizen.getEntityId(), CITIZEN_STEP_ORDER);
+    }
+
+    public int getStepOrder(ResidentialBuilding building) {
+        return buildingRecords.getInt(building.getEntityId(), BUILDING_STEP_ORDER);
+    }
+
+    public long getRandomState(int row) {
+        return buildingRecords.getLong(row, RANDOM_STATE);
+    }
+
+    public int getSavedUnits() {
+        return unitRecords.getRows();
+    }
+
+    public int getUnitX(int row) {
+        return unitRecords.getInt(row, UNIT_X);
+    }
+
+    public int getUnitY(int row) {
+        return unitRecords.getInt(row, UNIT_Y);
+    }
+
+    public UnitState getUnitState(int row) {
+        return UNIT_STATES[unitRecords.getByte(row, UNIT_STATE)];
+    }
+
+    // A TypeRegistry code; UNKNOWN for a unit without a target.
+    public int getTargetType(int row) {
+        return unitRecords.getByte(row, TARGET_TYPE);
+    }
+
+    public int getTarget(int row) {
+        return unitRecords.getInt(row, TARGET);
+    }
+
+    public int getDistanceToTarget(int row) {
+        return unitRecords.getInt(row, DISTANCE_TO_TARGET);
+    }
+
+    public int getDistanceToBase(int row) {
+        return unitRecords.getInt(row, DISTANCE_TO_BASE);
+    }
+
+    public int getSavedDisasters() {
+        return disasterRecords.getRows();
+    }
+
+    // A TypeRegistry code.
+    public int getDisasterType(int row) {
+        return disasterRecords.getInt(row, DISASTER_TYPE);
+    }
+
+    public int getStartCycle(int row) {
+        return disasterRecords.getInt(row, START_CYCLE);
+    }
+
+    public int getDisasterTarget(int row) {
+        return disasterRecords.getInt(row, DISASTER_TARGET);
+    }
+
+    public boolean isActive(int row) {
+        return disasterRecords.getByte(row, ACTIVE) != 0;
+    }
+
+    public boolean isPlanned(int row) {
+        return disasterRecords.getByte(row, PLANNED) != 0;
+    }
+
+    public void force() {
+        buildingRecords.force();
+        citizenRecords.force();
+        unitRecords.force();
+        disasterRecords.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (buildingRecords != null) buildingRecords.close();
+        } finally {
+            try {
+                if (citizenRecords != null) citizenRecords.close();
+            } finally {
+                try {
+                    if (unitRecords != null) unitRecords.close();
+                } finally {
+                    if (disasterRecords != null) disasterRecords.close();
+                }
+            }
+        }
+    }
+
+    private static int entityId(Rescuable target) {
+        return target instanceof Citizen ? ((Citizen) target).getEntityId() : ((ResidentialBuilding) target).getEntityId();
+    }
+
+    @Override
+    protected void reserveCitizenRows(int rows) {
+        citizenRecords.ensureRows(rows);
+    }
+
+    @Override
+    protected void reserveBuildingRows(int rows) {
+        buildingRecords.ensureRows(rows);
+    }
+
+    @Override
+    protected void storeCitizen(int row, Citizen citizen) {
+        long numericID = citizen.getNumericID();
+        citizenRecords.putLong(row, NUMERIC_ID, numericID);
+        citizenRecords.putString(row, NATIONAL_ID, TEXT_WIDTH, numericID >= 0 ? null : citizen.getNationalID());
+        citizenRecords.putString(row, NAME, TEXT_WIDTH, citizen.getName());
+        citizenRecords.putInt(row, AGE, citizen.getAge());
+        moveCitizen(citizen);
+        super.storeCitizen(row, citizen);
+    }
+
+    @Override
+    protected void storeBuilding(int row, ResidentialBuilding building) {
+        buildingRecords.putInt(row, BUILDING_X, building.getLocation().getX());
+        buildingRecords.putInt(row, BUILDING_Y, building.getLocation().getY());
+        super.storeBuilding(row, building);
+    }
+
+    @Override
+    public int getHp(int row) {
+        return citizenRecords.getInt(row, HP);
+    }
+
+    @Override
+    public void setHp(int row, int value) {
+        citizenRecords.putInt(row, HP, value);
+    }
+
+    @Override
+    public int getBloodLoss(int row) {
+        return citizenRecords.getInt(row, BLOOD_LOSS);
+    }
+
+    @Override
+    public void setBloodLoss(int row, int value) {
+        citizenRecords.putInt(row, BLOOD_LOSS, value);
+    }
+
+    @Override
+    public int getToxicity(int row) {
+        return citizenRecords.getInt(row, TOXICITY);
+    }
+
+    @Override
+    public void setToxicity(int row, int value) {
+        citizenRecords.putInt(row, TOXICITY, value);
+    }
+
+    @Override
+    public CitizenState getState(int row) {
+        return STATES[citizenRecords.getByte(row, STATE)];
+    }
+
+    @Override
+    public void setState(int row, CitizenState state) {
+        citizenRecords.putByte(row, STATE, (byte) state.ordinal());
+    }
+
+    @Override
+    public boolean isDead(int row) {
+        return citizenRecords.getByte(row, DEAD) != 0;
+    }
+
+    @Override
+    public void setDead(int row, boolean value) {
+        citizenRecords.putByte(row, DEAD, (byte) (value ? 1 : 0));
+    }
+
+    @Override
+    public int getStructuralIntegrity(int row) {
+        return buildingRecords.getInt(row, STRUCTURAL_INTEGRITY);
+    }
+
+    @Override
+    public void setStructuralIntegrity(int row, int value) {
+        buildingRecords.putInt(row, STRUCTURAL_INTEGRITY, value);
+    }
+
+    @Override
+    public int getFireDamage(int row) {
+        return buildingRecords.getInt(row, FIRE_DAMAGE);
+    }
+
+    @Override
+    public void setFireDamage(int row, int value) {
+        buildingRecords.putInt(row, FIRE_DAMAGE, value);
+    }
+
+    @Override
+    public int getFoundationDamage(int row) {
+        return buildingRecords.getInt(row, FOUNDATION_DAMAGE);
+    }
+
+    @Override
+    public void setFoundationDamage(int row, int value) {
+        buildingRecords.putInt(row, FOUNDATION_DAMAGE, value);
+    }
+
+    @Override
+    public int getGasLevel(int row) {
+        return buildingRecords.getInt(row, GAS_LEVEL);
+    }
+
+    @Override
+    public void setGasLevel(int row, int value) {
+        buildingRecords.putInt(row, GAS_LEVEL, value);
+    }
+
+    @Override
+    public boolean isCollapsed(int row) {
+        return buildingRecords.getByte(row, COLLAPSED) != 0;
+    }
+
+    @Override
+    public void setCollapsed(int row, boolean value) {
+        buildingRecords.putByte(row, COLLAPSED, (byte) (value ? 1 : 0));
+    }
+}
@@ -0,0 +1,146 @@
+package simulation;
+
+import model.infrastructure.ResidentialBuilding;
+import model.people.Citizen;
+
+// Closed-form forecasts of how many cycles an untreated entity has left, assuming the disasters that are
+// active on it now keep ticking and nothing new strikes. Each forecast walks a bounded number of
+// constant-rate segments (damage bands, thresholds), so it costs O(1) regardless of the horizon.
+public class OutcomePredictor {
+
+    public static final int NEVER = Integer.MAX_VALUE;
+
+    private static final long UNBOUNDED = Long.MAX_VALUE;
+    private static final int MAX_FOUNDATION_LOSS = 10;
+
+    private OutcomePredictor() {
+    }
+
+    // Cycles until the citizen is DECEASED, counting the next cycle as 1; 0 if it already is.
+    public static int cyclesUntilDeath(int hp, int bloodLoss, int toxicity, int bloodLossPerCycle, int toxicityPerCycle) {
+        if (hp <= 0 || bloodLoss >= 100 || toxicity >= 100) return 0;
+        long health = hp;
+        long cycle = 1;
+        while (true) {
+            long blood = level(bloodLoss, bloodLossPerCycle, cycle);
+            long toxin = level(toxicity, toxicityPerCycle, cycle);
+            if (blood >= 100 || toxin >= 100) return toCycles(cycle);
+            int rate = Citizen.damageFrom((int) blood) + Citizen.damageFrom((int) toxin);
+            long end = Math.min(nextCitizenBand(bloodLoss, bloodLossPerCycle, cycle),
+                    nextCitizenBand(toxicity, toxicityPerCycle, cycle));
+            if (rate > 0) {
+                long dying = cycle + ceilDiv(health, rate) - 1;
+                if (dying < end) return toCycles(dying);
+                health -= rate * (end - cycle);
+            }
+            if (end == UNBOUNDED) return NEVER;
+            cycle = end;
+        }
+    }
+
+    // Cycles until structural integrity reaches 0; 0 if it already has. Foundation decay is random in the
+    // engine, so it is taken at its maximum and the result is the earliest cycle the building can fall.
+    // A fire that reaches 100 turns into a Collapse on the following cycle, exactly as the simulator does.
+    public static int cyclesUntilCollapse(int integrity, int fireDamage, int foundationDamage, int firePerCycle,
+                                          int foundationPerCycle) {
+        if (integrity <= 0 || foundationDamage >= 100) return 0;
+        long health = integrity;
+        long base = 0;
+        long fire = fireDamage, fireRate = firePerCycle;
+        long foundation = foundationDamage, foundationRate = foundationPerCycle;
+        long cycle = 1;
+        while (true) {
+            if (level(fire, fireRate, cycle - 1 - base) >= 100) {
+                foundation = foundation + foundationRate * (cycle - 1 - base) + 10;
+                if (foundation >= 100) return toCycles(cycle);
+                health -= MAX_FOUNDATION_LOSS;
+                if (health <= 0) return toCycles(cycle);
+                base = cycle;
+                fire = 0;
+                fireRate = 0;
+                foundationRate = 10;
+                cycle++;
+                continue;
+            }
+            long j = cycle - base;
+            long currentFire = level(fire, fireRate, j);
+            long currentFoundation = foundation + foundationRate * j;
+            if (currentFoundation >= 100) return toCycles(cycle);
+            int rate = ResidentialBuilding.fireLoss((int) currentFire)
+                    + (currentFoundation > 0 ? MAX_FOUNDATION_LOSS : 0);
+            long end = nextFireBand(fire, fireRate, j);
+            if (end != UNBOUNDED) end += base;
+            if (foundationRate > 0) end = Math.min(end, base + ceilDiv(100 - foundation, foundationRate));
+            if (rate > 0) {
+                long falling = cycle + ceilDiv(health, rate) - 1;
+                if (falling < end) return toCycles(falling);
+                health -= rate * (end - cycle);
+            }
+            if (end == UNBOUNDED) return NEVER;
+            cycle = end;
+        }
+    }
+
+    // Cycles until a gas leak reaches 100 and kills the occupants. A fire turning into a Collapse first
+    // switches the leak off, in which case the gas never gets there.
+    public static int cyclesUntilLethalGas(int gasLevel, int gasPerCycle, int fireDamage, int firePerCycle) {
+        if (gasLevel >= 100) return 0;
+        if (gasPerCycle <= 0) return NEVER;
+        long lethal = ceilDiv(100 - gasLevel, gasPerCycle);
+        long conversion = fireDamage >= 100 ? 1 : firePerCycle > 0 ? ceilDiv(100 - fireDamage, firePerCycle) + 1 : UNBOUNDED;
+        return lethal < conversion ? toCycles(lethal) : NEVER;
+    }
+
+    // Hp a citizen loses over a run of cycles to one level rising by perCycle, where cycle m of the run sees the
+    // level after m ticks, for m from first to first + cycles - 1. Counts the cycles in each damage band.
+    public static long citizenDamageOver(int level, int perCycle, int first, int cycles) {
+        return lossOver(level, perCycle, first, cycles, Citizen.damageFrom(1), Citizen.damageFrom(30), Citizen.damageFrom(70));
+    }
+
+    // Integrity a building loses to its fire over a run of cycles, counted the same way.
+    public static long fireLossOver(int fireDamage, int perCycle, int first, int cycles) {
+        return lossOver(fireDamage, perCycle, first, cycles, ResidentialBuilding.fireLoss(1), ResidentialBuilding.fireLoss(30),
+                ResidentialBuilding.fireLoss(70));
+    }
+
+    private static long lossOver(long level, long perCycle, long first, long cycles, long low, long middle, long high) {
+        long none = countBelow(level, perCycle, first, cycles, 1);
+        long belowMiddle = countBelow(level, perCycle, first, cycles, 30);
+        long belowHigh = countBelow(level, perCycle, first, cycles, 70);
+        return low * (belowMiddle - none) + middle * (belowHigh - belowMiddle) + high * (cycles - belowHigh);
+    }
+
+    private static long countBelow(long level, long perCycle, long first, long cycles, long threshold) {
+        if (level >= threshold) return 0;
+        if (perCycle <= 0) return cycles;
+        return Math.max(0, Math.min(cycles, ceilDiv(threshold - level, perCycle) - first));
+    }
+
+    private static long level(long start, long perCycle, long cycles) {
+        return Math.min(100, start + perCycle * cycles);
+    }
+
+    private static long nextCitizenBand(long start, long perCycle, long cycle) {
+        if (perCycle <= 0) return UNBOUNDED;
+        long current = start + perCycle * cycle;
+        if (current < 30) return ceilDiv(30 - start, perCycle);
+        if (current < 70) return ceilDiv(70 - start, perCycle);
+        return ceilDiv(100 - start, perCycle);
+    }
+
+    private static long nextFireBand(long start, long perCycle, long cycle) {
+        if (perCycle <= 0) return UNBOUNDED;
+        long current = start + perCycle * cycle;
+        if (current < 30) return ceilDiv(30 - start, perCycle);
+        if (current < 70) return ceilDiv(70 - start, perCycle);
+        return Math.max(cycle, ceilDiv(100 - start, perCycle)) + 1;
+    }
+
+    private static long ceilDiv(long value, long divisor) {
+        return (value + divisor - 1) / divisor;
+    }
+
+    private static int toCycles(long cycles) {
+        return cycles >= NEVER ? NEVER : (int) cycles;
+    }
+}
@@ -0,0 +1,138 @@
+package simulation;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+class PhaseExecutor {
+
+    static final int MIN_PARALLEL_ITEMS = 64;
+    private static final int PARTITIONS_PER_THREAD = 4;
+
+    abstract static class Phase {
+        abstract void step(int item);
+    }
+
+    private ForkJoinPool pool;
+    private StateEventBuffer[] buffers;
+
+    private int[] identityOrder = new int[0];
+    private int[] identityEnds = new int[0];
+    private int[] slots = new int[0];
+    private int[] refBuffers = new int[0];
+    private int[] refEntries = new int[0];
+
+    PhaseExecutor(int parallelism) {
+        pool = new ForkJoinPool(parallelism);
+        buffers = new StateEventBuffer[parallelism * PARTITIONS_PER_THREAD];
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = new StateEventBuffer();
+        }
+    }
+
+    void run(Phase phase, int itemCount) {
+        if (identityOrder.length < itemCount) {
+            identityOrder = new int[Math.max(itemCount, identityOrder.length << 1)];
+            identityEnds = new int[identityOrder.length];
+            for (int i = 0; i < identityOrder.length; i++) {
+                identityOrder[i] = i;
+                identityEnds[i] = i + 1;
+            }
+        }
+        run(phase, itemCount, identityOrder, identityEnds, itemCount);
+    }
+
+    // order lists the items group by group and groupEnds[g] is the exclusive end of group g in order.
+    // Items of one group always run on the same thread, in the order given.
+    void run(Phase phase, int itemCount, int[] order, int[] groupEnds, int groupCount) {
+        if (groupCount == 0) return;
+        int partitions = Math.min(buffers.length, groupCount);
+        for (StateEventBuffer buffer : buffers) {
+            buffer.clear();
+        }
+        pool.invoke(new PartitionTask(phase, order, groupEnds, groupCount, partitions, 0, partitions));
+        replay(itemCount, partitions);
+    }
+
+    void shutdown() {
+        pool.shutdown();
+    }
+
+    // Events are replayed in item order, so listeners see exactly what a sequential pass would have produced.
+    private void replay(int itemCount, int partitions) {
+        if (slots.length < itemCount + 1) slots = new int[Math.max(itemCount + 1, slots.length << 1)];
+        Arrays.fill(slots, 0, itemCount + 1, 0);
+        int total = 0;
+        for (int b = 0; b < partitions; b++) {
+            StateEventBuffer buffer = buffers[b];
+            for (int e = 0; e < buffer.size(); e++) {
+                slots[buffer.getItem(e) + 1]++;
+            }
+            total += buffer.size();
+        }
+        if (total == 0) return;
+        for (int i = 0; i < itemCount; i++) {
+            slots[i + 1] += slots[i];
+        }
+        if (refBuffers.length < total) {
+            refBuffers = new int[Math.max(total, refBuffers.length << 1)];
+            refEntries = new int[refBuffers.length];
+        }
+        for (int b = 0; b < partitions; b++) {
+            StateEventBuffer buffer = buffers[b];
+            for (int e = 0; e < buffer.size(); e++) {
+                int slot = slots[buffer.getItem(e)]++;
+                refBuffers[slot] = b;
+                refEntries[slot] = e;
+            }
+        }
+        for (int i = 0; i < total; i++) {
+            buffers[refBuffers[i]].replay(refEntries[i]);
+        }
+        for (int b = 0; b < partitions; b++) {
+            buffers[b].clear();
+        }
+    }
+
+    private class PartitionTask extends RecursiveAction {
+
+        private Phase phase;
+        private int[] order, groupEnds;
+        private int groupCount, partitions, from, to;
+
+        PartitionTask(Phase phase, int[] order, int[] groupEnds, int groupCount, int partitions, int from, int to) {
+            this.phase = phase;
+            this.order = order;
+            this.groupEnds = groupEnds;
+            this.groupCount = groupCount;
+            this.partitions = partitions;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new PartitionTask(phase, order, groupEnds, groupCount, partitions, from, mid),
+                        new PartitionTask(phase, order, groupEnds, groupCount, partitions, mid, to));
+                return;
+            }
+            int firstGroup = (int) ((long) groupCount * from / partitions);
+            int lastGroup = (int) ((long) groupCount * to / partitions);
+            int start = firstGroup == 0 ? 0 : groupEnds[firstGroup - 1];
+            int end = lastGroup == 0 ? 0 : groupEnds[lastGroup - 1];
+            StateEventBuffer buffer = buffers[from];
+            buffer.open();
+            try {
+                for (int i = start; i < end; i++) {
+                    int item = order[i];
+                    buffer.setItem(item);
+                    phase.step(item);
+                }
+            } finally {
+                buffer.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package simulation;
+
+import model.infrastructure.ResidentialBuilding;
+import model.people.Citizen;
+import model.people.CitizenState;
+
+import simulation.util.Worklist;
+
+import java.util.Arrays;
+
+// The damage columns of the attached citizens and buildings, stepped row by row or by a health kernel over the
+// whole population. The store keeps no references to the entities: a row is known by the entity ID of the
+// citizen or building that owns it, and stepping is handed that entity for the few changes that go through it.
+// The model classes keep their own fields for detached use, so the columns are an extra copy laid out for
+// stepping rather than a way to shrink the heap.
+public class PopulationStore {
+
+    private static final CitizenState[] STATES = CitizenState.values();
+
+    private int[] hp = new int[16];
+    private int[] bloodLoss = new int[16];
+    private int[] toxicity = new int[16];
+    private byte[] states = new byte[16];
+    private boolean[] dead = new boolean[16];
+    private int citizenRows;
+
+    private int[] structuralIntegrity = new int[16];
+    private int[] fireDamage = new int[16];
+    private int[] foundationDamage = new int[16];
+    private int[] gasLevel = new int[16];
+    private boolean[] collapsed = new boolean[16];
+    private int buildingRows;
+
+    private HealthKernel healthKernel;
+
+    public void attach(Citizen citizen) {
+        if (citizen.getStore() == this) return;
+        int row = citizen.getEntityId();
+        if (row < 0) throw new IllegalArgumentException("Citizen " + citizen.getNationalID() + " has no entity ID");
+        adoptCitizenRow(row);
+        storeCitizen(row, citizen);
+        citizen.setStore(this);
+    }
+
+    public void attach(ResidentialBuilding building) {
+        if (building.getStore() == this) return;
+        int row = building.getEntityId();
+        if (row < 0) throw new IllegalArgumentException("Building at " + building.getLocation() + " has no entity ID");
+        adoptBuildingRow(row);
+        storeBuilding(row, building);
+        building.setStore(this);
+    }
+
+    // Makes room for a row without copying any values in; a citizen bound to an existing row reads it as it is.
+    protected void adoptCitizenRow(int row) {
+        if (row >= citizenRows) {
+            reserveCitizenRows(row + 1);
+            citizenRows = row + 1;
+        }
+    }
+
+    protected void adoptBuildingRow(int row) {
+        if (row >= buildingRows) {
+            reserveBuildingRows(row + 1);
+            buildingRows = row + 1;
+        }
+    }
+
+    protected void reserveCitizenRows(int rows) {
+        if (rows <= hp.length) return;
+        int capacity = Math.max(hp.length << 1, rows);
+        hp = Arrays.copyOf(hp, capacity);
+        bloodLoss = Arrays.copyOf(bloodLoss, capacity);
+        toxicity = Arrays.copyOf(toxicity, capacity);
+        states = Arrays.copyOf(states, capacity);
+        dead = Arrays.copyOf(dead, capacity);
+    }
+
+    protected void reserveBuildingRows(int rows) {
+        if (rows <= structuralIntegrity.length) return;
+        int capacity = Math.max(structuralIntegrity.length << 1, rows);
+        structuralIntegrity = Arrays.copyOf(structuralIntegrity, capacity);
+        fireDamage = Arrays.copyOf(fireDamage, capacity);
+        foundationDamage = Arrays.copyOf(foundationDamage, capacity);
+        gasLevel = Arrays.copyOf(gasLevel, capacity);
+        collapsed = Arrays.copyOf(collapsed, capacity);
+    }
+
+    protected void storeCitizen(int row, Citizen citizen) {
+        setHp(row, citizen.getHp());
+        setBloodLoss(row, citizen.getBloodLoss());
+        setToxicity(row, citizen.getToxicity());
+        setState(row, citizen.getState());
+        setDead(row, citizen.isDead());
+    }
+
+    protected void storeBuilding(int row, ResidentialBuilding building) {
+        setStructuralIntegrity(row, building.getStructuralIntegrity());
+        setFireDamage(row, building.getFireDamage());
+        setFoundationDamage(row, building.getFoundationDamage());
+        setGasLevel(row, building.getGasLevel());
+        setCollapsed(row, building.isCollapsed());
+    }
+
+    public int getCitizenRows() {
+        return citizenRows;
+    }
+
+    public int getBuildingRows() {
+        return buildingRows;
+    }
+
+    // Only rows bound from a world store leave the name to it.
+    public String getName(int row) {
+        return null;
+    }
+
+    public int getHp(int row) {
+        return hp[row];
+    }
+
+    public void setHp(int row, int value) {
+        hp[row] = value;
+    }
+
+    public int getBloodLoss(int row) {
+        return bloodLoss[row];
+    }
+
+    public void setBloodLoss(int row, int value) {
+        bloodLoss[row] = value;
+    }
+
+    public int getToxicity(int row) {
+        return toxicity[row];
+    }
+
+    public void setToxicity(int row, int value) {
+        toxicity[row] = value;
+    }
+
+    public CitizenState getState(int row) {
+        return STATES[states[row]];
+    }
+
+    public void setState(int row, CitizenState state) {
+        states[row] = (byte) state.ordinal();
+    }
+
+    public boolean isDead(int row) {
+        return dead[row];
+    }
+
+    public void setDead(int row, boolean value) {
+        dead[row] = value;
+    }
+
+    public int getStructuralIntegrity(int row) {
+        return structuralIntegrity[row];
+    }
+
+    public void setStructuralIntegrity(int row, int value) {
+        structuralIntegrity[row] = value;
+    }
+
+    public int getFireDamage(int row) {
+        return fireDamage[row];
+    }
+
+    public void setFireDamage(int row, int value) {
+        fireDamage[row] = value;
+    }
+
+    public int getFoundationDamage(int row) {
+        return foundationDamage[row];
+    }
+
+    public void setFoundationDamage(int row, int value) {
+        foundationDamage[row] = value;
+    }
+
+    public int getGasLevel(int row) {
+        return gasLevel[row];
+    }
+
+    public void setGasLevel(int row, int value) {
+        gasLevel[row] = value;
+    }
+
+    public boolean isCollapsed(int row) {
+        return collapsed[row];
+    }
+
+    public void setCollapsed(int row, boolean value) {
+        collapsed[row] = value;
+    }
+
+    HealthKernel getHealthKernel() {
+        return healthKernel;
+    }
+
+    void setHealthKernel(HealthKernel healthKernel) {
+        this.healthKernel = healthKernel;
+    }
+
+    // Same arithmetic as ResidentialBuilding.cycleStep; only a collapse goes through the building so that its
+    // listeners and occupants see it.
+    void stepBuilding(ResidentialBuilding building) {
+        int row = building.getEntityId();
+        int integrity = getStructuralIntegrity(row);
+        if (getFoundationDamage(row) > 0) integrity = Math.max(integrity - building.foundationLoss(), 0);
+        integrity = Math.max(integrity - ResidentialBuilding.fireLoss(getFireDamage(row)), 0);
+        if (integrity == 0) {
+            building.setStructuralIntegrity(0);
+        } else {
+            setStructuralIntegrity(row, integrity);
+        }
+    }
+
+    // Same arithmetic as Citizen.cycleStep; only a death goes through the citizen.
+    void stepCitizen(Citizen citizen) {
+        int row = citizen.getEntityId();
+        int remaining = getHp(row) - Citizen.damageFrom(getBloodLoss(row)) - Citizen.damageFrom(getToxicity(row));
+        if (remaining <= 0) {
+            citizen.setHp(0);
+        } else {
+            setHp(row, remaining);
+        }
+    }
+
+    // Runs the kernel over every row at once, then settles deaths and steps detached citizens in worklist order,
+    // so that listeners hear about them in the same order as on the object path. Rows that need no step have no
+    // damage to take, so stepping them in bulk changes nothing.
+    void stepCitizens(Worklist<Citizen> damaged) {
+        healthKernel.step(hp, bloodLoss, toxicity, states, citizenRows);
+        for (int i = 0; i < damaged.size(); i++) {
+            Citizen citizen = damaged.get(i);
+            if (citizen.getStore() != this) {
+                citizen.cycleStep();
+                continue;
+            }
+            int row = citizen.getEntityId();
+            if (hp[row] == 0 && states[row] != HealthKernel.DECEASED) citizen.setHp(0);
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package simulation;
+
+import simulation.util.RandomStream;
+
+public class RandomService {
+
+    private long seed;
+
+    public RandomService(long seed) {
+        this.seed = seed;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    // The same seed and stream id always give the same sequence, whichever thread draws from it.
+    public RandomStream newStream(long streamId) {
+        return new RandomStream(RandomStream.mix(seed ^ RandomStream.mix(streamId + 1)));
+    }
+}
@@ -0,0 +1,8 @@
+package simulation;
+
+import java.io.IOException;
+
+interface RegionLink {
+    // Sends this region's share of a phase and blocks until the shares of all other regions arrive.
+    byte[][] exchange(byte[] share) throws IOException;
+}
@@ -0,0 +1,210 @@
+package simulation;
+
+import model.events.StateListener;
+import model.infrastructure.ResidentialBuilding;
+import model.people.Citizen;
+import model.people.CitizenState;
+import simulation.util.RandomStream;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+// Runs the partitioned phases of a cluster worker. Every worker holds the whole world; it steps only the items
+// whose subject lies in its region, then ships the final state of everything those items touched together with
+// their listener events. Once the other regions' shares are applied, all events are replayed in item order, so
+// every worker ends the phase where a single process would.
+class RegionRunner {
+
+    abstract static class Step {
+        // The entity whose cell the item works on; the item may also touch that building's occupants.
+        abstract Rescuable subject(int item);
+
+        abstract void step(int item);
+    }
+
+    private static final CitizenState[] CITIZEN_STATES = CitizenState.values();
+
+    private ShardLayout regions;
+    private int region;
+    private RegionLink link;
+    private EntityRegistry registry;
+    private StateListener listener;
+
+    private Set<ResidentialBuilding> touchedBuildings = Collections.newSetFromMap(new IdentityHashMap<ResidentialBuilding, Boolean>());
+    private Set<Citizen> touchedCitizens = Collections.newSetFromMap(new IdentityHashMap<Citizen, Boolean>());
+    private StateEventBuffer events = new StateEventBuffer();
+    private StateEventBuffer muted = new StateEventBuffer();
+    private StateEventBuffer[] shares = {events};
+
+    RegionRunner(ShardLayout regions, int region, RegionLink link, EntityRegistry registry, StateListener listener) {
+        this.regions = regions;
+        this.region = region;
+        this.link = link;
+        this.registry = registry;
+        this.listener = listener;
+    }
+
+    boolean owns(Address location) {
+        return regions.shardOf(location) == region;
+    }
+
+    void run(int count, Step step) throws IOException {
+        touchedBuildings.clear();
+        touchedCitizens.clear();
+        events.clear();
+        events.open();
+        try {
+            for (int item = 0; item < count; item++) {
+                Rescuable subject = step.subject(item);
+                if (!owns(subject.getLocation())) continue;
+                events.setItem(item);
+                step.step(item);
+                touch(subject);
+            }
+        } finally {
+            events.close();
+        }
+        byte[][] remote = link.exchange(encode());
+        if (shares.length < remote.length + 1) {
+            shares = Arrays.copyOf(shares, remote.length + 1);
+            for (int i = 1; i < shares.length; i++) {
+                if (shares[i] == null) shares[i] = new StateEventBuffer();
+            }
+        }
+        // Entity states are written through their setters; the events that fires are dropped, since the
+        // region that ran the item sent its own.
+        muted.open();
+        try {
+            for (int i = 0; i < remote.length; i++) {
+                apply(remote[i], shares[i + 1]);
+            }
+        } finally {
+            muted.close();
+            muted.clear();
+        }
+        replay(remote.length + 1);
+    }
+
+    private void touch(Rescuable subject) {
+        if (subject instanceof ResidentialBuilding) {
+            ResidentialBuilding building = (ResidentialBuilding) subject;
+            touchedBuildings.add(building);
+            touchedCitizens.addAll(building.getOccupants());
+        } else if (subject instanceof Citizen) {
+            touchedCitizens.add((Citizen) subject);
+        }
+    }
+
+    private byte[] encode() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(touchedBuildings.size());
+        for (ResidentialBuilding building : touchedBuildings) {
+            out.writeInt(building.getEntityId());
+            out.writeInt(building.getStructuralIntegrity());
+            out.writeInt(building.getFireDamage());
+            out.writeInt(building.getGasLevel());
+            out.writeInt(building.getFoundationDamage());
+            RandomStream stream = building.getRandomStream();
+            out.writeBoolean(stream != null);
+            if (stream != null) out.writeLong(stream.getState());
+        }
+        out.writeInt(touchedCitizens.size());
+        for (Citizen citizen : touchedCitizens) {
+            out.writeInt(citizen.getEntityId());
+            out.writeInt(citizen.getHp());
+            out.writeInt(citizen.getBloodLoss());
+            out.writeInt(citizen.getToxicity());
+            out.writeByte(citizen.getState().ordinal());
+        }
+        out.writeInt(events.size());
+        for (int e = 0; e < events.size(); e++) {
+            out.writeInt(events.getItem(e));
+            out.writeByte(events.getKind(e));
+            switch (events.getKind(e)) {
+                case StateEventBuffer.CITIZEN_STATE:
+                    out.writeInt(((Citizen) events.getSubject(e)).getEntityId());
+                    out.writeByte(((CitizenState) events.getDetail(e)).ordinal());
+                    break;
+                case StateEventBuffer.CITIZEN_DAMAGE:
+                    out.writeInt(((Citizen) events.getSubject(e)).getEntityId());
+                    break;
+                case StateEventBuffer.BUILDING_COLLAPSE:
+                case StateEventBuffer.BUILDING_DAMAGE:
+                    out.writeInt(((ResidentialBuilding) events.getSubject(e)).getEntityId());
+                    break;
+                default:
+                    throw new IllegalStateException("Event kind " + events.getKind(e) + " cannot cross regions");
+            }
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private void apply(byte[] share, StateEventBuffer into) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(share));
+        for (int n = in.readInt(); n > 0; n--) {
+            ResidentialBuilding building = registry.getBuilding(in.readInt());
+            int integrity = in.readInt();
+            int fireDamage = in.readInt();
+            int gasLevel = in.readInt();
+            int foundationDamage = in.readInt();
+            building.setFoundationDamage(foundationDamage);
+            building.setFireDamage(fireDamage);
+            building.setGasLevel(gasLevel);
+            building.setStructuralIntegrity(integrity);
+            if (in.readBoolean()) building.getRandomStream().setState(in.readLong());
+        }
+        for (int n = in.readInt(); n > 0; n--) {
+            Citizen citizen = registry.getCitizen(in.readInt());
+            int hp = in.readInt();
+            citizen.setBloodLoss(in.readInt());
+            citizen.setToxicity(in.readInt());
+            citizen.setHp(hp);
+            citizen.setState(CITIZEN_STATES[in.readByte()]);
+        }
+        into.clear();
+        for (int n = in.readInt(); n > 0; n--) {
+            into.setItem(in.readInt());
+            int kind = in.readByte();
+            switch (kind) {
+                case StateEventBuffer.CITIZEN_STATE:
+                    into.add(kind, listener, registry.getCitizen(in.readInt()), CITIZEN_STATES[in.readByte()]);
+                    break;
+                case StateEventBuffer.CITIZEN_DAMAGE:
+                    into.add(kind, listener, registry.getCitizen(in.readInt()), null);
+                    break;
+                default:
+                    into.add(kind, listener, registry.getBuilding(in.readInt()), null);
+                    break;
+            }
+        }
+    }
+
+    // Each share lists its events in item order and no item ran in two regions, so a merge restores the
+    // order a single pass would have produced.
+    private void replay(int shareCount) {
+        int[] next = new int[shareCount];
+        while (true) {
+            int share = -1;
+            for (int s = 0; s < shareCount; s++) {
+                if (next[s] < shares[s].size()
+                        && (share < 0 || shares[s].getItem(next[s]) < shares[share].getItem(next[share]))) {
+                    share = s;
+                }
+            }
+            if (share < 0) break;
+            shares[share].replay(next[share]++);
+        }
+        for (int s = 0; s < shareCount; s++) {
+            shares[s].clear();
+        }
+    }
+}
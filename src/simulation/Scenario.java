@@ -0,0 +1,45 @@
+package simulation;
+
+public class Scenario {
+
+    private int worldWidth, worldHeight;
+    private String buildingsFile, citizensFile, unitsFile, disastersFile;
+
+    public Scenario(int worldWidth, int worldHeight) {
+        this(worldWidth, worldHeight, "buildings.csv", "citizens.csv", "units.csv", "disasters.csv");
+    }
+
+    public Scenario(int worldWidth, int worldHeight, String buildingsFile, String citizensFile,
+                    String unitsFile, String disastersFile) {
+        this.worldWidth = worldWidth;
+        this.worldHeight = worldHeight;
+        this.buildingsFile = buildingsFile;
+        this.citizensFile = citizensFile;
+        this.unitsFile = unitsFile;
+        this.disastersFile = disastersFile;
+    }
+
+    public int getWorldWidth() {
+        return worldWidth;
+    }
+
+    public int getWorldHeight() {
+        return worldHeight;
+    }
+
+    public String getBuildingsFile() {
+        return buildingsFile;
+    }
+
+    public String getCitizensFile() {
+        return citizensFile;
+    }
+
+    public String getUnitsFile() {
+        return unitsFile;
+    }
+
+    public String getDisastersFile() {
+        return disastersFile;
+    }
+}
@@ -0,0 +1,29 @@
+package simulation;
+
+// Splits the world into columns x rows rectangles; shard numbers run row by row from the top left.
+class ShardLayout {
+
+    private int columns, rows;
+    private int shardWidth, shardHeight;
+
+    ShardLayout(int worldWidth, int worldHeight, int columns, int rows) {
+        this.columns = columns;
+        this.rows = rows;
+        shardWidth = (worldWidth + columns - 1) / columns;
+        shardHeight = (worldHeight + rows - 1) / rows;
+    }
+
+    int getShardCount() {
+        return columns * rows;
+    }
+
+    int shardOf(long cell) {
+        int column = Math.min(Coordinates.x(cell) / shardWidth, columns - 1);
+        int row = Math.min(Coordinates.y(cell) / shardHeight, rows - 1);
+        return row * columns + column;
+    }
+
+    int shardOf(Address location) {
+        return shardOf(location.getPacked());
+    }
+}
@@ -1,157 +1,626 @@
 package simulation;
 
 import exceptions.DisasterException;
+import exceptions.UnitException;
 import model.disasters.*;
 import model.events.SOSListener;
+import model.events.SimulationListener;
+import model.events.StateListener;
 import model.events.WorldListener;
 import model.infrastructure.ResidentialBuilding;
 import model.people.Citizen;
 import model.people.CitizenState;
 import model.units.*;
-import view.GameView;
+import simulation.util.LongIntMap;
+import simulation.util.StringTable;
+import simulation.util.TrackedList;
+import simulation.util.Worklist;
 
-import java.io.File;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
-import java.util.Scanner;
+import java.util.Arrays;
+import java.util.Collection;
 
-public class Simulator implements WorldListener {
+public class Simulator implements WorldListener, StateListener, Closeable {
 
-    private ArrayList<ResidentialBuilding> buildings = new ArrayList<>();
-    private ArrayList<Citizen> citizens = new ArrayList<>();
-    private ArrayList<Unit> emergencyUnits = new ArrayList<>();
-    private ArrayList<Disaster> plannedDisasters = new ArrayList<>();
-    private ArrayList<Disaster> executedDisasters = new ArrayList<>();
+    private static final long ADOPTED_STREAMS = 1L << 32;
 
-    private Address[][] world = new Address[10][10];
+    private TrackedList<ResidentialBuilding> buildings = new TrackedList<>();
+    private TrackedList<Citizen> citizens = new TrackedList<>();
+    private TrackedList<Unit> emergencyUnits = new TrackedList<>();
+    private DisasterSchedule schedule = new DisasterSchedule();
+    // The schedule as a list, for code that reaches the simulator's fields by reflection.
+    private ArrayList<Disaster> plannedDisasters = schedule.asList();
+    private DisasterLedger ledger = new DisasterLedger(this);
+    // The ledger as a list, for code that reaches the simulator's fields by reflection.
+    private ArrayList<Disaster> executedDisasters = ledger.asList();
+
+    private World map;
+    // The same addresses as map for a dense world, kept as the array the milestone tests reach by reflection.
+    private Address[][] world;
+    private SpatialIndex<ResidentialBuilding> buildingIndex = new SpatialIndex<>();
+    private EntityRegistry registry = new EntityRegistry();
+    private StringTable names = new StringTable();
     private int currentCycle;
     private SOSListener emergencyService;
 
-    private GameView gameView;
+    private EngineSettings settings;
+    private PhaseExecutor executor;
+    private CycleBuffer cycleBuffer;
+    private RandomService randomService;
+    private PopulationStore store;
+    private MappedPopulationStore mappedStore;
+
+    private int casualties, busyUnits;
+    private int countedBuildings = -1, countedCitizens = -1, countedUnits = -1;
+
+    private Worklist<ResidentialBuilding> damagedBuildings = new Worklist<ResidentialBuilding>() {
+        @Override
+        protected boolean isPending(ResidentialBuilding building) {
+            return needsStep(building);
+        }
+    };
+    private Worklist<Citizen> damagedCitizens = new Worklist<Citizen>() {
+        @Override
+        protected boolean isPending(Citizen citizen) {
+            return needsStep(citizen);
+        }
+    };
+    private ArrayList<ResidentialBuilding> collapsedThisCycle = new ArrayList<>();
+    private ArrayList<Citizen> diedThisCycle = new ArrayList<>();
+
+    private Disaster[] disasterBatch = new Disaster[16];
+    private GroupedOrder disasterOrder = new GroupedOrder();
+    private LongIntMap disasterGroupByCell = new LongIntMap();
+    private GroupedOrder unitOrder = new GroupedOrder();
+    private LongIntMap unitGroupByCell = new LongIntMap();
+    private RegionRunner regionRunner;
+    private SnapshotStore snapshots;
+
+    private PhaseExecutor.Phase unitPhase = new PhaseExecutor.Phase() {
+        @Override
+        void step(int item) {
+            emergencyUnits.get(item).cycleStep();
+        }
+    };
+    private PhaseExecutor.Phase disasterPhase = new PhaseExecutor.Phase() {
+        @Override
+        void step(int item) {
+            disasterBatch[item].cycleStep();
+        }
+    };
+    private PhaseExecutor.Phase buildingPhase = new PhaseExecutor.Phase() {
+        @Override
+        void step(int item) {
+            stepBuilding(damagedBuildings.get(item));
+        }
+    };
+    private PhaseExecutor.Phase citizenPhase = new PhaseExecutor.Phase() {
+        @Override
+        void step(int item) {
+            stepCitizen(damagedCitizens.get(item));
+        }
+    };
+
+    private RegionRunner.Step disasterStep = new RegionRunner.Step() {
+        @Override
+        Rescuable subject(int item) {
+            return disasterBatch[item].getTarget();
+        }
+
+        @Override
+        void step(int item) {
+            disasterBatch[item].cycleStep();
+        }
+    };
+    private RegionRunner.Step buildingStep = new RegionRunner.Step() {
+        @Override
+        Rescuable subject(int item) {
+            return damagedBuildings.get(item);
+        }
+
+        @Override
+        void step(int item) {
+            stepBuilding(damagedBuildings.get(item));
+        }
+    };
+    private RegionRunner.Step citizenStep = new RegionRunner.Step() {
+        @Override
+        Rescuable subject(int item) {
+            return damagedCitizens.get(item);
+        }
+
+        @Override
+        void step(int item) {
+            stepCitizen(damagedCitizens.get(item));
+        }
+    };
+
+    private ArrayList<SimulationListener> simulationListeners = new ArrayList<>();
 
     public Simulator(SOSListener sosListener) throws Exception {
-        for (int i = 0; i < world.length; i++) {
-            for (int j = 0; j < world[0].length; j++) {
-                world[i][j] = new Address(i, j);
-            }
+        this(sosListener, new Scenario(10, 10));
+    }
+
+    public Simulator(SOSListener sosListener, Scenario scenario) throws Exception {
+        this(sosListener, scenario, new EngineSettings());
+    }
+
+    public Simulator(SOSListener sosListener, Scenario scenario, EngineSettings settings) throws Exception {
+        this.settings = settings;
+        randomService = new RandomService(settings.getSeed());
+        if (settings.isZeroAllocation() && settings.getParallelism() > 1) {
+            throw new IllegalArgumentException("Zero-allocation mode runs on the calling thread only");
         }
+        if (settings.isZeroAllocation() && settings.isSnapshots()) {
+            throw new IllegalArgumentException("Snapshots allocate a version of the world every cycle");
+        }
+        if (settings.getParallelism() > 1 && settings.getWorldStore() != null) {
+            throw new IllegalArgumentException("A mapped world store cannot be written from the phase threads");
+        }
+        boolean columnar = settings.isColumnarStorage() || settings.getWorldStore() != null || settings.isVectorizedHealth();
+        if (columnar && settings.isDoubleBuffered()) {
+            throw new IllegalArgumentException("Columnar storage steps damage in place and cannot be double-buffered");
+        }
+        if (settings.isVectorizedHealth() && settings.getWorldStore() != null) {
+            throw new IllegalArgumentException("The health kernel works on heap columns, not on a mapped world store");
+        }
+        if (settings.isDoubleBuffered()) cycleBuffer = new CycleBuffer();
+        if (settings.getWorldStore() != null) {
+            store = mappedStore = new MappedPopulationStore(settings.getWorldStore());
+        } else if (columnar) {
+            store = new PopulationStore();
+            if (settings.isVectorizedHealth()) store.setHealthKernel(HealthKernel.load());
+        }
+        map = new World(scenario.getWorldWidth(), scenario.getWorldHeight());
+        world = map.getGrid();
         setEmergencyService(sosListener);
-        loadBuildings("buildings.csv");
-        loadCitizens("citizens.csv");
-        loadUnits("units.csv");
-        loadDisasters("disasters.csv");
+        try {
+            loadScenario(scenario);
+        } catch (Exception e) {
+            if (mappedStore != null) mappedStore.close();
+            throw e;
+        }
+        if (settings.isZeroAllocation()) reserveCapacity();
+        // Last, so that a scenario that fails to load leaves no pool behind.
+        if (settings.getParallelism() > 1) {
+            executor = new PhaseExecutor(settings.getParallelism());
+        }
+        if (settings.isSnapshots()) {
+            snapshots = new SnapshotStore();
+            publishSnapshot();
+        }
     }
 
-    private void loadBuildings(String filePath) throws Exception {
-        Scanner input = new Scanner(new File(filePath));
-        while (input.hasNext()) {
-            String[] cells = input.nextLine().split(",");
-            ResidentialBuilding building = new ResidentialBuilding(world[Integer.parseInt(cells[0])][Integer.parseInt(cells[1])]);
-            building.setEmergencyService(emergencyService);
-            buildings.add(building);
+    // A world store resumes in the cycle it was saved in. One that was never saved only holds the population,
+    // so it can only be reopened before its first cycle, with units and disasters loaded from the scenario.
+    private void loadScenario(Scenario scenario) throws Exception {
+        boolean saved = mappedStore != null && mappedStore.isSaved();
+        if (saved && mappedStore.getCycle() != mappedStore.getSavedCycle()) {
+            throw new IllegalStateException("The world store was saved in cycle " + mappedStore.getSavedCycle()
+                    + " but written up to cycle " + mappedStore.getCycle() + "; only the saved cycle can be resumed");
+        }
+        if (!saved && mappedStore != null && mappedStore.getCycle() > 0) {
+            throw new IllegalStateException("The world store was written in cycle " + mappedStore.getCycle()
+                    + " but never saved; only a world that has not stepped yet can be reopened");
+        }
+        if (mappedStore != null && mappedStore.getSavedBuildings() > 0) {
+            openBuildings(saved);
+        } else {
+            loadBuildings(scenario.getBuildingsFile());
+        }
+        if (mappedStore != null && mappedStore.getSavedCitizens() > 0) {
+            openCitizens(saved);
+        } else {
+            loadCitizens(scenario.getCitizensFile());
+        }
+        loadUnits(scenario.getUnitsFile());
+        if (saved) {
+            openUnits();
+            openDisasters();
+            currentCycle = mappedStore.getSavedCycle();
+        } else {
+            loadDisasters(scenario.getDisastersFile());
+        }
+        if (mappedStore != null) {
+            recountBuildings();
+            recountCitizens();
+            if (saved) reopenWorklists();
+            mappedStore.force();
         }
     }
 
-    private void loadCitizens(String filePath) throws Exception {
-        Scanner input = new Scanner(new File(filePath));
-        while (input.hasNext()) {
-            String[] cells = input.nextLine().split(",");
-            Citizen citizen = new Citizen(world[Integer.parseInt(cells[0])][Integer.parseInt(cells[1])],
-                    cells[2], cells[3], Integer.parseInt(cells[4]), this);
-            citizen.setEmergencyService(emergencyService);
-            citizens.add(citizen);
-            for (ResidentialBuilding building : buildings) {
-                if (building.getLocation().getX() == citizen.getLocation().getX() &&
-                        building.getLocation().getY() == citizen.getLocation().getY()) {
-                    building.getOccupants().add(citizen);
-                }
+    // Sizes every per-cycle structure for the whole population up front, so that cycles without new
+    // strikes or collapses never grow a collection.
+    private void reserveCapacity() {
+        damagedBuildings.reserve(buildings.size());
+        damagedCitizens.reserve(citizens.size());
+        ledger.reserve(schedule.size() + buildings.size() + citizens.size());
+        if (cycleBuffer != null) cycleBuffer.reserve(buildings.size(), citizens.size());
+    }
+
+    private void loadBuildings(String filePath) throws Exception {
+        try (BufferedReader input = new BufferedReader(new FileReader(filePath))) {
+            String line;
+            while ((line = input.readLine()) != null) {
+                if (line.isEmpty()) continue;
+                String[] cells = line.split(",");
+                addBuilding(Integer.parseInt(cells[0]), Integer.parseInt(cells[1]));
             }
         }
     }
 
-    private void loadUnits(String filePath) throws Exception {
-        Scanner input = new Scanner(new File(filePath));
-        while (input.hasNext()) {
-            String[] cells = input.nextLine().split(",");
-            switch (cells[0]) {
-                case "AMB":
-                    emergencyUnits.add(new Ambulance(cells[1], world[0][0], Integer.parseInt(cells[2]), this));
+    private ResidentialBuilding addBuilding(int x, int y) {
+        ResidentialBuilding building = new ResidentialBuilding(map.getAddress(x, y));
+        building.setEmergencyService(emergencyService);
+        buildings.add(building);
+        registry.registerBuilding(building);
+        building.setStateListener(this);
+        building.setRandomStream(randomService.newStream(building.getEntityId()));
+        buildingIndex.add(building.getLocation(), building);
+        return building;
+    }
+
+    // Rebuilds the views of a stored world straight from its mapped rows; entity IDs match rows because the
+    // registry numbers entities in load order.
+    private void openBuildings(boolean saved) {
+        for (int row = 0; row < mappedStore.getSavedBuildings(); row++) {
+            ResidentialBuilding building = addBuilding(mappedStore.getBuildingX(row), mappedStore.getBuildingY(row));
+            if (saved) building.getRandomStream().setState(mappedStore.getRandomState(row));
+            mappedStore.bind(building);
+        }
+    }
+
+    // Names and non-numeric IDs are left in the rows until they are asked for.
+    private void openCitizens(boolean saved) {
+        for (int row = 0; row < mappedStore.getSavedCitizens(); row++) {
+            long numericID = mappedStore.getNumericID(row);
+            Citizen citizen = new Citizen(map.getAddress(mappedStore.getCitizenX(row), mappedStore.getCitizenY(row)),
+                    numericID >= 0 ? null : mappedStore.getNationalID(row), null, mappedStore.getAge(row), this);
+            if (numericID >= 0) citizen.setNumericID(numericID);
+            registerCitizen(citizen, !saved || mappedStore.isOccupant(row));
+            mappedStore.bind(citizen);
+        }
+    }
+
+    // The scenario still lists the units, in the order they were saved in; only where they are and what they do
+    // comes from the store.
+    private void openUnits() {
+        if (mappedStore.getSavedUnits() != emergencyUnits.size()) {
+            throw new IllegalStateException("The world store holds " + mappedStore.getSavedUnits()
+                    + " units but the scenario lists " + emergencyUnits.size());
+        }
+        for (int row = 0; row < emergencyUnits.size(); row++) {
+            Unit unit = emergencyUnits.get(row);
+            unit.setLocation(map.getAddress(mappedStore.getUnitX(row), mappedStore.getUnitY(row)));
+            unit.resumeJob(mappedStore.getUnitState(row),
+                    openTarget(mappedStore.getTargetType(row), mappedStore.getTarget(row)),
+                    mappedStore.getDistanceToTarget(row));
+            if (unit instanceof PoliceUnit) ((PoliceUnit) unit).setDistanceToBase(mappedStore.getDistanceToBase(row));
+        }
+        for (int row = 0; row < mappedStore.getSavedCitizens(); row++) {
+            int carrier = mappedStore.getCarrier(row);
+            if (carrier >= 0) ((PoliceUnit) emergencyUnits.get(carrier)).getPassengers().add(citizens.get(row));
+        }
+    }
+
+    // Struck disasters rejoin the ledger in the order they were listed in, which puts the active ones back in
+    // the order they struck in; the rest are planned again.
+    private void openDisasters() {
+        Disaster[] struck = new Disaster[mappedStore.getSavedDisasters()];
+        for (int row = 0; row < struck.length; row++) {
+            int startCycle = mappedStore.getStartCycle(row);
+            int target = mappedStore.getDisasterTarget(row);
+            Disaster disaster;
+            switch (mappedStore.getDisasterType(row)) {
+                case TypeRegistry.FIRE:
+                    disaster = new Fire(startCycle, buildings.get(target));
                     break;
-                case "DCU":
-                    emergencyUnits.add(new DiseaseControlUnit(cells[1], world[0][0], Integer.parseInt(cells[2]), this));
+                case TypeRegistry.GAS_LEAK:
+                    disaster = new GasLeak(startCycle, buildings.get(target));
                     break;
-                case "EVC":
-                    emergencyUnits.add(new Evacuator(cells[1], world[0][0], Integer.parseInt(cells[2]), this, Integer.parseInt(cells[3])));
+                case TypeRegistry.COLLAPSE:
+                    disaster = new Collapse(startCycle, buildings.get(target));
                     break;
-                case "FTK":
-                    emergencyUnits.add(new FireTruck(cells[1], world[0][0], Integer.parseInt(cells[2]), this));
+                case TypeRegistry.INJURY:
+                    disaster = new Injury(startCycle, citizens.get(target));
                     break;
-                case "GCU":
-                    emergencyUnits.add(new GasControlUnit(cells[1], world[0][0], Integer.parseInt(cells[2]), this));
+                case TypeRegistry.INFECTION:
+                    disaster = new Infection(startCycle, citizens.get(target));
                     break;
+                default:
+                    throw new IllegalStateException("Unknown disaster type " + mappedStore.getDisasterType(row)
+                            + " in the world store");
+            }
+            if (mappedStore.isPlanned(row)) {
+                schedule.add(disaster);
+            } else {
+                disaster.setActive(mappedStore.isActive(row));
+                ledger.add(disaster);
+                struck[row] = disaster;
             }
         }
+        for (int row = 0; row < buildings.size(); row++) {
+            int disaster = mappedStore.getBuildingDisaster(row);
+            if (disaster >= 0) buildings.get(row).resumeDisaster(struck[disaster]);
+        }
+        for (int row = 0; row < citizens.size(); row++) {
+            int disaster = mappedStore.getCitizenDisaster(row);
+            if (disaster >= 0) citizens.get(row).resumeDisaster(struck[disaster]);
+        }
     }
 
-    private void loadDisasters(String filePath) throws Exception {
-        Scanner input = new Scanner(new File(filePath));
-        while (input.hasNext()) {
-            String[] cells = input.nextLine().split(",");
-            switch (cells[1]) {
-                case "FIR":
-                    plannedDisasters.add(new Fire(Integer.parseInt(cells[0]),
-                            findBuilding(world[Integer.parseInt(cells[2])][Integer.parseInt(cells[3])])));
-                    break;
-                case "GLK":
-                    plannedDisasters.add(new GasLeak(Integer.parseInt(cells[0]),
-                            findBuilding(world[Integer.parseInt(cells[2])][Integer.parseInt(cells[3])])));
-                    break;
-                case "INF":
-                    plannedDisasters.add(new Infection(Integer.parseInt(cells[0]), findCitizen(cells[2])));
-                    break;
-                case "INJ":
-                    plannedDisasters.add(new Injury(Integer.parseInt(cells[0]), findCitizen(cells[2])));
-                    break;
+    // The worklists step in the order they were saved in, since a burnt-out building strikes its Collapse as the
+    // buildings are walked.
+    private void reopenWorklists() {
+        ResidentialBuilding[] buildingOrder = new ResidentialBuilding[buildings.size()];
+        int count = 0;
+        for (int i = 0; i < buildings.size(); i++) {
+            int order = mappedStore.getStepOrder(buildings.get(i));
+            if (order >= 0) {
+                buildingOrder[order] = buildings.get(i);
+                count = Math.max(count, order + 1);
+            }
+        }
+        damagedBuildings.clear();
+        for (int i = 0; i < count; i++) {
+            if (buildingOrder[i] != null) damagedBuildings.add(buildingOrder[i]);
+        }
+        Citizen[] citizenOrder = new Citizen[citizens.size()];
+        count = 0;
+        for (int i = 0; i < citizens.size(); i++) {
+            int order = mappedStore.getStepOrder(citizens.get(i));
+            if (order >= 0) {
+                citizenOrder[order] = citizens.get(i);
+                count = Math.max(count, order + 1);
             }
         }
+        damagedCitizens.clear();
+        for (int i = 0; i < count; i++) {
+            if (citizenOrder[i] != null) damagedCitizens.add(citizenOrder[i]);
+        }
     }
 
-    private ResidentialBuilding findBuilding(Address address) {
-        for (ResidentialBuilding building : buildings) {
-            Address location = building.getLocation();
-            if (location.getX() == address.getX() && location.getY() == address.getY()) return building;
+    private Rescuable openTarget(int type, int entityId) {
+        if (type == TypeRegistry.BUILDING) return buildings.get(entityId);
+        if (type == TypeRegistry.CITIZEN) return citizens.get(entityId);
+        return null;
+    }
+
+    private void loadCitizens(String filePath) throws Exception {
+        try (BufferedReader input = new BufferedReader(new FileReader(filePath))) {
+            String line;
+            while ((line = input.readLine()) != null) {
+                if (line.isEmpty()) continue;
+                String[] cells = line.split(",");
+                addCitizen(Integer.parseInt(cells[0]), Integer.parseInt(cells[1]), cells[2], cells[3], Integer.parseInt(cells[4]));
+            }
         }
-        throw new IllegalArgumentException("No building found with the given Address.");
     }
 
-    private Citizen findCitizen(String nationalID) {
-        for (Citizen citizen : citizens) {
-            String id = citizen.getNationalID();
-            if (id.equals(nationalID)) return citizen;
+    private Citizen addCitizen(int x, int y, String nationalID, String name, int age) {
+        Citizen citizen = new Citizen(map.getAddress(x, y), nationalID, names.intern(name), age, this);
+        registerCitizen(citizen, true);
+        return citizen;
+    }
+
+    private void registerCitizen(Citizen citizen, boolean occupant) {
+        citizen.setEmergencyService(emergencyService);
+        citizens.add(citizen);
+        registry.registerCitizen(citizen);
+        citizen.setStateListener(this);
+        if (!occupant) return;
+        ResidentialBuilding building = buildingIndex.get(citizen.getLocation());
+        if (building != null) {
+            building.getOccupants().add(citizen);
+        }
+    }
+
+    private void loadUnits(String filePath) throws Exception {
+        Address base = map.getAddress(0, 0);
+        try (BufferedReader input = new BufferedReader(new FileReader(filePath))) {
+            String line;
+            while ((line = input.readLine()) != null) {
+                if (line.isEmpty()) continue;
+                String[] cells = line.split(",");
+                Unit unit;
+                switch (cells[0]) {
+                    case "AMB":
+                        unit = new Ambulance(cells[1], base, Integer.parseInt(cells[2]), this);
+                        break;
+                    case "DCU":
+                        unit = new DiseaseControlUnit(cells[1], base, Integer.parseInt(cells[2]), this);
+                        break;
+                    case "EVC":
+                        unit = new Evacuator(cells[1], base, Integer.parseInt(cells[2]), this, Integer.parseInt(cells[3]));
+                        break;
+                    case "FTK":
+                        unit = new FireTruck(cells[1], base, Integer.parseInt(cells[2]), this);
+                        break;
+                    case "GCU":
+                        unit = new GasControlUnit(cells[1], base, Integer.parseInt(cells[2]), this);
+                        break;
+                    default:
+                        continue;
+                }
+                emergencyUnits.add(unit);
+                registry.registerUnit(unit);
+                unit.setStateListener(this);
+            }
         }
-        throw new IllegalArgumentException("No citizen found with the given National ID.");
+    }
+
+    private void loadDisasters(String filePath) throws Exception {
+        try (BufferedReader input = new BufferedReader(new FileReader(filePath))) {
+            String line;
+            while ((line = input.readLine()) != null) {
+                if (line.isEmpty()) continue;
+                String[] cells = line.split(",");
+                switch (cells[1]) {
+                    case "FIR":
+                        schedule.add(new Fire(Integer.parseInt(cells[0]),
+                                findBuilding(Integer.parseInt(cells[2]), Integer.parseInt(cells[3]))));
+                        break;
+                    case "GLK":
+                        schedule.add(new GasLeak(Integer.parseInt(cells[0]),
+                                findBuilding(Integer.parseInt(cells[2]), Integer.parseInt(cells[3]))));
+                        break;
+                    case "INF":
+                        schedule.add(new Infection(Integer.parseInt(cells[0]), findCitizen(cells[2])));
+                        break;
+                    case "INJ":
+                        schedule.add(new Injury(Integer.parseInt(cells[0]), findCitizen(cells[2])));
+                        break;
+                }
+            }
+        }
+    }
+
+    private ResidentialBuilding findBuilding(int x, int y) {
+        ResidentialBuilding building = buildingIndex.get(x, y);
+        if (building == null) throw new IllegalArgumentException("No building found with the given Address.");
+        return building;
+    }
+
+    private Citizen findCitizen(String nationalID) {
+        Citizen citizen = registry.findCitizen(nationalID);
+        if (citizen == null) throw new IllegalArgumentException("No citizen found with the given National ID.");
+        return citizen;
+    }
+
+    private Unit findUnit(String unitID) {
+        Unit unit = registry.findUnit(unitID);
+        if (unit == null) throw new IllegalArgumentException("No unit found with the given Unit ID.");
+        return unit;
+    }
+
+    public void dispatchToCitizen(String unitID, String nationalID) throws UnitException {
+        findUnit(unitID).respond(findCitizen(nationalID));
+    }
+
+    public void dispatchToBuilding(String unitID, int x, int y) throws UnitException {
+        findUnit(unitID).respond(findBuilding(x, y));
     }
 
     @Override
     public void assignAddress(Simulatable sim, int x, int y) {
-        if (0 <= x && x <= 10 && 0 <= y && y <= 10) {
+        if (map.contains(x, y)) {
             if (sim instanceof Citizen) {
                 Citizen citizen = (Citizen) sim;
-                gameView.removeSimulatableOnWorldMap(citizen);
-                citizen.setLocation(world[x][y]);
-                gameView.addSimulatableOnWorldMap(citizen);
+                Address oldLocation = citizen.getLocation();
+                citizen.setLocation(resolveAddress(x, y));
+                if (mappedStore != null && citizen.getStore() == mappedStore) mappedStore.moveCitizen(citizen);
+                simulatableMoved(citizen, oldLocation);
             } else if (sim instanceof Unit) {
                 Unit unit = (Unit) sim;
-                gameView.removeSimulatableOnWorldMap(unit);
-                unit.setLocation(world[x][y]);
-                gameView.addSimulatableOnWorldMap(unit);
+                Address oldLocation = unit.getLocation();
+                unit.setLocation(resolveAddress(x, y));
+                simulatableMoved(unit, oldLocation);
             }
         }
     }
 
+    // Phase threads move units and evacuees concurrently, and the world fills its address cache lazily.
+    private Address resolveAddress(int x, int y) {
+        if (executor == null || world != null) return map.getAddress(x, y);
+        synchronized (map) {
+            return map.getAddress(x, y);
+        }
+    }
+
+    void simulatableMoved(Simulatable sim, Address oldLocation) {
+        if (StateEventBuffer.defer(StateEventBuffer.MOVE, this, sim, oldLocation)) return;
+        for (SimulationListener listener : simulationListeners) {
+            listener.simulatableMoved(sim, oldLocation);
+        }
+    }
+
+    // Makes this simulator one worker of a cluster that steps the given region of the world; see RegionRunner.
+    void joinCluster(ShardLayout regions, int region, RegionLink link) {
+        if (executor != null || store != null || cycleBuffer != null) {
+            throw new IllegalStateException("A cluster worker steps its region in object mode on a single thread");
+        }
+        regionRunner = new RegionRunner(regions, region, link, registry, this);
+    }
+
+    int countRegionCasualties() {
+        int count = 0;
+        for (int i = 0; i < citizens.size(); i++) {
+            Citizen citizen = citizens.get(i);
+            if (citizen.getState() == CitizenState.DECEASED && regionRunner.owns(citizen.getLocation())) count++;
+        }
+        return count;
+    }
+
+    // Stops the worker threads of a parallel engine and unmaps the world store; the simulator cannot
+    // step any more afterwards.
+    @Override
+    public void close() throws IOException {
+        try {
+            if (executor != null) executor.shutdown();
+        } finally {
+            if (mappedStore != null) mappedStore.close();
+        }
+    }
+
+    // Writes the units, the disasters and what ties entities to them into the mapped world store and flushes it,
+    // so that a simulator opened on the same store with the same scenario resumes in the current cycle. The
+    // constructor refuses a store that stepped on after it was last saved.
+    public void saveWorld() {
+        if (mappedStore == null) throw new IllegalStateException("This simulator has no world store");
+        mappedStore.save(currentCycle, buildings, citizens, emergencyUnits, executedDisasters, plannedDisasters,
+                damagedBuildings, damagedCitizens);
+    }
+
+    // "scalar" or "vector/<lanes>" when citizen damage is stepped by a health kernel, null otherwise. The vector
+    // kernel is only picked up when it is compiled and jdk.incubator.vector is added at run time.
+    public String getHealthKernelName() {
+        return store != null && store.getHealthKernel() != null ? store.getHealthKernel().getName() : null;
+    }
+
+    // Versions of the world for readers on other threads; the lists returned by the getters below are the live
+    // ones and may only be read on the simulation thread. Skipped quiet cycles publish a single version.
+    public SnapshotStore getSnapshots() {
+        if (snapshots == null) throw new IllegalStateException("This simulator does not publish snapshots");
+        return snapshots;
+    }
+
+    // Whatever decays on its own is in a worklist or the target of an active disaster; every other change to a
+    // row comes with an event that marked it already.
+    private void publishSnapshot() {
+        for (int i = 0; i < damagedBuildings.size(); i++) {
+            snapshots.markBuilding(damagedBuildings.get(i));
+        }
+        for (int i = 0; i < damagedCitizens.size(); i++) {
+            snapshots.markCitizen(damagedCitizens.get(i));
+        }
+        for (int i = 0; i < ledger.countActive(); i++) {
+            Rescuable target = ledger.getActive(i).getTarget();
+            if (target instanceof ResidentialBuilding) {
+                snapshots.markBuilding((ResidentialBuilding) target);
+            } else if (target instanceof Citizen) {
+                snapshots.markCitizen((Citizen) target);
+            }
+        }
+        snapshots.publish(this, currentCycle);
+    }
+
     public ArrayList<ResidentialBuilding> getBuildings() {
         return buildings;
     }
 
+    public EntityRegistry getRegistry() {
+        return registry;
+    }
+
+    public ResidentialBuilding getBuildingAt(int x, int y) {
+        return buildingIndex.get(x, y);
+    }
+
     public ArrayList<Citizen> getCitizens() {
         return citizens;
     }
@@ -160,157 +629,521 @@ public class Simulator implements WorldListener {
         return emergencyUnits;
     }
 
+    public Collection<Disaster> getActiveDisasters() {
+        return ledger.getActive();
+    }
+
+    // Cycle at which the citizen dies if nobody treats it, or OutcomePredictor.NEVER.
+    public int predictDeathCycle(Citizen citizen) {
+        int cycles = cyclesUntilDeath(citizen);
+        ResidentialBuilding building = buildingIndex.get(citizen.getLocation());
+        if (building != null && building.getOccupants().contains(citizen)) {
+            cycles = Math.min(cycles, cyclesUntilCollapse(building));
+            cycles = Math.min(cycles, cyclesUntilLethalGas(building));
+        }
+        return toCycle(cycles);
+    }
+
+    // Earliest cycle at which the building can collapse if nobody treats it, or OutcomePredictor.NEVER.
+    public int predictCollapseCycle(ResidentialBuilding building) {
+        return toCycle(cyclesUntilCollapse(building));
+    }
+
+    private int cyclesUntilDeath(Citizen citizen) {
+        return OutcomePredictor.cyclesUntilDeath(citizen.getHp(), citizen.getBloodLoss(), citizen.getToxicity(),
+                ratePerCycle(citizen, TypeRegistry.INJURY, 10), ratePerCycle(citizen, TypeRegistry.INFECTION, 15));
+    }
+
+    private int cyclesUntilCollapse(ResidentialBuilding building) {
+        return OutcomePredictor.cyclesUntilCollapse(building.getStructuralIntegrity(), building.getFireDamage(),
+                building.getFoundationDamage(), ratePerCycle(building, TypeRegistry.FIRE, 10),
+                ratePerCycle(building, TypeRegistry.COLLAPSE, 10));
+    }
+
+    // Only a leak that ticks sets the gas level and kills the occupants.
+    private int cyclesUntilLethalGas(ResidentialBuilding building) {
+        int gasPerCycle = ratePerCycle(building, TypeRegistry.GAS_LEAK, 15);
+        if (gasPerCycle == 0) return OutcomePredictor.NEVER;
+        return OutcomePredictor.cyclesUntilLethalGas(building.getGasLevel(), gasPerCycle, building.getFireDamage(),
+                ratePerCycle(building, TypeRegistry.FIRE, 10));
+    }
+
+    // How much the disasters of one type that are active on the target add to its level every cycle.
+    private int ratePerCycle(Rescuable target, int type, int perDisaster) {
+        ArrayList<Disaster> disasters = ledger.getActiveOn(target);
+        if (disasters == null) return 0;
+        int rate = 0;
+        for (int i = 0; i < disasters.size(); i++) {
+            if (TypeRegistry.typeOf(disasters.get(i)) == type) rate += perDisaster;
+        }
+        return rate;
+    }
+
+    private int toCycle(int cycles) {
+        return (int) Math.min(OutcomePredictor.NEVER, (long) currentCycle + cycles);
+    }
+
     public void setEmergencyService(SOSListener sosListener) {
         this.emergencyService = sosListener;
     }
 
-    public boolean checkGameOver() {
-        if (plannedDisasters.size() > 0) return false;
-        for (Disaster disaster : executedDisasters) {
-            if (disaster.isActive()) {
-                Rescuable target = disaster.getTarget();
-                if (target instanceof ResidentialBuilding) {
-                    ResidentialBuilding building = (ResidentialBuilding) target;
-                    if (building.getStructuralIntegrity() != 0) return false;
-                } else {
-                    Citizen citizen = (Citizen) target;
-                    if (citizen.getState() != CitizenState.DECEASED) return false;
-                }
-            }
+    public void addSimulationListener(SimulationListener listener) {
+        simulationListeners.add(listener);
+    }
+
+    public void removeSimulationListener(SimulationListener listener) {
+        simulationListeners.remove(listener);
+    }
+
+    public boolean isHeadless() {
+        return simulationListeners.isEmpty();
+    }
+
+    @Override
+    public void disasterActivityChanged(Disaster disaster) {
+        if (StateEventBuffer.defer(StateEventBuffer.DISASTER_ACTIVITY, this, disaster, null)) return;
+        ledger.update(disaster);
+    }
+
+    @Override
+    public void citizenStateChanged(Citizen citizen, CitizenState oldState) {
+        if (StateEventBuffer.defer(StateEventBuffer.CITIZEN_STATE, this, citizen, oldState)) return;
+        if (snapshots != null) snapshots.markCitizen(citizen);
+        boolean wasDead = oldState == CitizenState.DECEASED;
+        boolean dead = citizen.getState() == CitizenState.DECEASED;
+        if (wasDead == dead) return;
+        ledger.targetLivenessChanged(citizen);
+        if (countedCitizens == citizens.getModCount()) casualties += dead ? 1 : -1;
+        if (dead && !isHeadless()) diedThisCycle.add(citizen);
+    }
+
+    @Override
+    public void citizenDamaged(Citizen citizen) {
+        if (StateEventBuffer.defer(StateEventBuffer.CITIZEN_DAMAGE, this, citizen, null)) return;
+        if (snapshots != null) snapshots.markCitizen(citizen);
+        if (needsStep(citizen)) damagedCitizens.add(citizen);
+    }
+
+    @Override
+    public void buildingCollapseChanged(ResidentialBuilding building) {
+        if (StateEventBuffer.defer(StateEventBuffer.BUILDING_COLLAPSE, this, building, null)) return;
+        if (snapshots != null) snapshots.markBuilding(building);
+        ledger.targetLivenessChanged(building);
+        if (building.getStructuralIntegrity() == 0 && !isHeadless()) collapsedThisCycle.add(building);
+    }
+
+    @Override
+    public void buildingDamaged(ResidentialBuilding building) {
+        if (StateEventBuffer.defer(StateEventBuffer.BUILDING_DAMAGE, this, building, null)) return;
+        if (snapshots != null) snapshots.markBuilding(building);
+        if (needsStep(building)) damagedBuildings.add(building);
+    }
+
+    @Override
+    public void unitStateChanged(Unit unit, UnitState oldState) {
+        if (StateEventBuffer.defer(StateEventBuffer.UNIT_STATE, this, unit, oldState)) return;
+        if (snapshots != null) snapshots.markUnit(unit);
+        boolean wasBusy = oldState != UnitState.IDLE;
+        boolean busy = unit.getState() != UnitState.IDLE;
+        if (wasBusy != busy && countedUnits == emergencyUnits.getModCount()) busyUnits += busy ? 1 : -1;
+    }
+
+    // Entities attached to the population store are stepped on its columns, the rest through their own cycleStep.
+    private void stepBuilding(ResidentialBuilding building) {
+        if (store != null && building.getStore() == store) {
+            store.stepBuilding(building);
+        } else {
+            building.cycleStep();
         }
-        for (Unit unit : emergencyUnits) {
-            if (unit.getState() != UnitState.IDLE) return false;
+    }
+
+    private void stepCitizen(Citizen citizen) {
+        if (store != null && citizen.getStore() == store) {
+            store.stepCitizen(citizen);
+        } else {
+            citizen.cycleStep();
         }
-        return true;
     }
 
-    public int calculateCasualties() {
-        int casualties = 0;
+    private static boolean needsStep(Citizen citizen) {
+        if (citizen.getState() == CitizenState.DECEASED) return false;
+        return citizen.getBloodLoss() > 0 || citizen.getToxicity() > 0;
+    }
+
+    private static boolean needsStep(ResidentialBuilding building) {
+        if (building.getFireDamage() > 0) return true;
+        return building.getFoundationDamage() > 0 && building.getStructuralIntegrity() != 0;
+    }
+
+    // Only plain entities this simulator loaded move into the store; injected or subclassed ones keep their own
+    // fields and cycleStep.
+    private boolean isRegistered(Citizen citizen) {
+        int id = citizen.getEntityId();
+        return id >= 0 && id < registry.getCitizenCount() && registry.getCitizen(id) == citizen
+                && citizen.getClass() == Citizen.class;
+    }
+
+    private boolean isRegistered(ResidentialBuilding building) {
+        int id = building.getEntityId();
+        return id >= 0 && id < registry.getBuildingCount() && registry.getBuilding(id) == building
+                && building.getClass() == ResidentialBuilding.class;
+    }
+
+    private void recountBuildings() {
+        if (countedBuildings == buildings.getModCount()) return;
+        damagedBuildings.clear();
+        for (int i = 0; i < buildings.size(); i++) {
+            ResidentialBuilding building = buildings.get(i);
+            building.setStateListener(this);
+            if (building.getRandomStream() == null) building.setRandomStream(randomService.newStream(ADOPTED_STREAMS + i));
+            if (store != null && isRegistered(building)) store.attach(building);
+            damagedBuildings.add(building);
+        }
+        countedBuildings = buildings.getModCount();
+        if (settings.isZeroAllocation()) reserveCapacity();
+    }
+
+    private void recountCitizens() {
+        if (countedCitizens == citizens.getModCount()) return;
+        casualties = 0;
+        damagedCitizens.clear();
         for (Citizen citizen : citizens) {
+            citizen.setStateListener(this);
             if (citizen.getState() == CitizenState.DECEASED) casualties++;
+            if (store != null && isRegistered(citizen)) store.attach(citizen);
+            damagedCitizens.add(citizen);
         }
+        countedCitizens = citizens.getModCount();
+        if (settings.isZeroAllocation()) reserveCapacity();
+    }
+
+    private void recountUnits() {
+        if (countedUnits == emergencyUnits.getModCount()) return;
+        busyUnits = 0;
+        for (Unit unit : emergencyUnits) {
+            unit.setStateListener(this);
+            if (unit.getState() != UnitState.IDLE) busyUnits++;
+        }
+        countedUnits = emergencyUnits.getModCount();
+    }
+
+    public boolean checkGameOver() {
+        if (schedule.size() > 0) return false;
+        if (ledger.countActiveOnLiveTargets() > 0) return false;
+        recountUnits();
+        return busyUnits == 0;
+    }
+
+    public int calculateCasualties() {
+        recountCitizens();
         return casualties;
     }
 
+    // Jumps over cycles in which nothing but travel and decay happens: no strike, arrival, death, collapse or
+    // fire turning into a Collapse. The forecasts bound the jump and the damaged entities decay in bulk, leaving
+    // the simulator in the same state stepping through the cycles would. Returns how many cycles were skipped.
+    public int skipQuietCycles(int maxCycles) {
+        recountBuildings();
+        recountCitizens();
+        recountUnits();
+        long quiet = Math.min(maxCycles, (long) schedule.nextStartCycle() - currentCycle - 1);
+        for (int i = 0; i < emergencyUnits.size() && quiet > 0; i++) {
+            quiet = Math.min(quiet, emergencyUnits.get(i).countQuietCycles());
+        }
+        for (int i = 0; i < damagedBuildings.size() && quiet > 0; i++) {
+            quiet = Math.min(quiet, countQuietCycles(damagedBuildings.get(i)));
+        }
+        for (int i = 0; i < damagedCitizens.size() && quiet > 0; i++) {
+            quiet = Math.min(quiet, countQuietCycles(damagedCitizens.get(i)));
+        }
+        for (int i = 0; i < ledger.countActive() && quiet > 0; i++) {
+            Disaster disaster = ledger.getActive(i);
+            quiet = Math.min(quiet, disaster.countQuietCycles());
+            if (isFirstOnUnlistedTarget(disaster)) quiet = Math.min(quiet, countQuietCycles(disaster.getTarget()));
+        }
+        if (quiet <= 0) return 0;
+        int cycles = (int) quiet;
+        for (int i = 0; i < emergencyUnits.size(); i++) {
+            emergencyUnits.get(i).skipCycles(cycles);
+        }
+        for (int i = 0; i < damagedBuildings.size(); i++) {
+            decay(damagedBuildings.get(i), cycles);
+        }
+        for (int i = 0; i < damagedCitizens.size(); i++) {
+            decay(damagedCitizens.get(i), cycles);
+        }
+        for (int i = 0; i < ledger.countActive(); i++) {
+            Disaster disaster = ledger.getActive(i);
+            if (isFirstOnUnlistedTarget(disaster)) decay(disaster.getTarget(), cycles);
+        }
+        for (int i = 0; i < ledger.countActive(); i++) {
+            ledger.getActive(i).skipCycles(cycles);
+        }
+        currentCycle += cycles;
+        if (mappedStore != null) mappedStore.setCycle(currentCycle);
+        if (snapshots != null) publishSnapshot();
+        if (!isHeadless()) {
+            for (SimulationListener listener : simulationListeners) {
+                listener.cycleEnded(this, currentCycle);
+            }
+        }
+        return cycles;
+    }
+
+    // An entity off the damage worklists starts to decay once its disasters tick; it is looked at once, through
+    // the first disaster active on it.
+    private boolean isFirstOnUnlistedTarget(Disaster disaster) {
+        Rescuable target = disaster.getTarget();
+        if (ledger.getActiveOn(target).get(0) != disaster) return false;
+        if (target instanceof ResidentialBuilding) return !damagedBuildings.contains((ResidentialBuilding) target);
+        return target instanceof Citizen && !damagedCitizens.contains((Citizen) target);
+    }
+
+    private long countQuietCycles(Rescuable target) {
+        if (target instanceof ResidentialBuilding) return countQuietCycles((ResidentialBuilding) target);
+        if (target instanceof Citizen) return countQuietCycles((Citizen) target);
+        return 0;
+    }
+
+    // Cycles that can pass before the building can collapse, a fire on it reaches 100 or gas kills its occupants.
+    // Subclasses may step differently, so they are never skipped.
+    private long countQuietCycles(ResidentialBuilding building) {
+        if (building.getClass() != ResidentialBuilding.class) return 0;
+        int fire = building.getFireDamage();
+        int firePerCycle = ratePerCycle(building, TypeRegistry.FIRE, 10);
+        long quiet = fire >= 100 ? 0 : firePerCycle > 0 ? (99 - fire + firePerCycle) / firePerCycle : Long.MAX_VALUE;
+        if (building.getStructuralIntegrity() > 0) quiet = Math.min(quiet, cyclesUntilCollapse(building) - 1L);
+        if (building.countAliveOccupants() > 0) quiet = Math.min(quiet, cyclesUntilLethalGas(building) - 1L);
+        return quiet;
+    }
+
+    private long countQuietCycles(Citizen citizen) {
+        if (citizen.getState() == CitizenState.DECEASED) return Long.MAX_VALUE;
+        if (citizen.getClass() != Citizen.class) return 0;
+        return cyclesUntilDeath(citizen) - 1L;
+    }
+
+    private void decay(Rescuable target, int cycles) {
+        if (target instanceof ResidentialBuilding) decay((ResidentialBuilding) target, cycles);
+        else if (target instanceof Citizen) decay((Citizen) target, cycles);
+    }
+
+    // The integrity lost over quiet cycles, with the foundation decay drawn from the building's own stream once
+    // for every cycle that steps it with foundation damage. A collapsed building is only stepped while it burns.
+    // The double-buffered engine takes each cycle's losses from the levels before that cycle's ticks.
+    private void decay(ResidentialBuilding building, int cycles) {
+        int first = cycleBuffer != null ? 0 : 1;
+        int fire = building.getFireDamage();
+        int firePerCycle = ratePerCycle(building, TypeRegistry.FIRE, 10);
+        int foundationPerCycle = ratePerCycle(building, TypeRegistry.COLLAPSE, 10);
+        long loss = OutcomePredictor.fireLossOver(fire, firePerCycle, first, cycles);
+        long drawsFrom = building.getFoundationDamage() > 0 ? 0 : foundationPerCycle > 0 ? 1 : Long.MAX_VALUE;
+        if (building.getStructuralIntegrity() == 0) {
+            drawsFrom = Math.max(drawsFrom, fire > 0 ? 0 : firePerCycle > 0 ? 1 : Long.MAX_VALUE);
+        }
+        for (long cycle = Math.max(first, drawsFrom); cycle < first + cycles; cycle++) {
+            loss += building.foundationLoss();
+        }
+        if (loss > 0) building.setStructuralIntegrity((int) Math.max(building.getStructuralIntegrity() - loss, 0));
+    }
+
+    private void decay(Citizen citizen, int cycles) {
+        if (citizen.getState() == CitizenState.DECEASED) return;
+        int first = cycleBuffer != null ? 0 : 1;
+        long loss = OutcomePredictor.citizenDamageOver(citizen.getBloodLoss(), ratePerCycle(citizen, TypeRegistry.INJURY, 10), first, cycles)
+                + OutcomePredictor.citizenDamageOver(citizen.getToxicity(), ratePerCycle(citizen, TypeRegistry.INFECTION, 15), first, cycles);
+        if (loss > 0) citizen.setHp((int) Math.max(citizen.getHp() - loss, 0));
+    }
+
     public void nextCycle() throws DisasterException {
         currentCycle++;
-
-        StringBuilder cycleLog = new StringBuilder();
-        boolean[] wasCollapsed = new boolean[buildings.size()];
-        boolean[] wasDead = new boolean[citizens.size()];
-        for (int i = 0; i < buildings.size(); i++) {
-            wasCollapsed[i] = buildings.get(i).getStructuralIntegrity() == 0;
+        if (mappedStore != null) mappedStore.setCycle(currentCycle);
+        try {
+            stepCycle();
+        } finally {
+            // A strike that throws ends the cycle early; readers still get the world it left behind.
+            if (snapshots != null) publishSnapshot();
         }
-        for (int i = 0; i < citizens.size(); i++) {
-            wasDead[i] = citizens.get(i).getState() == CitizenState.DECEASED;
+
+        if (!isHeadless()) {
+            for (ResidentialBuilding building : collapsedThisCycle) {
+                for (SimulationListener listener : simulationListeners) {
+                    listener.buildingCollapsed(building);
+                }
+            }
+            for (Citizen citizen : diedThisCycle) {
+                for (SimulationListener listener : simulationListeners) {
+                    listener.citizenDied(citizen);
+                }
+            }
+            collapsedThisCycle.clear();
+            diedThisCycle.clear();
+            for (SimulationListener listener : simulationListeners) {
+                listener.cycleEnded(this, currentCycle);
+            }
         }
+    }
 
-        for (int i = 0; i < plannedDisasters.size(); ) {
-            Disaster disaster = plannedDisasters.get(i);
-            if (disaster.getStartCycle() == currentCycle) {
-                plannedDisasters.remove(disaster);
+    private void stepCycle() throws DisasterException {
+        recountBuildings();
+        recountCitizens();
+        recountUnits();
+        collapsedThisCycle.clear();
+        diedThisCycle.clear();
+
+        ArrayList<Disaster> dueDisasters = schedule.pollDue(currentCycle);
+        if (dueDisasters != null) {
+            for (Disaster disaster : dueDisasters) {
                 Disaster newDisaster = null;
                 if (disaster.getTarget() instanceof ResidentialBuilding) {
                     ResidentialBuilding building = (ResidentialBuilding) disaster.getTarget();
-                    Disaster currentDisaster = building.getDisaster();
-                    if (currentDisaster instanceof GasLeak && disaster instanceof Fire) {
-                        int gasLevel = building.getGasLevel();
-                        if (gasLevel == 0) {
-                            newDisaster = disaster;
-                        } else if (0 < gasLevel && gasLevel < 70) {
+                    switch (InteractionRules.resolve(building, disaster)) {
+                        case InteractionRules.COLLAPSE:
                             newDisaster = new Collapse(currentCycle, building);
-                        } else if (70 <= gasLevel) {
+                            break;
+                        case InteractionRules.DESTROY:
                             building.setStructuralIntegrity(0);
-                        }
-                    } else if (currentDisaster instanceof Fire && disaster instanceof GasLeak) {
-                        newDisaster = new Collapse(currentCycle, building);
-                    } else {
-                        newDisaster = disaster;
+                            break;
+                        default:
+                            newDisaster = disaster;
+                            break;
                     }
                     if (newDisaster != null && building.getFireDamage() != 100) {
-                        if (newDisaster instanceof Collapse) {
-                            for (Disaster exDisaster : executedDisasters) {
-                                if (exDisaster.isActive() && exDisaster.getTarget() == building) {
-                                    exDisaster.setActive(false);
-                                }
-                            }
+                        if (TypeRegistry.typeOf(newDisaster) == TypeRegistry.COLLAPSE) {
+                            ledger.deactivateAll(building);
                             building.setFireDamage(0);
                         }
                         newDisaster.strike();
-                        executedDisasters.add(newDisaster);
-                        cycleLog.append(newDisaster.getClass().getSimpleName()).append(" occurred on ResidentialBuilding at (")
-                                .append(building.getLocation().getX()).append(",").append(building.getLocation().getY()).append(").\n");
+                        ledger.add(newDisaster);
+                        for (SimulationListener listener : simulationListeners) {
+                            listener.disasterStruck(newDisaster);
+                        }
                     }
                 } else {
-                    Citizen citizen = (Citizen) disaster.getTarget();
                     disaster.strike();
-                    executedDisasters.add(disaster);
-                    cycleLog.append(disaster.getClass().getSimpleName()).append(" occurred on Citizen at (")
-                            .append(citizen.getLocation().getX()).append(",").append(citizen.getLocation().getY()).append(").\n");
+                    ledger.add(disaster);
+                    for (SimulationListener listener : simulationListeners) {
+                        listener.disasterStruck(disaster);
+                    }
                 }
-            } else {
-                i++;
             }
         }
-        for (ResidentialBuilding building : buildings) {
+        for (int i = 0; i < damagedBuildings.size(); i++) {
+            ResidentialBuilding building = damagedBuildings.get(i);
             if (building.getFireDamage() == 100) {
                 Collapse collapse = new Collapse(currentCycle, building);
-                for (Disaster exDisaster : executedDisasters) {
-                    if (exDisaster.isActive() && exDisaster.getTarget() == building) {
-                        exDisaster.setActive(false);
-                    }
-                }
+                ledger.deactivateAll(building);
                 building.setFireDamage(0);
                 collapse.strike();
-                executedDisasters.add(collapse);
+                ledger.add(collapse);
             }
         }
-        for (Unit unit : emergencyUnits) {
-            unit.cycleStep();
+        if (cycleBuffer != null) cycleBuffer.capture(damagedBuildings, damagedCitizens, executor);
+        if (executor != null && emergencyUnits.size() >= PhaseExecutor.MIN_PARALLEL_ITEMS) {
+            stepUnitsInParallel();
+        } else {
+            for (int i = 0; i < emergencyUnits.size(); i++) {
+                emergencyUnits.get(i).cycleStep();
+            }
         }
-        for (Disaster disaster : executedDisasters) {
-            if (disaster.isActive() && disaster.getStartCycle() < currentCycle) disaster.cycleStep();
+        if (regionRunner != null) {
+            stepDisastersInRegion();
+        } else if (executor != null && ledger.countActive() >= PhaseExecutor.MIN_PARALLEL_ITEMS) {
+            stepDisastersInParallel();
+        } else {
+            for (int i = 0; i < ledger.countActive(); i++) {
+                Disaster disaster = ledger.getActive(i);
+                if (disaster.getStartCycle() < currentCycle) disaster.cycleStep();
+            }
         }
-        for (int i = 0; i < buildings.size(); i++) {
-            ResidentialBuilding building = buildings.get(i);
-            building.cycleStep();
-            if (!wasCollapsed[i] && building.getStructuralIntegrity() == 0) {
-                cycleLog.append("ResidentialBuilding has just collapsed at location (")
-                        .append(building.getLocation().getX()).append(",")
-                        .append(building.getLocation().getY()).append(").\n");
+        if (cycleBuffer != null) {
+            cycleBuffer.commit();
+        } else {
+            if (regionRunner != null) {
+                runInRegion(damagedBuildings.size(), buildingStep);
+            } else if (executor != null && damagedBuildings.size() >= PhaseExecutor.MIN_PARALLEL_ITEMS) {
+                executor.run(buildingPhase, damagedBuildings.size());
+            } else {
+                for (int i = 0; i < damagedBuildings.size(); i++) {
+                    stepBuilding(damagedBuildings.get(i));
+                }
+            }
+            if (store != null && store.getHealthKernel() != null) {
+                store.stepCitizens(damagedCitizens);
+            } else if (regionRunner != null) {
+                runInRegion(damagedCitizens.size(), citizenStep);
+            } else if (executor != null && damagedCitizens.size() >= PhaseExecutor.MIN_PARALLEL_ITEMS) {
+                executor.run(citizenPhase, damagedCitizens.size());
+            } else {
+                for (int i = 0; i < damagedCitizens.size(); i++) {
+                    stepCitizen(damagedCitizens.get(i));
+                }
             }
         }
-        for (int i = 0; i < citizens.size(); i++) {
-            Citizen citizen = citizens.get(i);
-            citizen.cycleStep();
-            if (!wasDead[i] && citizen.getState() == CitizenState.DECEASED) {
-                cycleLog.append("Citizen ").append(citizen.getName()).append(" has just died at location (")
-                        .append(citizen.getLocation().getX()).append(",")
-                        .append(citizen.getLocation().getY()).append(").\n");
+        damagedBuildings.retainPending();
+        damagedCitizens.retainPending();
+    }
+
+    // A unit only touches its target, and its passengers who stand on the target's cell until they are dropped
+    // at the base, so the units heading for one cell are a group that runs on a single thread in list order.
+    // Units without a target group by the cell they stand in.
+    private void stepUnitsInParallel() {
+        unitOrder.clear();
+        unitGroupByCell.clear();
+        for (int i = 0; i < emergencyUnits.size(); i++) {
+            Unit unit = emergencyUnits.get(i);
+            Rescuable target = unit.getTarget();
+            long cell = target != null ? target.getLocation().getPacked() : unit.getCell();
+            int group = unitGroupByCell.get(cell, -1);
+            if (group < 0) {
+                group = unitOrder.getGroupCount();
+                unitGroupByCell.put(cell, group);
             }
+            unitOrder.add(group);
         }
+        unitOrder.run(executor, unitPhase);
+    }
 
-        if (cycleLog.length() > 0) {
-            cycleLog.insert(0, "Cycle " + currentCycle + ":\n");
-            gameView.addToLog(cycleLog.toString());
-        }
-        gameView.setCycleInfo(currentCycle, calculateCasualties());
-        gameView.invalidateUnitsPanel();
-        StringBuilder activeDisasters = new StringBuilder();
-        for (Disaster disaster : executedDisasters) {
-            if (disaster.isActive()) {
-                Rescuable rescuable = disaster.getTarget();
-                activeDisasters.append(disaster.getClass().getSimpleName()).append(" on ")
-                        .append(rescuable.getClass().getSimpleName()).append(" at (")
-                        .append(rescuable.getLocation().getX()).append(",")
-                        .append(rescuable.getLocation().getY()).append(")\n");
+    // Disasters on the same cell can touch the same building and its occupants, so each cell is one group
+    // that runs on a single thread in ledger order.
+    private void stepDisastersInParallel() {
+        int count = 0;
+        disasterOrder.clear();
+        disasterGroupByCell.clear();
+        for (int i = 0; i < ledger.countActive(); i++) {
+            Disaster disaster = ledger.getActive(i);
+            if (disaster.getStartCycle() >= currentCycle) continue;
+            if (count == disasterBatch.length) disasterBatch = Arrays.copyOf(disasterBatch, count << 1);
+            long cell = disaster.getTarget().getLocation().getPacked();
+            int group = disasterGroupByCell.get(cell, -1);
+            if (group < 0) {
+                group = disasterOrder.getGroupCount();
+                disasterGroupByCell.put(cell, group);
             }
+            disasterBatch[count++] = disaster;
+            disasterOrder.add(group);
         }
-        gameView.setActiveDisasters(activeDisasters.toString().trim());
-        gameView.updateGrid();
+        disasterOrder.run(executor, disasterPhase);
+        Arrays.fill(disasterBatch, 0, count, null);
     }
 
-    public void setGameView(GameView gameView) {
-        this.gameView = gameView;
+    private void stepDisastersInRegion() {
+        int count = 0;
+        for (int i = 0; i < ledger.countActive(); i++) {
+            Disaster disaster = ledger.getActive(i);
+            if (disaster.getStartCycle() >= currentCycle) continue;
+            if (count == disasterBatch.length) disasterBatch = Arrays.copyOf(disasterBatch, count << 1);
+            disasterBatch[count++] = disaster;
+        }
+        runInRegion(count, disasterStep);
+        Arrays.fill(disasterBatch, 0, count, null);
+    }
+
+    private void runInRegion(int count, RegionRunner.Step step) {
+        try {
+            regionRunner.run(count, step);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 }
@@ -0,0 +1,76 @@
+package simulation;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+// The rows of one kind of entity in one version, held in fixed-size chunks. A version copies only the chunks
+// that hold a changed row and shares every other chunk with the version before it.
+final class SnapshotRows<T> extends AbstractList<T> implements RandomAccess {
+
+    private static final int CHUNK_BITS = 8;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private final Object[][] chunks;
+    private final int size;
+
+    private SnapshotRows(Object[][] chunks, int size) {
+        this.chunks = chunks;
+        this.size = size;
+    }
+
+    static <T> SnapshotRows<T> empty() {
+        return new SnapshotRows<T>(new Object[0][], 0);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T get(int index) {
+        if (index < 0 || index >= size) throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        return (T) chunks[index >>> CHUNK_BITS][index & CHUNK_MASK];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    // Collects the rows that changed since a version and builds the next one from it. Only used by the
+    // simulation thread while it publishes.
+    static final class Builder<T> {
+
+        private SnapshotRows<T> base;
+        private Object[][] chunks;
+        private int size;
+
+        void start(SnapshotRows<T> base, int size) {
+            this.base = base;
+            this.size = size;
+            int count = (size + CHUNK_MASK) >>> CHUNK_BITS;
+            chunks = count == base.chunks.length ? base.chunks.clone() : Arrays.copyOf(base.chunks, count);
+        }
+
+        @SuppressWarnings("unchecked")
+        T get(int index) {
+            return index < base.size ? (T) chunks[index >>> CHUNK_BITS][index & CHUNK_MASK] : null;
+        }
+
+        void set(int index, T row) {
+            int chunk = index >>> CHUNK_BITS;
+            if (chunk >= base.chunks.length) {
+                if (chunks[chunk] == null) chunks[chunk] = new Object[CHUNK_SIZE];
+            } else if (chunks[chunk] == base.chunks[chunk]) {
+                chunks[chunk] = base.chunks[chunk].clone();
+            }
+            chunks[chunk][index & CHUNK_MASK] = row;
+        }
+
+        SnapshotRows<T> build() {
+            SnapshotRows<T> rows = new SnapshotRows<T>(chunks, size);
+            base = null;
+            chunks = null;
+            return rows;
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package simulation;
+
+import model.infrastructure.ResidentialBuilding;
+import model.people.Citizen;
+import model.people.CitizenState;
+import model.units.Evacuator;
+import model.units.Unit;
+import model.units.UnitState;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+// Versions of the world, one per cycle, published by the simulation thread and read by any number of others.
+// Building a version happens outside the lock, so the simulation thread only waits for the moment it takes a
+// reader to pin or release. The latest version is always kept; older ones are dropped once nobody pins them.
+// A version only takes new snapshots of the rows marked since the one before it: the simulator marks what its
+// worklists, disasters and events touch, and busy units mark themselves, their targets and their passengers
+// until the version after they go idle.
+public class SnapshotStore {
+
+    private final ArrayList<SnapshotVersion> versions = new ArrayList<>();
+    private SnapshotVersion latest;
+
+    // Only touched by the simulation thread.
+    private final MarkedRows markedBuildings = new MarkedRows();
+    private final MarkedRows markedCitizens = new MarkedRows();
+    private final MarkedRows markedUnits = new MarkedRows();
+    private final SnapshotRows.Builder<BuildingSnapshot> buildingRows = new SnapshotRows.Builder<>();
+    private final SnapshotRows.Builder<CitizenSnapshot> citizenRows = new SnapshotRows.Builder<>();
+    private final SnapshotRows.Builder<UnitSnapshot> unitRows = new SnapshotRows.Builder<>();
+    // The target each unit had at the last version it was taken in; a unit that finishes a job drops its target
+    // in the same step it changes it for the last time.
+    private Rescuable[] lastTargets = new Rescuable[16];
+
+    void markBuilding(ResidentialBuilding building) {
+        markedBuildings.mark(building.getEntityId());
+    }
+
+    void markCitizen(Citizen citizen) {
+        markedCitizens.mark(citizen.getEntityId());
+    }
+
+    void markUnit(Unit unit) {
+        markedUnits.mark(unit.getEntityId());
+    }
+
+    // Only called from the simulation thread, which is also the only writer of latest.
+    void publish(Simulator simulator, int cycle) {
+        ArrayList<ResidentialBuilding> buildingList = simulator.getBuildings();
+        ArrayList<Citizen> citizenList = simulator.getCitizens();
+        ArrayList<Unit> unitList = simulator.getEmergencyUnits();
+        SnapshotVersion previous = latest;
+        SnapshotRows<BuildingSnapshot> oldBuildings = previous != null
+                ? previous.getBuildings() : SnapshotRows.<BuildingSnapshot>empty();
+        SnapshotRows<CitizenSnapshot> oldCitizens = previous != null
+                ? previous.getCitizens() : SnapshotRows.<CitizenSnapshot>empty();
+        SnapshotRows<UnitSnapshot> oldUnits = previous != null
+                ? previous.getEmergencyUnits() : SnapshotRows.<UnitSnapshot>empty();
+        markAll(markedBuildings, oldBuildings.size(), buildingList.size());
+        markAll(markedCitizens, oldCitizens.size(), citizenList.size());
+        markAll(markedUnits, oldUnits.size(), unitList.size());
+
+        // Units first, since a busy unit marks the rows it works on.
+        unitRows.start(oldUnits, unitList.size());
+        int count = markedUnits.drain();
+        for (int i = 0; i < count; i++) {
+            int row = markedUnits.take(i);
+            if (row >= unitList.size()) continue;
+            Unit unit = unitList.get(row);
+            unitRows.set(row, new UnitSnapshot(unit));
+            if (row >= lastTargets.length) {
+                lastTargets = Arrays.copyOf(lastTargets, Math.max(lastTargets.length << 1, row + 1));
+            }
+            markTarget(lastTargets[row]);
+            lastTargets[row] = unit.getTarget();
+            if (unit.getState() == UnitState.IDLE) continue;
+            markedUnits.mark(row);
+            markTarget(unit.getTarget());
+            if (unit instanceof Evacuator) {
+                for (Citizen passenger : ((Evacuator) unit).getPassengers()) {
+                    markCitizen(passenger);
+                }
+            }
+        }
+
+        buildingRows.start(oldBuildings, buildingList.size());
+        count = markedBuildings.drain();
+        for (int i = 0; i < count; i++) {
+            int row = markedBuildings.take(i);
+            if (row < buildingList.size()) buildingRows.set(row, new BuildingSnapshot(buildingList.get(row)));
+        }
+
+        int casualties = previous != null ? previous.getCasualties() : 0;
+        citizenRows.start(oldCitizens, citizenList.size());
+        count = markedCitizens.drain();
+        for (int i = 0; i < count; i++) {
+            int row = markedCitizens.take(i);
+            if (row >= citizenList.size()) continue;
+            CitizenSnapshot old = citizenRows.get(row);
+            CitizenSnapshot snapshot = new CitizenSnapshot(citizenList.get(row));
+            if (old != null && old.getState() == CitizenState.DECEASED) casualties--;
+            if (snapshot.getState() == CitizenState.DECEASED) casualties++;
+            citizenRows.set(row, snapshot);
+        }
+
+        SnapshotVersion version = new SnapshotVersion(cycle, buildingRows.build(), citizenRows.build(),
+                unitRows.build(), casualties);
+        synchronized (this) {
+            versions.add(version);
+            latest = version;
+            reclaim();
+        }
+    }
+
+    // The most recent cycle. Every pin is its own handle and must be closed by the reader that took it.
+    public synchronized WorldSnapshot pin() {
+        if (latest == null) throw new IllegalStateException("No cycle has been published yet");
+        return new WorldSnapshot(this, latest);
+    }
+
+    public synchronized WorldSnapshot pin(int cycle) {
+        for (int i = versions.size() - 1; i >= 0; i--) {
+            SnapshotVersion version = versions.get(i);
+            if (version.getCycle() == cycle) return new WorldSnapshot(this, version);
+        }
+        throw new IllegalArgumentException("Cycle " + cycle + " is not retained");
+    }
+
+    synchronized void release(SnapshotVersion version) {
+        version.setPins(version.getPins() - 1);
+        reclaim();
+    }
+
+    public synchronized int getVersionCount() {
+        return versions.size();
+    }
+
+    private void reclaim() {
+        for (int i = versions.size() - 2; i >= 0; i--) {
+            if (versions.get(i).getPins() == 0) versions.remove(i);
+        }
+    }
+
+    private void markTarget(Rescuable target) {
+        if (target instanceof ResidentialBuilding) {
+            markBuilding((ResidentialBuilding) target);
+        } else if (target instanceof Citizen) {
+            markCitizen((Citizen) target);
+        }
+    }
+
+    // Rows that appeared since the last version have no snapshot to share yet.
+    private static void markAll(MarkedRows marked, int from, int to) {
+        for (int row = from; row < to; row++) {
+            marked.mark(row);
+        }
+    }
+
+    // Row numbers marked once each until they are taken; a row taken while draining can be marked again for the
+    // next version.
+    private static final class MarkedRows {
+
+        private int[] rows = new int[16];
+        private boolean[] marked = new boolean[16];
+        private int count;
+
+        void mark(int row) {
+            if (row < 0) return;
+            if (row >= marked.length) marked = Arrays.copyOf(marked, Math.max(marked.length << 1, row + 1));
+            if (marked[row]) return;
+            marked[row] = true;
+            if (count == rows.length) rows = Arrays.copyOf(rows, count << 1);
+            rows[count++] = row;
+        }
+
+        // Hands the marked rows to take and starts an empty set. A row marked again while draining is written
+        // over one that was already taken, so the two never collide.
+        int drain() {
+            int drained = count;
+            count = 0;
+            return drained;
+        }
+
+        int take(int index) {
+            int row = rows[index];
+            marked[row] = false;
+            return row;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package simulation;
+
+// One published cycle, shared by every reader that pins it. Rows that did not change since the previous
+// version share their snapshots, and the chunks holding them, with it.
+final class SnapshotVersion {
+
+    private final int cycle;
+    private final SnapshotRows<BuildingSnapshot> buildings;
+    private final SnapshotRows<CitizenSnapshot> citizens;
+    private final SnapshotRows<UnitSnapshot> emergencyUnits;
+    private final int casualties;
+    private int pins;
+
+    SnapshotVersion(int cycle, SnapshotRows<BuildingSnapshot> buildings, SnapshotRows<CitizenSnapshot> citizens,
+                    SnapshotRows<UnitSnapshot> emergencyUnits, int casualties) {
+        this.cycle = cycle;
+        this.buildings = buildings;
+        this.citizens = citizens;
+        this.emergencyUnits = emergencyUnits;
+        this.casualties = casualties;
+    }
+
+    int getCycle() {
+        return cycle;
+    }
+
+    SnapshotRows<BuildingSnapshot> getBuildings() {
+        return buildings;
+    }
+
+    SnapshotRows<CitizenSnapshot> getCitizens() {
+        return citizens;
+    }
+
+    SnapshotRows<UnitSnapshot> getEmergencyUnits() {
+        return emergencyUnits;
+    }
+
+    int getCasualties() {
+        return casualties;
+    }
+
+    // Guarded by the store.
+    int getPins() {
+        return pins;
+    }
+
+    void setPins(int pins) {
+        this.pins = pins;
+    }
+}
@@ -0,0 +1,43 @@
+package simulation;
+
+import simulation.util.LongObjectMap;
+
+public class SpatialIndex<T> {
+
+    private LongObjectMap<T> cells;
+
+    public SpatialIndex() {
+        cells = new LongObjectMap<>();
+    }
+
+    public SpatialIndex(int expectedSize) {
+        cells = new LongObjectMap<>(expectedSize);
+    }
+
+    public T get(int x, int y) {
+        return cells.get(Coordinates.pack(x, y));
+    }
+
+    public T get(long cell) {
+        return cells.get(cell);
+    }
+
+    public T get(Address location) {
+        return cells.get(location.getPacked());
+    }
+
+    public boolean add(Address location, T value) {
+        long cell = location.getPacked();
+        if (cells.containsKey(cell)) return false;
+        cells.put(cell, value);
+        return true;
+    }
+
+    public T remove(Address location) {
+        return cells.remove(location.getPacked());
+    }
+
+    public int size() {
+        return cells.size();
+    }
+}
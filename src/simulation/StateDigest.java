@@ -0,0 +1,163 @@
+package simulation;
+
+import model.disasters.Disaster;
+import model.infrastructure.ResidentialBuilding;
+import model.people.Citizen;
+import model.units.PoliceUnit;
+import model.units.Unit;
+import simulation.util.RandomStream;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+// One hash per entity over every field the rules read or write. Two digests are compared hash by hash, and
+// only the first mismatching entity is read again field by field to name the difference, so a clean cycle
+// costs one pass over each population.
+class StateDigest {
+
+    static final String[] BUILDING_FIELDS = {"location", "structuralIntegrity", "fireDamage", "gasLevel",
+            "foundationDamage", "occupants", "disaster"};
+    static final String[] CITIZEN_FIELDS = {"location", "hp", "bloodLoss", "toxicity", "state", "dead", "disaster"};
+    static final String[] UNIT_FIELDS = {"location", "state", "target", "quietCycles", "passengers", "distanceToBase"};
+    static final String[] SIMULATOR_FIELDS = {"buildings", "citizens", "units", "casualties", "activeDisasters",
+            "gameOver"};
+
+    private long[] buildings = new long[16];
+    private long[] citizens = new long[16];
+    private long[] units = new long[16];
+    private int buildingCount, citizenCount, unitCount;
+    private long[] simulator = new long[SIMULATOR_FIELDS.length];
+    private long[] fields = new long[8];
+
+    void capture(Simulator source) {
+        ArrayList<ResidentialBuilding> buildingList = source.getBuildings();
+        buildingCount = buildingList.size();
+        if (buildings.length < buildingCount) buildings = new long[buildingCount];
+        for (int i = 0; i < buildingCount; i++) {
+            buildings[i] = hash(fields, readBuilding(buildingList.get(i), fields));
+        }
+        ArrayList<Citizen> citizenList = source.getCitizens();
+        citizenCount = citizenList.size();
+        if (citizens.length < citizenCount) citizens = new long[citizenCount];
+        for (int i = 0; i < citizenCount; i++) {
+            citizens[i] = hash(fields, readCitizen(citizenList.get(i), fields));
+        }
+        ArrayList<Unit> unitList = source.getEmergencyUnits();
+        unitCount = unitList.size();
+        if (units.length < unitCount) units = new long[unitCount];
+        for (int i = 0; i < unitCount; i++) {
+            units[i] = hash(fields, readUnit(unitList.get(i), fields));
+        }
+        simulator[0] = buildingCount;
+        simulator[1] = citizenCount;
+        simulator[2] = unitCount;
+        simulator[3] = source.calculateCasualties();
+        simulator[4] = source.getActiveDisasters().size();
+        simulator[5] = source.checkGameOver() ? 1 : 0;
+    }
+
+    // The candidate digest must come from the same scenario, so that list positions name the same entities.
+    Divergence compare(StateDigest candidate, Simulator reference, Simulator candidateSource, int cycle) {
+        for (int f = 0; f < SIMULATOR_FIELDS.length; f++) {
+            if (simulator[f] != candidate.simulator[f]) {
+                return new Divergence(cycle, "simulator", -1, SIMULATOR_FIELDS[f],
+                        String.valueOf(simulator[f]), String.valueOf(candidate.simulator[f]));
+            }
+        }
+        long[] mine = new long[fields.length];
+        long[] theirs = new long[fields.length];
+        for (int i = 0; i < buildingCount; i++) {
+            if (buildings[i] == candidate.buildings[i]) continue;
+            readBuilding(reference.getBuildings().get(i), mine);
+            readBuilding(candidateSource.getBuildings().get(i), theirs);
+            return describe(cycle, "building", i, BUILDING_FIELDS, mine, theirs);
+        }
+        for (int i = 0; i < citizenCount; i++) {
+            if (citizens[i] == candidate.citizens[i]) continue;
+            readCitizen(reference.getCitizens().get(i), mine);
+            readCitizen(candidateSource.getCitizens().get(i), theirs);
+            return describe(cycle, "citizen", i, CITIZEN_FIELDS, mine, theirs);
+        }
+        for (int i = 0; i < unitCount; i++) {
+            if (units[i] == candidate.units[i]) continue;
+            readUnit(reference.getEmergencyUnits().get(i), mine);
+            readUnit(candidateSource.getEmergencyUnits().get(i), theirs);
+            return describe(cycle, "unit", i, UNIT_FIELDS, mine, theirs);
+        }
+        return null;
+    }
+
+    private static Divergence describe(int cycle, String entity, int index, String[] names, long[] mine, long[] theirs) {
+        for (int f = 0; f < names.length; f++) {
+            if (mine[f] != theirs[f]) {
+                return new Divergence(cycle, entity, index, names[f], format(names[f], mine[f]), format(names[f], theirs[f]));
+            }
+        }
+        // Equal fields with different hashes would mean the entity changed between capture and comparison.
+        return new Divergence(cycle, entity, index, "hash", Arrays.toString(mine), Arrays.toString(theirs));
+    }
+
+    private static String format(String field, long value) {
+        if (field.equals("location")) return "(" + Coordinates.x(value) + "," + Coordinates.y(value) + ")";
+        return String.valueOf(value);
+    }
+
+    private static long hash(long[] fields, int count) {
+        long h = count;
+        for (int f = 0; f < count; f++) {
+            h = RandomStream.mix(h ^ fields[f]) + f;
+        }
+        return h;
+    }
+
+    private static int readBuilding(ResidentialBuilding building, long[] into) {
+        into[0] = building.getLocation().getPacked();
+        into[1] = building.getStructuralIntegrity();
+        into[2] = building.getFireDamage();
+        into[3] = building.getGasLevel();
+        into[4] = building.getFoundationDamage();
+        into[5] = building.getOccupants().size();
+        into[6] = disaster(building.getDisaster());
+        return BUILDING_FIELDS.length;
+    }
+
+    private static int readCitizen(Citizen citizen, long[] into) {
+        into[0] = citizen.getLocation().getPacked();
+        into[1] = citizen.getHp();
+        into[2] = citizen.getBloodLoss();
+        into[3] = citizen.getToxicity();
+        into[4] = citizen.getState().ordinal();
+        into[5] = citizen.isDead() ? 1 : 0;
+        into[6] = disaster(citizen.getDisaster());
+        return CITIZEN_FIELDS.length;
+    }
+
+    // Units expose no distance to their target, so the count of quiet cycles ahead stands in for it.
+    private static int readUnit(Unit unit, long[] into) {
+        into[0] = unit.getCell();
+        into[1] = unit.getState().ordinal();
+        into[2] = target(unit.getTarget());
+        into[3] = unit.countQuietCycles();
+        if (unit instanceof PoliceUnit) {
+            PoliceUnit policeUnit = (PoliceUnit) unit;
+            into[4] = policeUnit.getPassengers().size();
+            into[5] = policeUnit.getDistanceToBase();
+        } else {
+            into[4] = 0;
+            into[5] = 0;
+        }
+        return UNIT_FIELDS.length;
+    }
+
+    // Type, start cycle and activity; enough to tell two disasters on one target apart.
+    private static long disaster(Disaster disaster) {
+        if (disaster == null) return -1;
+        return ((long) disaster.getStartCycle() << 8) | (TypeRegistry.typeOf(disaster) << 1) | (disaster.isActive() ? 1 : 0);
+    }
+
+    private static long target(Rescuable target) {
+        if (target == null) return -1;
+        int id = target instanceof Citizen ? ((Citizen) target).getEntityId() : ((ResidentialBuilding) target).getEntityId();
+        return ((long) TypeRegistry.typeOf(target) << 32) | id;
+    }
+}
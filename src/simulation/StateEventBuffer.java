@@ -0,0 +1,124 @@
+package simulation;
+
+import model.disasters.Disaster;
+import model.events.StateListener;
+import model.infrastructure.ResidentialBuilding;
+import model.people.Citizen;
+import model.people.CitizenState;
+import model.units.Unit;
+import model.units.UnitState;
+
+import java.util.Arrays;
+
+class StateEventBuffer {
+
+    static final int DISASTER_ACTIVITY = 0;
+    static final int CITIZEN_STATE = 1;
+    static final int CITIZEN_DAMAGE = 2;
+    static final int BUILDING_COLLAPSE = 3;
+    static final int BUILDING_DAMAGE = 4;
+    static final int UNIT_STATE = 5;
+    static final int MOVE = 6;
+
+    private static final ThreadLocal<StateEventBuffer> CURRENT = new ThreadLocal<>();
+
+    private int[] kinds = new int[16];
+    private int[] items = new int[16];
+    private StateListener[] listeners = new StateListener[16];
+    private Object[] subjects = new Object[16];
+    private Object[] details = new Object[16];
+    private int size;
+    private int item;
+
+    static boolean defer(int kind, StateListener listener, Object subject, Object detail) {
+        StateEventBuffer buffer = CURRENT.get();
+        if (buffer == null) return false;
+        buffer.add(kind, listener, subject, detail);
+        return true;
+    }
+
+    void open() {
+        CURRENT.set(this);
+    }
+
+    void close() {
+        CURRENT.remove();
+    }
+
+    void setItem(int item) {
+        this.item = item;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int getItem(int index) {
+        return items[index];
+    }
+
+    int getKind(int index) {
+        return kinds[index];
+    }
+
+    Object getSubject(int index) {
+        return subjects[index];
+    }
+
+    Object getDetail(int index) {
+        return details[index];
+    }
+
+    void clear() {
+        Arrays.fill(listeners, 0, size, null);
+        Arrays.fill(subjects, 0, size, null);
+        Arrays.fill(details, 0, size, null);
+        size = 0;
+    }
+
+    void replay(int index) {
+        StateListener listener = listeners[index];
+        Object subject = subjects[index];
+        switch (kinds[index]) {
+            case DISASTER_ACTIVITY:
+                listener.disasterActivityChanged((Disaster) subject);
+                break;
+            case CITIZEN_STATE:
+                listener.citizenStateChanged((Citizen) subject, (CitizenState) details[index]);
+                break;
+            case CITIZEN_DAMAGE:
+                listener.citizenDamaged((Citizen) subject);
+                break;
+            case BUILDING_COLLAPSE:
+                listener.buildingCollapseChanged((ResidentialBuilding) subject);
+                break;
+            case BUILDING_DAMAGE:
+                listener.buildingDamaged((ResidentialBuilding) subject);
+                break;
+            case UNIT_STATE:
+                listener.unitStateChanged((Unit) subject, (UnitState) details[index]);
+                break;
+            case MOVE:
+                // Only the simulator defers moves; they are not part of StateListener.
+                ((Simulator) listener).simulatableMoved((Simulatable) subject, (Address) details[index]);
+                break;
+        }
+    }
+
+    void add(int kind, StateListener listener, Object subject, Object detail) {
+        if (size == kinds.length) {
+            int capacity = size << 1;
+            kinds = Arrays.copyOf(kinds, capacity);
+            items = Arrays.copyOf(items, capacity);
+            listeners = Arrays.copyOf(listeners, capacity);
+            subjects = Arrays.copyOf(subjects, capacity);
+            details = Arrays.copyOf(details, capacity);
+        }
+        kinds[size] = kind;
+        items[size] = item;
+        listeners[size] = listener;
+        subjects[size] = subject;
+        details[size] = detail;
+        size++;
+    }
+}
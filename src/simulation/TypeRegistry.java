@@ -0,0 +1,132 @@
+package simulation;
+
+import model.disasters.*;
+import model.infrastructure.ResidentialBuilding;
+import model.people.Citizen;
+import model.units.*;
+
+import java.util.HashMap;
+
+public final class TypeRegistry {
+
+    public static final int UNKNOWN = 0;
+
+    public static final int BUILDING = 1;
+    public static final int CITIZEN = 2;
+
+    public static final int UNIT = 3;
+    public static final int MEDICAL_UNIT = 4;
+    public static final int FIRE_UNIT = 5;
+    public static final int POLICE_UNIT = 6;
+    public static final int AMBULANCE = 7;
+    public static final int DISEASE_CONTROL_UNIT = 8;
+    public static final int FIRE_TRUCK = 9;
+    public static final int GAS_CONTROL_UNIT = 10;
+    public static final int EVACUATOR = 11;
+
+    public static final int DISASTER = 12;
+    public static final int FIRE = 13;
+    public static final int GAS_LEAK = 14;
+    public static final int COLLAPSE = 15;
+    public static final int INJURY = 16;
+    public static final int INFECTION = 17;
+
+    public static final int TYPE_COUNT = 18;
+
+    private static final HashMap<Class<?>, Integer> REGISTERED = new HashMap<>();
+
+    // Closest registered ancestor, so UNIT for FIRE_UNIT and FIRE_UNIT for FIRE_TRUCK.
+    private static final int[] PARENT = new int[TYPE_COUNT];
+    // Disaster a unit type treats, or UNKNOWN.
+    private static final int[] TREATS = new int[TYPE_COUNT];
+    // Rescuable type a disaster type strikes, or UNKNOWN.
+    private static final int[] TARGET = new int[TYPE_COUNT];
+    private static final boolean[][] INCOMPATIBLE = new boolean[TYPE_COUNT][TYPE_COUNT];
+    private static final String[] ICON_NAMES = new String[TYPE_COUNT];
+
+    private static final ClassValue<Integer> TYPES = new ClassValue<Integer>() {
+        @Override
+        protected Integer computeValue(Class<?> type) {
+            for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+                Integer code = REGISTERED.get(c);
+                if (code != null) return code;
+            }
+            return UNKNOWN;
+        }
+    };
+
+    static {
+        register(ResidentialBuilding.class, BUILDING, UNKNOWN, "building");
+        register(Citizen.class, CITIZEN, UNKNOWN, "citizen");
+
+        register(Unit.class, UNIT, UNKNOWN, null);
+        register(MedicalUnit.class, MEDICAL_UNIT, UNIT, null);
+        register(FireUnit.class, FIRE_UNIT, UNIT, null);
+        register(PoliceUnit.class, POLICE_UNIT, UNIT, null);
+        register(Ambulance.class, AMBULANCE, MEDICAL_UNIT, "ambulance");
+        register(DiseaseControlUnit.class, DISEASE_CONTROL_UNIT, MEDICAL_UNIT, "disease_control");
+        register(FireTruck.class, FIRE_TRUCK, FIRE_UNIT, "fire_truck");
+        register(GasControlUnit.class, GAS_CONTROL_UNIT, FIRE_UNIT, "gas_control");
+        register(Evacuator.class, EVACUATOR, POLICE_UNIT, "evacuator");
+
+        register(Disaster.class, DISASTER, UNKNOWN, null);
+        register(Fire.class, FIRE, DISASTER, null);
+        register(GasLeak.class, GAS_LEAK, DISASTER, null);
+        register(Collapse.class, COLLAPSE, DISASTER, null);
+        register(Injury.class, INJURY, DISASTER, null);
+        register(Infection.class, INFECTION, DISASTER, null);
+
+        TARGET[FIRE] = BUILDING;
+        TARGET[GAS_LEAK] = BUILDING;
+        TARGET[COLLAPSE] = BUILDING;
+        TARGET[INJURY] = CITIZEN;
+        TARGET[INFECTION] = CITIZEN;
+
+        TREATS[AMBULANCE] = INJURY;
+        TREATS[DISEASE_CONTROL_UNIT] = INFECTION;
+        TREATS[FIRE_TRUCK] = FIRE;
+        TREATS[GAS_CONTROL_UNIT] = GAS_LEAK;
+        TREATS[EVACUATOR] = COLLAPSE;
+
+        for (int type = 0; type < TYPE_COUNT; type++) {
+            if (isA(type, FIRE_UNIT) || isA(type, POLICE_UNIT)) INCOMPATIBLE[type][CITIZEN] = true;
+            if (isA(type, MEDICAL_UNIT)) INCOMPATIBLE[type][BUILDING] = true;
+        }
+    }
+
+    private TypeRegistry() {
+    }
+
+    private static void register(Class<?> type, int code, int parent, String iconName) {
+        REGISTERED.put(type, code);
+        PARENT[code] = parent;
+        ICON_NAMES[code] = iconName;
+    }
+
+    public static int typeOf(Object object) {
+        return object == null ? UNKNOWN : TYPES.get(object.getClass());
+    }
+
+    public static boolean isA(int type, int ancestor) {
+        for (int t = type; t != UNKNOWN; t = PARENT[t]) {
+            if (t == ancestor) return true;
+        }
+        return false;
+    }
+
+    public static int treatedDisaster(int unitType) {
+        return TREATS[unitType];
+    }
+
+    public static int targetOf(int disasterType) {
+        return TARGET[disasterType];
+    }
+
+    public static boolean isIncompatible(int unitType, int rescuableType) {
+        return INCOMPATIBLE[unitType][rescuableType];
+    }
+
+    public static String getIconName(int type) {
+        return ICON_NAMES[type];
+    }
+}
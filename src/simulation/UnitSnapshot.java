@@ -0,0 +1,50 @@
+package simulation;
+
+import model.units.Unit;
+import model.units.UnitState;
+
+// A unit as it stood at the end of one cycle. The target is kept by location, since the target itself keeps
+// changing after the snapshot is taken.
+public final class UnitSnapshot {
+
+    private final int entityId;
+    private final String unitID;
+    private final int typeCode;
+    private final Address location;
+    private final UnitState state;
+    private final Address targetLocation;
+
+    UnitSnapshot(Unit unit) {
+        entityId = unit.getEntityId();
+        unitID = unit.getUnitID();
+        typeCode = unit.getTypeCode();
+        location = unit.getLocation();
+        state = unit.getState();
+        targetLocation = unit.getTarget() == null ? null : unit.getTarget().getLocation();
+    }
+
+    public int getEntityId() {
+        return entityId;
+    }
+
+    public String getUnitID() {
+        return unitID;
+    }
+
+    // One of the TypeRegistry codes.
+    public int getTypeCode() {
+        return typeCode;
+    }
+
+    public Address getLocation() {
+        return location;
+    }
+
+    public UnitState getState() {
+        return state;
+    }
+
+    public Address getTargetLocation() {
+        return targetLocation;
+    }
+}
@@ -0,0 +1,66 @@
+package simulation;
+
+import simulation.util.LongObjectMap;
+
+public class World {
+
+    // Worlds up to this many cells get every address up front, in a grid, like the fixed 10x10 world did.
+    static final int DENSE_CELLS = 1 << 12;
+
+    private int width, height;
+    private Address[][] grid;
+    private LongObjectMap<Address> cells;
+
+    public World(int width, int height) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("World dimensions must be positive.");
+        }
+        this.width = width;
+        this.height = height;
+        if ((long) width * height <= DENSE_CELLS) {
+            grid = new Address[width][height];
+            for (int x = 0; x < width; x++) {
+                for (int y = 0; y < height; y++) {
+                    grid[x][y] = new Address(x, y);
+                }
+            }
+        } else {
+            cells = new LongObjectMap<>();
+        }
+    }
+
+    // The address grid of a dense world, or null when addresses are allocated as cells are first used.
+    public Address[][] getGrid() {
+        return grid;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public boolean contains(int x, int y) {
+        return 0 <= x && x < width && 0 <= y && y < height;
+    }
+
+    public Address getAddress(int x, int y) {
+        if (!contains(x, y)) {
+            throw new IllegalArgumentException("Address (" + x + "," + y + ") is outside the world.");
+        }
+        if (grid != null) return grid[x][y];
+        long cell = Coordinates.pack(x, y);
+        Address address = cells.get(cell);
+        if (address == null) {
+            address = new Address(x, y);
+            cells.put(cell, address);
+        }
+        return address;
+    }
+
+    public int countAllocatedCells() {
+        return grid != null ? width * height : cells.size();
+    }
+}
@@ -0,0 +1,51 @@
+package simulation;
+
+import java.io.Closeable;
+import java.util.List;
+
+// An immutable view of every building, citizen and unit at the end of one cycle, held by one reader. Each pin
+// taken from a SnapshotStore is its own handle on the shared version; closing it releases that reader's pin
+// only, and closing it again does nothing.
+public final class WorldSnapshot implements Closeable {
+
+    private final SnapshotStore store;
+    private final SnapshotVersion version;
+    // Guarded by the store.
+    private boolean closed;
+
+    // Called with the store's lock held.
+    WorldSnapshot(SnapshotStore store, SnapshotVersion version) {
+        this.store = store;
+        this.version = version;
+        version.setPins(version.getPins() + 1);
+    }
+
+    public int getCycle() {
+        return version.getCycle();
+    }
+
+    public List<BuildingSnapshot> getBuildings() {
+        return version.getBuildings();
+    }
+
+    public List<CitizenSnapshot> getCitizens() {
+        return version.getCitizens();
+    }
+
+    public List<UnitSnapshot> getEmergencyUnits() {
+        return version.getEmergencyUnits();
+    }
+
+    public int getCasualties() {
+        return version.getCasualties();
+    }
+
+    @Override
+    public void close() {
+        synchronized (store) {
+            if (closed) return;
+            closed = true;
+            store.release(version);
+        }
+    }
+}
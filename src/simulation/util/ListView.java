@@ -0,0 +1,216 @@
+package simulation.util;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+// An ArrayList over a store kept elsewhere, for code that reaches a field by reflection and expects an
+// ArrayList there. Reads, appends and clear go to the store; every other mutator is refused, and the ArrayList
+// storage underneath stays empty.
+public abstract class ListView<E> extends ArrayList<E> {
+
+    private final AbstractList<E> list = new AbstractList<E>() {
+        @Override
+        public E get(int index) {
+            if (index < 0 || index >= count()) throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + count());
+            return element(index);
+        }
+
+        @Override
+        public int size() {
+            return count();
+        }
+
+        @Override
+        public boolean add(E element) {
+            append(element);
+            modCount++;
+            return true;
+        }
+
+        @Override
+        public void clear() {
+            removeElements();
+            modCount++;
+        }
+    };
+
+    protected abstract int count();
+
+    protected abstract E element(int index);
+
+    protected abstract void append(E element);
+
+    protected abstract void removeElements();
+
+    @Override
+    public int size() {
+        return count();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return count() == 0;
+    }
+
+    @Override
+    public E get(int index) {
+        return list.get(index);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return list.contains(o);
+    }
+
+    @Override
+    public int indexOf(Object o) {
+        return list.indexOf(o);
+    }
+
+    @Override
+    public int lastIndexOf(Object o) {
+        return list.lastIndexOf(o);
+    }
+
+    @Override
+    public Object[] toArray() {
+        return list.toArray();
+    }
+
+    @Override
+    public <T> T[] toArray(T[] a) {
+        return list.toArray(a);
+    }
+
+    @Override
+    public boolean add(E element) {
+        return list.add(element);
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends E> elements) {
+        for (E element : elements) {
+            list.add(element);
+        }
+        return !elements.isEmpty();
+    }
+
+    @Override
+    public void clear() {
+        list.clear();
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return list.iterator();
+    }
+
+    @Override
+    public ListIterator<E> listIterator() {
+        return list.listIterator();
+    }
+
+    @Override
+    public ListIterator<E> listIterator(int index) {
+        return list.listIterator(index);
+    }
+
+    @Override
+    public List<E> subList(int fromIndex, int toIndex) {
+        return Collections.unmodifiableList(list.subList(fromIndex, toIndex));
+    }
+
+    @Override
+    public void forEach(Consumer<? super E> action) {
+        list.forEach(action);
+    }
+
+    @Override
+    public Spliterator<E> spliterator() {
+        return list.spliterator();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return list.equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+        return list.hashCode();
+    }
+
+    @Override
+    public Object clone() {
+        return new ArrayList<>(list);
+    }
+
+    @Override
+    public E set(int index, E element) {
+        throw unsupported();
+    }
+
+    @Override
+    public void add(int index, E element) {
+        throw unsupported();
+    }
+
+    @Override
+    public boolean addAll(int index, Collection<? extends E> elements) {
+        throw unsupported();
+    }
+
+    @Override
+    public E remove(int index) {
+        throw unsupported();
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        throw unsupported();
+    }
+
+    @Override
+    public boolean removeAll(Collection<?> elements) {
+        throw unsupported();
+    }
+
+    @Override
+    public boolean retainAll(Collection<?> elements) {
+        throw unsupported();
+    }
+
+    @Override
+    public boolean removeIf(Predicate<? super E> filter) {
+        throw unsupported();
+    }
+
+    @Override
+    public void replaceAll(UnaryOperator<E> operator) {
+        throw unsupported();
+    }
+
+    @Override
+    public void sort(Comparator<? super E> comparator) {
+        throw unsupported();
+    }
+
+    @Override
+    protected void removeRange(int fromIndex, int toIndex) {
+        throw unsupported();
+    }
+
+    private UnsupportedOperationException unsupported() {
+        return new UnsupportedOperationException("This list can only be read, appended to or cleared");
+    }
+}
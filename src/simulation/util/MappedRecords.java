@@ -0,0 +1,155 @@
+package simulation.util;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+// Fixed-size records in a file, mapped in chunks so that files past 2 GB and past the heap still work.
+public class MappedRecords implements Closeable {
+
+    private static final int MAGIC = 0x52534D52;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+    private static final int CHUNK_SHIFT = 16;
+    private static final int CHUNK_MASK = (1 << CHUNK_SHIFT) - 1;
+
+    private FileChannel channel;
+    private MappedByteBuffer header;
+    private MappedByteBuffer[] chunks = new MappedByteBuffer[16];
+    private int recordSize;
+    private int rows;
+
+    public MappedRecords(File file, int recordSize) throws IOException {
+        if (recordSize <= 0) throw new IllegalArgumentException("Record size must be positive: " + recordSize);
+        this.recordSize = recordSize;
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        boolean created = channel.size() < HEADER_SIZE;
+        header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+        if (created) {
+            header.putInt(0, MAGIC);
+            header.putInt(4, VERSION);
+            header.putInt(8, recordSize);
+            header.putInt(12, 0);
+            header.putInt(16, 0);
+        } else if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION || header.getInt(8) != recordSize) {
+            channel.close();
+            throw new IOException(file + " is not a world store file with " + recordSize + "-byte records");
+        } else {
+            rows = header.getInt(12);
+        }
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    // A value the owner keeps next to the records; 0 in a new file.
+    public int getTag() {
+        return header.getInt(16);
+    }
+
+    public void setTag(int tag) {
+        header.putInt(16, tag);
+    }
+
+    public void ensureRows(int count) {
+        if (count <= rows) return;
+        rows = count;
+        header.putInt(12, rows);
+    }
+
+    // Forgets the records from count on, for a table that is rewritten whole; the file keeps its length.
+    public void truncateRows(int count) {
+        if (count >= rows) return;
+        rows = count;
+        header.putInt(12, rows);
+    }
+
+    public int getInt(int row, int field) {
+        return chunk(row).getInt(offset(row, field));
+    }
+
+    public void putInt(int row, int field, int value) {
+        chunk(row).putInt(offset(row, field), value);
+    }
+
+    public long getLong(int row, int field) {
+        return chunk(row).getLong(offset(row, field));
+    }
+
+    public void putLong(int row, int field, long value) {
+        chunk(row).putLong(offset(row, field), value);
+    }
+
+    public byte getByte(int row, int field) {
+        return chunk(row).get(offset(row, field));
+    }
+
+    public void putByte(int row, int field, byte value) {
+        chunk(row).put(offset(row, field), value);
+    }
+
+    // Strings take a two-byte length followed by up to width - 2 bytes of UTF-8.
+    public String getString(int row, int field, int width) {
+        ByteBuffer buffer = chunk(row);
+        int offset = offset(row, field);
+        byte[] bytes = new byte[Math.min(buffer.getShort(offset), width - 2)];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = buffer.get(offset + 2 + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public void putString(int row, int field, int width, String value) {
+        byte[] bytes = value == null ? new byte[0] : value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > width - 2) {
+            throw new IllegalArgumentException("\"" + value + "\" does not fit in " + (width - 2) + " bytes");
+        }
+        ByteBuffer buffer = chunk(row);
+        int offset = offset(row, field);
+        buffer.putShort(offset, (short) bytes.length);
+        for (int i = 0; i < bytes.length; i++) {
+            buffer.put(offset + 2 + i, bytes[i]);
+        }
+    }
+
+    public void force() {
+        header.force();
+        for (MappedByteBuffer chunk : chunks) {
+            if (chunk != null) chunk.force();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        force();
+        channel.close();
+    }
+
+    private int offset(int row, int field) {
+        return (row & CHUNK_MASK) * recordSize + field;
+    }
+
+    private MappedByteBuffer chunk(int row) {
+        int index = row >>> CHUNK_SHIFT;
+        if (index >= chunks.length) chunks = Arrays.copyOf(chunks, Math.max(chunks.length << 1, index + 1));
+        MappedByteBuffer chunk = chunks[index];
+        if (chunk == null) {
+            long size = (long) recordSize << CHUNK_SHIFT;
+            try {
+                chunk = channel.map(FileChannel.MapMode.READ_WRITE, HEADER_SIZE + index * size, size);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            chunks[index] = chunk;
+        }
+        return chunk;
+    }
+}
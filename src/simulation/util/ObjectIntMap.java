@@ -0,0 +1,98 @@
+package simulation.util;
+
+import java.util.Arrays;
+
+public class ObjectIntMap<K> {
+
+    private static final int MIN_CAPACITY = 16;
+
+    private Object[] keys;
+    private int[] values;
+    private int size;
+
+    public ObjectIntMap() {
+        keys = new Object[MIN_CAPACITY];
+        values = new int[MIN_CAPACITY];
+    }
+
+    public void reserve(int expectedSize) {
+        int capacity = keys.length;
+        while (capacity * 3 < expectedSize * 4) capacity <<= 1;
+        if (capacity > keys.length) rehash(capacity);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int get(K key, int missingValue) {
+        int mask = keys.length - 1;
+        for (int i = index(key, mask); keys[i] != null; i = (i + 1) & mask) {
+            if (keys[i].equals(key)) return values[i];
+        }
+        return missingValue;
+    }
+
+    public void put(K key, int value) {
+        int mask = keys.length - 1;
+        int i = index(key, mask);
+        for (; keys[i] != null; i = (i + 1) & mask) {
+            if (keys[i].equals(key)) {
+                values[i] = value;
+                return;
+            }
+        }
+        keys[i] = key;
+        values[i] = value;
+        if (++size * 4 > keys.length * 3) rehash(keys.length << 1);
+    }
+
+    // Moves later keys of the probe run back into the freed slot, so lookups never need tombstones.
+    public int remove(K key, int missingValue) {
+        int mask = keys.length - 1;
+        for (int i = index(key, mask); keys[i] != null; i = (i + 1) & mask) {
+            if (keys[i].equals(key)) {
+                int value = values[i];
+                int hole = i;
+                for (int j = (i + 1) & mask; keys[j] != null; j = (j + 1) & mask) {
+                    int home = index(keys[j], mask);
+                    if (((j - home) & mask) >= ((j - hole) & mask)) {
+                        keys[hole] = keys[j];
+                        values[hole] = values[j];
+                        hole = j;
+                    }
+                }
+                keys[hole] = null;
+                size--;
+                return value;
+            }
+        }
+        return missingValue;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, null);
+        size = 0;
+    }
+
+    private void rehash(int capacity) {
+        Object[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new Object[capacity];
+        values = new int[capacity];
+        int mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != null) {
+                int j = index(oldKeys[i], mask);
+                while (keys[j] != null) j = (j + 1) & mask;
+                keys[j] = oldKeys[i];
+                values[j] = oldValues[i];
+            }
+        }
+    }
+
+    private static int index(Object key, int mask) {
+        int h = key.hashCode() * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+}
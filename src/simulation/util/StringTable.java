@@ -0,0 +1,44 @@
+package simulation.util;
+
+// Canonicalizes equal strings to one shared instance, like String.intern but owned and collectable.
+public class StringTable {
+
+    private static final int MIN_CAPACITY = 16;
+
+    private String[] strings = new String[MIN_CAPACITY];
+    private int size;
+
+    public int size() {
+        return size;
+    }
+
+    public String intern(String value) {
+        if (value == null) return null;
+        int mask = strings.length - 1;
+        int i = index(value, mask);
+        for (; strings[i] != null; i = (i + 1) & mask) {
+            if (strings[i].equals(value)) return strings[i];
+        }
+        strings[i] = value;
+        if (++size * 4 > strings.length * 3) rehash(strings.length << 1);
+        return value;
+    }
+
+    private void rehash(int capacity) {
+        String[] oldStrings = strings;
+        strings = new String[capacity];
+        int mask = capacity - 1;
+        for (String string : oldStrings) {
+            if (string != null) {
+                int j = index(string, mask);
+                while (strings[j] != null) j = (j + 1) & mask;
+                strings[j] = string;
+            }
+        }
+    }
+
+    private static int index(String value, int mask) {
+        int h = value.hashCode() * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+}
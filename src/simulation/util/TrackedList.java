@@ -0,0 +1,17 @@
+package simulation.util;
+
+import java.util.ArrayList;
+
+public class TrackedList<E> extends ArrayList<E> {
+
+    public TrackedList() {
+    }
+
+    public TrackedList(int initialCapacity) {
+        super(initialCapacity);
+    }
+
+    public int getModCount() {
+        return modCount;
+    }
+}
@@ -0,0 +1,57 @@
+package simulation.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+public abstract class Worklist<T> {
+
+    private ArrayList<T> items = new ArrayList<>();
+    private Set<T> members = Collections.newSetFromMap(new IdentityHashMap<T, Boolean>());
+
+    protected abstract boolean isPending(T item);
+
+    public boolean add(T item) {
+        if (!members.add(item)) return false;
+        items.add(item);
+        return true;
+    }
+
+    public boolean contains(T item) {
+        return members.contains(item);
+    }
+
+    public T get(int index) {
+        return items.get(index);
+    }
+
+    public int size() {
+        return items.size();
+    }
+
+    public void clear() {
+        items.clear();
+        members.clear();
+    }
+
+    public void reserve(int capacity) {
+        items.ensureCapacity(capacity);
+        if (members.isEmpty()) members = Collections.newSetFromMap(new IdentityHashMap<T, Boolean>(capacity));
+    }
+
+    public void retainPending() {
+        int kept = 0;
+        for (int i = 0; i < items.size(); i++) {
+            T item = items.get(i);
+            if (isPending(item)) {
+                items.set(kept++, item);
+            } else {
+                members.remove(item);
+            }
+        }
+        for (int i = items.size() - 1; i >= kept; i--) {
+            items.remove(i);
+        }
+    }
+}
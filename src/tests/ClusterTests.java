@@ -0,0 +1,405 @@
+package tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import model.disasters.Disaster;
+import model.events.RemoteSOSListener;
+import model.events.SOSListener;
+import model.events.StateListener;
+import model.infrastructure.ResidentialBuilding;
+import model.people.Citizen;
+import model.people.CitizenState;
+import model.units.Unit;
+import model.units.UnitState;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import exceptions.DisasterException;
+import exceptions.UnitException;
+import simulation.ClusterCoordinator;
+import simulation.ClusterWorker;
+import simulation.EngineSettings;
+import simulation.Rescuable;
+import simulation.Scenario;
+import simulation.Simulator;
+
+// Runs a 2x2 cluster of in-JVM workers; every worker holds the whole world, so each can be compared directly.
+public class ClusterTests {
+
+    private static final String BUILDINGS = "cluster_buildings.csv";
+    private static final String CITIZENS = "cluster_citizens.csv";
+    private static final String UNITS = "cluster_units.csv";
+    private static final String DISASTERS = "cluster_disasters.csv";
+
+    private Scenario scenario = new Scenario(40, 40, BUILDINGS, CITIZENS, UNITS, DISASTERS);
+    private EngineSettings settings = new EngineSettings();
+    private ClusterCoordinator coordinator;
+    private ArrayList<ClusterWorker> workers = new ArrayList<ClusterWorker>();
+    private ArrayList<Thread> threads = new ArrayList<Thread>();
+    private ArrayList<Throwable> uncaught = new ArrayList<Throwable>();
+
+    @Before
+    public void writeScenario() throws Exception {
+        settings.setSeed(11);
+        PrintWriter buildings = new PrintWriter(BUILDINGS);
+        for (int i = 0; i < 120; i++) {
+            buildings.println((i * 7) % 40 + "," + (i * 13) % 40);
+        }
+        buildings.close();
+        PrintWriter citizens = new PrintWriter(CITIZENS);
+        for (int i = 0; i < 200; i++) {
+            citizens.println((i * 11) % 40 + "," + (i * 17 + 3) % 40 + "," + i + ",C" + i + "," + (20 + i % 50));
+        }
+        citizens.close();
+        PrintWriter units = new PrintWriter(UNITS);
+        String[] types = {"AMB", "DCU", "FTK", "GCU"};
+        for (int i = 0; i < 12; i++) {
+            units.println(types[i % 4] + ",U" + i + "," + (1 + i % 4));
+        }
+        units.println("EVC,U12,3,5");
+        units.close();
+        PrintWriter disasters = new PrintWriter(DISASTERS);
+        for (int i = 0; i < 60; i++) {
+            int building = (i * 29) % 120;
+            String location = (building * 7) % 40 + "," + (building * 13) % 40;
+            disasters.println((1 + i % 20) + "," + (i % 2 == 0 ? "FIR," : "GLK,") + location);
+            disasters.println((1 + i % 25) + "," + (i % 2 == 0 ? "INJ," : "INF,") + (i * 3));
+        }
+        disasters.close();
+    }
+
+    @After
+    public void stopCluster() throws Exception {
+        if (coordinator != null) coordinator.close();
+        for (Thread thread : threads) {
+            thread.join(10000);
+        }
+        new File(BUILDINGS).delete();
+        new File(CITIZENS).delete();
+        new File(UNITS).delete();
+        new File(DISASTERS).delete();
+    }
+
+    @Test(timeout = 30000)
+    public void testTwoByTwoClusterMatchesSimulator() throws Exception {
+        final StringBuilder expectedCalls = new StringBuilder();
+        final StringBuilder actualCalls = new StringBuilder();
+        Simulator simulator = new Simulator(new SOSListener() {
+            @Override
+            public void receiveSOSCall(Rescuable r) {
+                String id = r instanceof Citizen ? ((Citizen) r).getNationalID() : "building";
+                expectedCalls.append(r.getLocation().getX()).append(',').append(r.getLocation().getY()).append(' ').append(id).append(';');
+            }
+        }, scenario, settings);
+        startCluster();
+        coordinator.setSOSListener(new RemoteSOSListener() {
+            @Override
+            public void receiveSOSCall(int x, int y, String nationalID) {
+                actualCalls.append(x).append(',').append(y).append(' ').append(nationalID != null ? nationalID : "building").append(';');
+            }
+        });
+        try {
+            int next = 0;
+            for (int cycle = 1; cycle <= 30; cycle++) {
+                ArrayList<Disaster> active = new ArrayList<Disaster>(simulator.getActiveDisasters());
+                for (Unit unit : simulator.getEmergencyUnits()) {
+                    if (unit.getState() != UnitState.IDLE || active.isEmpty()) continue;
+                    Rescuable target = active.get(next++ % active.size()).getTarget();
+                    assertEquals("Cycle " + cycle + ": dispatching " + unit.getUnitID() + " should end the same way",
+                            dispatch(simulator, unit.getUnitID(), target), dispatch(coordinator, unit.getUnitID(), target));
+                }
+                assertEquals("Cycle " + cycle + " should end the same way", step(simulator), step(coordinator));
+                assertEquals("Cycle " + cycle + " should raise the same SOS calls in the same order",
+                        expectedCalls.toString(), actualCalls.toString());
+                assertEquals("Cycle " + cycle + " should count the same casualties",
+                        simulator.calculateCasualties(), coordinator.calculateCasualties());
+                assertEquals("Cycle " + cycle + " should agree on game over", simulator.checkGameOver(), coordinator.checkGameOver());
+                String expected = describe(simulator);
+                for (ClusterWorker worker : workers) {
+                    assertEquals("Cycle " + cycle + ": every worker should hold the world of a single simulator",
+                            expected, describe(worker.getSimulator()));
+                }
+            }
+        } finally {
+            simulator.close();
+        }
+    }
+
+    // Changing a unit inside a partitioned phase records an event that cannot be shipped to other regions. The
+    // simulator hands its entities its own listener on the first cycle, so the listeners are wrapped after it.
+    @Test(timeout = 30000)
+    public void testUnshareableEventStopsCluster() throws Exception {
+        startCluster();
+        coordinator.nextCycle();
+        for (ClusterWorker worker : workers) {
+            final Unit unit = worker.getSimulator().getEmergencyUnits().get(0);
+            for (Citizen citizen : worker.getSimulator().getCitizens()) {
+                citizen.setStateListener(new Forwarder(citizen.getStateListener()) {
+                    @Override
+                    public void citizenDamaged(Citizen citizen) {
+                        super.citizenDamaged(citizen);
+                        unit.setState(UnitState.RESPONDING);
+                        unit.setState(UnitState.IDLE);
+                    }
+                });
+            }
+        }
+
+        IOException error = runUntilFailure();
+        assertTrue("The coordinator should report the region's failure: " + error.getMessage(),
+                error.getMessage().contains("cannot cross regions"));
+        awaitWorkers();
+        boolean reported = false;
+        for (ClusterWorker worker : workers) {
+            Exception failure = worker.getFailure();
+            if (failure instanceof IllegalStateException) {
+                reported = true;
+            } else if (failure != null) {
+                assertTrue("A worker left at the barrier should stop on its broken link: " + failure,
+                        failure instanceof UncheckedIOException);
+            }
+        }
+        assertTrue("The region that could not share its events should say why", reported);
+        try {
+            coordinator.calculateCasualties();
+            fail("A stopped cluster should refuse further requests");
+        } catch (IOException e) {
+        }
+    }
+
+    // One worker stalls in a cycle while the others wait at a barrier, so the coordinator going away breaks the
+    // barrier under them. The stall hooks only the worker's own citizens, which are damaged before the cycle's last
+    // exchange; the coordinator is closed only once every other worker is waiting in an exchange, rather than still
+    // between messages, where a CLOSE is a clean stop.
+    @Test(timeout = 30000)
+    public void testClosingCoordinatorReleasesBarrier() throws Exception {
+        startCluster();
+        coordinator.nextCycle();
+        final CountDownLatch stalled = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        ClusterWorker staller = workers.get(0);
+        for (Citizen citizen : staller.getSimulator().getCitizens()) {
+            if (!staller.owns(citizen.getLocation())) continue;
+            citizen.setStateListener(new Forwarder(citizen.getStateListener()) {
+                @Override
+                public void citizenDamaged(Citizen citizen) {
+                    super.citizenDamaged(citizen);
+                    stalled.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            });
+        }
+        final IOException[] error = new IOException[1];
+        Thread cycles = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                error[0] = runUntilFailure();
+            }
+        });
+        cycles.start();
+        assertTrue("A citizen of the stalled worker should be damaged", stalled.await(10, TimeUnit.SECONDS));
+        for (ClusterWorker worker : workers) {
+            if (worker == staller) continue;
+            long deadline = System.currentTimeMillis() + 10000;
+            while (!((BarrierWorker) worker).waiting && System.currentTimeMillis() < deadline) {
+                Thread.sleep(1);
+            }
+            assertTrue("The other workers should wait for the stalled one at a barrier", ((BarrierWorker) worker).waiting);
+        }
+        coordinator.close();
+        release.countDown();
+        cycles.join(10000);
+
+        assertFalse("The coordinator should give up on the cycle", cycles.isAlive());
+        assertNotNull("The coordinator should report the broken cycle", error[0]);
+        awaitWorkers();
+        for (ClusterWorker worker : workers) {
+            if (worker == staller) continue;
+            assertTrue("A worker at the barrier should stop on its broken link: " + worker.getFailure(),
+                    worker.getFailure() instanceof UncheckedIOException);
+        }
+    }
+
+    private void startCluster() throws IOException {
+        coordinator = new ClusterCoordinator(scenario, settings, 2, 2);
+        for (int i = 0; i < coordinator.getRegionCount(); i++) {
+            ClusterWorker worker = new BarrierWorker("127.0.0.1", coordinator.getPort());
+            Thread thread = new Thread(worker, "cluster-worker-" + i);
+            thread.setUncaughtExceptionHandler(new Thread.UncaughtExceptionHandler() {
+                @Override
+                public void uncaughtException(Thread t, Throwable e) {
+                    synchronized (uncaught) {
+                        uncaught.add(e);
+                    }
+                }
+            });
+            workers.add(worker);
+            threads.add(thread);
+            thread.start();
+        }
+        coordinator.connectWorkers();
+    }
+
+    private IOException runUntilFailure() {
+        for (int cycle = 0; cycle < 30; cycle++) {
+            try {
+                coordinator.nextCycle();
+            } catch (DisasterException e) {
+                // Struck a dead citizen or a collapsed building; the cycle still completed.
+            } catch (IOException e) {
+                return e;
+            }
+        }
+        return null;
+    }
+
+    private void awaitWorkers() throws InterruptedException {
+        for (Thread thread : threads) {
+            thread.join(10000);
+            assertFalse(thread.getName() + " should stop once the cluster fails", thread.isAlive());
+        }
+        synchronized (uncaught) {
+            assertTrue("No worker should die on an uncaught exception: " + uncaught, uncaught.isEmpty());
+        }
+    }
+
+    private static String dispatch(Simulator simulator, String unitID, Rescuable target) {
+        try {
+            if (target instanceof Citizen) {
+                simulator.dispatchToCitizen(unitID, ((Citizen) target).getNationalID());
+            } else {
+                simulator.dispatchToBuilding(unitID, target.getLocation().getX(), target.getLocation().getY());
+            }
+            return "ok";
+        } catch (UnitException e) {
+            return e.getClass().getSimpleName() + ": " + e.getMessage();
+        }
+    }
+
+    private static String dispatch(ClusterCoordinator coordinator, String unitID, Rescuable target) throws IOException {
+        try {
+            if (target instanceof Citizen) {
+                coordinator.dispatchToCitizen(unitID, ((Citizen) target).getNationalID());
+            } else {
+                coordinator.dispatchToBuilding(unitID, target.getLocation().getX(), target.getLocation().getY());
+            }
+            return "ok";
+        } catch (UnitException e) {
+            return e.getClass().getSimpleName() + ": " + e.getMessage();
+        }
+    }
+
+    private static String step(Simulator simulator) {
+        try {
+            simulator.nextCycle();
+            return "ok";
+        } catch (DisasterException e) {
+            return e.getClass().getSimpleName() + ": " + e.getMessage();
+        }
+    }
+
+    private static String step(ClusterCoordinator coordinator) throws IOException {
+        try {
+            coordinator.nextCycle();
+            return "ok";
+        } catch (DisasterException e) {
+            return e.getClass().getSimpleName() + ": " + e.getMessage();
+        }
+    }
+
+    private static String describe(Simulator simulator) {
+        StringBuilder state = new StringBuilder();
+        for (Citizen citizen : simulator.getCitizens()) {
+            state.append(citizen.getNationalID()).append(' ').append(citizen.getState()).append(' ')
+                    .append(citizen.getHp()).append(' ').append(citizen.getBloodLoss()).append(' ')
+                    .append(citizen.getToxicity()).append(' ').append(citizen.getLocation()).append('\n');
+        }
+        for (ResidentialBuilding building : simulator.getBuildings()) {
+            state.append(building.getLocation()).append(' ').append(building.getStructuralIntegrity()).append(' ')
+                    .append(building.getFireDamage()).append(' ').append(building.getGasLevel()).append(' ')
+                    .append(building.getFoundationDamage()).append(' ').append(building.getOccupants().size()).append('\n');
+        }
+        for (Unit unit : simulator.getEmergencyUnits()) {
+            state.append(unit.getUnitID()).append(' ').append(unit.getState()).append(' ')
+                    .append(unit.getLocation()).append('\n');
+        }
+        return state.append(simulator.getActiveDisasters().size()).toString();
+    }
+
+    private static class Forwarder implements StateListener {
+
+        private StateListener listener;
+
+        Forwarder(StateListener listener) {
+            this.listener = listener;
+        }
+
+        @Override
+        public void disasterActivityChanged(Disaster disaster) {
+            listener.disasterActivityChanged(disaster);
+        }
+
+        @Override
+        public void citizenStateChanged(Citizen citizen, CitizenState oldState) {
+            listener.citizenStateChanged(citizen, oldState);
+        }
+
+        @Override
+        public void citizenDamaged(Citizen citizen) {
+            listener.citizenDamaged(citizen);
+        }
+
+        @Override
+        public void buildingCollapseChanged(ResidentialBuilding building) {
+            listener.buildingCollapseChanged(building);
+        }
+
+        @Override
+        public void buildingDamaged(ResidentialBuilding building) {
+            listener.buildingDamaged(building);
+        }
+
+        @Override
+        public void unitStateChanged(Unit unit, UnitState oldState) {
+            listener.unitStateChanged(unit, oldState);
+        }
+    }
+
+    // Tells whether it is waiting at a barrier for the other regions' shares.
+    private static class BarrierWorker extends ClusterWorker {
+
+        private volatile boolean waiting;
+
+        BarrierWorker(String host, int port) {
+            super(host, port);
+        }
+
+        @Override
+        public byte[][] exchange(byte[] share) throws IOException {
+            waiting = true;
+            try {
+                return super.exchange(share);
+            } finally {
+                waiting = false;
+            }
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+
+import model.disasters.Disaster;
+import model.disasters.Fire;
+import model.disasters.Injury;
+import model.events.StateListener;
+import model.infrastructure.ResidentialBuilding;
+import model.people.Citizen;
+import model.people.CitizenState;
+import model.units.Unit;
+import model.units.UnitState;
+
+import org.junit.Test;
+
+import simulation.Address;
+import simulation.DisasterLedger;
+
+public class DisasterLedgerTests {
+
+    private DisasterLedger ledger;
+
+    // Stands in for the simulator, which hands every activity change back to the ledger.
+    private StateListener listener = new StateListener() {
+        @Override
+        public void disasterActivityChanged(Disaster disaster) {
+            ledger.update(disaster);
+        }
+
+        @Override
+        public void citizenStateChanged(Citizen citizen, CitizenState oldState) {
+        }
+
+        @Override
+        public void citizenDamaged(Citizen citizen) {
+        }
+
+        @Override
+        public void buildingCollapseChanged(ResidentialBuilding building) {
+        }
+
+        @Override
+        public void buildingDamaged(ResidentialBuilding building) {
+        }
+
+        @Override
+        public void unitStateChanged(Unit unit, UnitState oldState) {
+        }
+    };
+
+    @Test(timeout = 1000)
+    public void testInactiveDisastersMoveToTheArchive() {
+        ledger = new DisasterLedger(listener);
+        ResidentialBuilding building = new ResidentialBuilding(new Address(1, 1));
+        Disaster first = strike(new Injury(1, citizen("1")));
+        Disaster second = strike(new Injury(1, citizen("2")));
+        Disaster fire = strike(new Fire(1, building));
+
+        assertEquals("Every struck disaster should be active", 3, ledger.countActive());
+        first.setActive(false);
+        assertEquals("A treated disaster should leave the active set", 2, ledger.countActive());
+        assertEquals("A treated disaster should be archived", 1, ledger.countArchived());
+        assertSame("The active disasters should keep their order", second, ledger.getActive(0));
+        assertSame("The active disasters should keep their order", fire, ledger.getActive(1));
+
+        ledger.deactivateAll(building);
+        assertNull("A collapsed building should have no active disasters", ledger.getActiveOn(building));
+        assertEquals("Deactivated disasters should be archived", 2, ledger.countArchived());
+        assertFalse("Deactivated disasters should be inactive", fire.isActive());
+
+        first.setActive(true);
+        assertEquals("A disaster active again should leave the archive", 1, ledger.countArchived());
+        assertSame("A disaster active again should rejoin the active set last", first, ledger.getActive(1));
+        assertEquals("Every disaster should still be listed once", 3, ledger.asList().size());
+        assertEquals("The list should hold the active disasters first", second, ledger.asList().get(0));
+        assertEquals("The list should hold the archived disasters after them", fire, ledger.asList().get(2));
+    }
+
+    @Test(timeout = 1000)
+    public void testArchiveKeepsEveryDisasterOnce() {
+        ledger = new DisasterLedger(listener);
+        ArrayList<Disaster> disasters = new ArrayList<Disaster>();
+        for (int i = 0; i < 200; i++) {
+            disasters.add(strike(new Injury(1, citizen("" + i))));
+        }
+        for (int round = 0; round < 3; round++) {
+            for (int i = round; i < disasters.size(); i += 3) {
+                disasters.get(i).setActive(false);
+            }
+            for (int i = round; i < disasters.size(); i += 7) {
+                disasters.get(i).setActive(true);
+            }
+        }
+        int active = 0;
+        for (Disaster disaster : disasters) {
+            if (disaster.isActive()) active++;
+        }
+        assertEquals("The active set should hold exactly the active disasters", active, ledger.countActive());
+        assertEquals("The archive should hold exactly the inactive disasters", disasters.size() - active, ledger.countArchived());
+        HashSet<Disaster> listed = new HashSet<Disaster>(ledger.asList());
+        assertEquals("Every disaster should be listed once", disasters.size(), listed.size());
+        assertTrue("Every disaster should be listed", listed.containsAll(disasters));
+    }
+
+    @Test(timeout = 1000)
+    public void testListViewOnlyAppendsAndClears() {
+        ledger = new DisasterLedger(listener);
+        ArrayList<Disaster> list = ledger.asList();
+        Disaster disaster = new Injury(1, citizen("1"));
+        disaster.setActive(true);
+        list.add(disaster);
+        list.add(new Injury(1, citizen("2")));
+        assertEquals("An appended active disaster should be active", 1, ledger.countActive());
+        assertEquals("An appended inactive disaster should be archived", 1, ledger.countArchived());
+
+        Iterator<Disaster> iterator = list.iterator();
+        iterator.next();
+        try {
+            iterator.remove();
+            fail("Removing through the iterator should be refused");
+        } catch (UnsupportedOperationException e) {
+        }
+        try {
+            list.remove(disaster);
+            fail("Removing a disaster should be refused");
+        } catch (UnsupportedOperationException e) {
+        }
+        try {
+            list.subList(0, 2).clear();
+            fail("Clearing a sub-list should be refused");
+        } catch (UnsupportedOperationException e) {
+        }
+        assertEquals("Refused changes should leave the ledger alone", 2, list.size());
+
+        list.clear();
+        assertEquals("Clearing the list should clear the active set", 0, ledger.countActive());
+        assertEquals("Clearing the list should clear the archive", 0, ledger.countArchived());
+    }
+
+    private Disaster strike(Disaster disaster) {
+        disaster.setActive(true);
+        ledger.add(disaster);
+        return disaster;
+    }
+
+    private static Citizen citizen(String nationalID) {
+        return new Citizen(new Address(0, 0), nationalID, "C" + nationalID, 30, null);
+    }
+}
@@ -0,0 +1,116 @@
+package tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.function.Predicate;
+
+import model.disasters.Disaster;
+import model.disasters.Injury;
+import model.people.Citizen;
+
+import org.junit.Test;
+
+import simulation.Address;
+import simulation.DisasterSchedule;
+
+public class DisasterScheduleTests {
+
+    private Citizen citizen = new Citizen(new Address(0, 0), "1", "C1", 30, null);
+
+    @Test(timeout = 1000)
+    public void testPollsOnlyTheDueCycle() {
+        DisasterSchedule schedule = new DisasterSchedule();
+        Disaster late = add(schedule, 7);
+        Disaster first = add(schedule, 3);
+        Disaster second = add(schedule, 3);
+        Disaster early = add(schedule, 1);
+
+        assertEquals("The next start cycle should be the earliest one", 1, schedule.nextStartCycle());
+        ArrayList<Disaster> due = schedule.pollDue(3);
+        assertEquals("Only the disasters of the polled cycle should be due", 2, due.size());
+        assertSame("Disasters of a cycle should be due in the order they were added", first, due.get(0));
+        assertSame("Disasters of a cycle should be due in the order they were added", second, due.get(1));
+        assertEquals("A disaster whose cycle passed should stay planned", 2, schedule.size());
+        assertSame("A disaster whose cycle passed should be listed first", early, schedule.get(0));
+        assertSame("The pending disasters should follow", late, schedule.get(1));
+        assertEquals("The next start cycle should skip the passed one", 7, schedule.nextStartCycle());
+        assertNull("A cycle without disasters should have none due", schedule.pollDue(5));
+        assertNull("A disaster whose cycle passed should never be due", schedule.pollDue(1));
+        assertSame("The last bucket should be due in its cycle", late, schedule.pollDue(7).get(0));
+        assertEquals("Only the passed disaster should be left", 1, schedule.size());
+        assertEquals("Nothing should be pending", Integer.MAX_VALUE, schedule.nextStartCycle());
+    }
+
+    @Test(timeout = 1000)
+    public void testManyCyclesStayInOrder() {
+        DisasterSchedule schedule = new DisasterSchedule();
+        for (int i = 0; i < 100; i++) {
+            add(schedule, (i * 37) % 100 + 1);
+        }
+        for (int cycle = 1; cycle <= 100; cycle++) {
+            assertEquals("Cycle " + cycle + " should be next", cycle, schedule.nextStartCycle());
+            assertEquals("Cycle " + cycle + " should have its disaster due", cycle, schedule.pollDue(cycle).get(0).getStartCycle());
+            if (cycle % 10 == 0 && cycle < 100) add(schedule, cycle + 5);
+        }
+        assertEquals("The disasters added for later cycles should all have struck", 0, schedule.size());
+    }
+
+    @Test(timeout = 1000)
+    public void testListViewOnlyAppendsAndClears() {
+        DisasterSchedule schedule = new DisasterSchedule();
+        ArrayList<Disaster> list = schedule.asList();
+        Disaster disaster = new Injury(2, citizen);
+        list.add(disaster);
+        list.add(new Injury(4, citizen));
+        assertEquals("An appended disaster should be planned", 2, schedule.size());
+        assertSame("An appended disaster should be due in its cycle", disaster, schedule.pollDue(2).get(0));
+        assertEquals("A polled disaster should leave the list", 1, list.size());
+        assertTrue("The list should hold the planned disaster", list.get(0).getStartCycle() == 4);
+
+        Iterator<Disaster> iterator = list.iterator();
+        iterator.next();
+        try {
+            iterator.remove();
+            fail("Removing through the iterator should be refused");
+        } catch (UnsupportedOperationException e) {
+        }
+        try {
+            list.removeIf(new Predicate<Disaster>() {
+                @Override
+                public boolean test(Disaster d) {
+                    return true;
+                }
+            });
+            fail("Removing by predicate should be refused");
+        } catch (UnsupportedOperationException e) {
+        }
+        try {
+            list.subList(0, 1).clear();
+            fail("Clearing a sub-list should be refused");
+        } catch (UnsupportedOperationException e) {
+        }
+        try {
+            list.set(0, disaster);
+            fail("Replacing a disaster should be refused");
+        } catch (UnsupportedOperationException e) {
+        }
+        assertEquals("Refused changes should leave the schedule alone", 1, schedule.size());
+        assertEquals("Refused changes should leave the schedule alone", 4, schedule.nextStartCycle());
+
+        list.clear();
+        assertEquals("Clearing the list should clear the schedule", 0, schedule.size());
+        assertNull("Clearing the list should clear the timeline", schedule.pollDue(4));
+    }
+
+    private Disaster add(DisasterSchedule schedule, int cycle) {
+        Disaster disaster = new Injury(cycle, citizen);
+        schedule.add(disaster);
+        return disaster;
+    }
+}
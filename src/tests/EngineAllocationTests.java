@@ -0,0 +1,124 @@
+package tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+
+import model.events.SOSListener;
+import model.infrastructure.ResidentialBuilding;
+import model.people.Citizen;
+
+import org.junit.Test;
+
+import simulation.EngineSettings;
+import simulation.Rescuable;
+import simulation.Scenario;
+import simulation.Simulator;
+
+public class EngineAllocationTests {
+
+    private static final String BUILDINGS = "alloc_buildings.csv";
+    private static final String CITIZENS = "alloc_citizens.csv";
+    private static final String UNITS = "alloc_units.csv";
+    private static final String DISASTERS = "alloc_disasters.csv";
+
+    // Enough cycles for the JIT to compile the whole cycle before anything is measured.
+    private static final int WARM_UP_CYCLES = 2000;
+    private static final int MEASURED_CYCLES = 50;
+
+    private SOSListener sos = new SOSListener() {
+        @Override
+        public void receiveSOSCall(Rescuable r) {
+        }
+    };
+
+    @Test(timeout = 10000)
+    public void testSteadyStateCycleDoesNotAllocate() throws Exception {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assertTrue("Thread allocation accounting should be available", threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+        writeScenario();
+        EngineSettings settings = new EngineSettings();
+        settings.setSeed(7);
+        settings.setZeroAllocation(true);
+        Simulator simulator = new Simulator(sos, new Scenario(20, 20, BUILDINGS, CITIZENS, UNITS, DISASTERS), settings);
+        try {
+            // Cycle 1 strikes every disaster; every later cycle only ticks and steps damage.
+            simulator.nextCycle();
+            for (int cycle = 0; cycle < WARM_UP_CYCLES; cycle++) {
+                heal(simulator);
+                step(simulator);
+            }
+            long id = Thread.currentThread().getId();
+            for (int cycle = 0; cycle < MEASURED_CYCLES; cycle++) {
+                heal(simulator);
+                long first = threads.getThreadAllocatedBytes(id);
+                long second = threads.getThreadAllocatedBytes(id);
+                long overhead = second - first;
+
+                long before = threads.getThreadAllocatedBytes(id);
+                step(simulator);
+                long after = threads.getThreadAllocatedBytes(id);
+                assertEquals("Steady-state cycle " + cycle + " in zero-allocation mode should not allocate on the heap", 0,
+                        after - before - overhead);
+            }
+        } finally {
+            simulator.close();
+            new File(BUILDINGS).delete();
+            new File(CITIZENS).delete();
+            new File(UNITS).delete();
+            new File(DISASTERS).delete();
+        }
+    }
+
+    private static void step(Simulator simulator) throws Exception {
+        simulator.nextCycle();
+        simulator.checkGameOver();
+        simulator.calculateCasualties();
+    }
+
+    // Puts every entity back to the damage it had after the strike, so that the same entities decay in every
+    // cycle and nothing dies, collapses or fills with gas however long the test runs.
+    private static void heal(Simulator simulator) {
+        for (ResidentialBuilding building : simulator.getBuildings()) {
+            building.setStructuralIntegrity(100);
+            if (building.getFireDamage() > 0) building.setFireDamage(10);
+            building.setGasLevel(0);
+        }
+        for (Citizen citizen : simulator.getCitizens()) {
+            citizen.setHp(100);
+            if (citizen.getBloodLoss() > 0) citizen.setBloodLoss(30);
+            if (citizen.getToxicity() > 0) citizen.setToxicity(25);
+        }
+    }
+
+    private void writeScenario() throws Exception {
+        PrintWriter buildings = new PrintWriter(BUILDINGS);
+        for (int i = 0; i < 40; i++) {
+            buildings.println(i % 20 + "," + i / 20);
+        }
+        buildings.close();
+        PrintWriter citizens = new PrintWriter(CITIZENS);
+        for (int i = 0; i < 60; i++) {
+            citizens.println(i % 20 + "," + (10 + i / 20) + "," + i + ",C" + i + "," + (20 + i));
+        }
+        citizens.close();
+        PrintWriter units = new PrintWriter(UNITS);
+        units.println("AMB,1,2");
+        units.println("FTK,2,3");
+        units.close();
+        PrintWriter disasters = new PrintWriter(DISASTERS);
+        for (int i = 0; i < 20; i++) {
+            disasters.println("1,FIR," + i + ",0");
+            disasters.println("1,GLK," + i + ",1");
+        }
+        for (int i = 0; i < 30; i++) {
+            disasters.println("1,INJ," + i);
+            disasters.println("1,INF," + (30 + i));
+        }
+        disasters.close();
+    }
+}
@@ -0,0 +1,508 @@
+package tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+
+import exceptions.DisasterException;
+import exceptions.UnitException;
+import model.disasters.Collapse;
+import model.disasters.Disaster;
+import model.infrastructure.ResidentialBuilding;
+import model.people.Citizen;
+import model.units.Evacuator;
+import model.units.Unit;
+import model.units.UnitState;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import simulation.ClusterCoordinator;
+import simulation.ClusterWorker;
+import simulation.Divergence;
+import simulation.EngineSettings;
+import simulation.LockstepVerifier;
+import simulation.Rescuable;
+import simulation.Scenario;
+import simulation.Simulator;
+
+public class EngineEquivalenceTests {
+
+    private static final String BUILDINGS = "lockstep_buildings.csv";
+    private static final String CITIZENS = "lockstep_citizens.csv";
+    private static final String UNITS = "lockstep_units.csv";
+    private static final String DISASTERS = "lockstep_disasters.csv";
+    private static final String STORE = "lockstep_store";
+
+    // PhaseExecutor.MIN_PARALLEL_ITEMS: smaller phases run on the calling thread.
+    private static final int PARALLEL_ITEMS = 64;
+    private static final int CROWD_BUILDINGS = 160;
+    private static final int CROWD_CITIZENS = 240;
+    private static final int CROWD_UNITS = 80;
+
+    private Scenario scenario = new Scenario(40, 40, BUILDINGS, CITIZENS, UNITS, DISASTERS);
+    private int next;
+    // The most damaged buildings, damaged citizens, active disasters and busy units the reference held after any
+    // cycle of run.
+    private int peakBuildings, peakCitizens, peakDisasters, peakUnits;
+
+    @Before
+    public void writeScenario() throws Exception {
+        PrintWriter buildings = new PrintWriter(BUILDINGS);
+        for (int i = 0; i < 120; i++) {
+            buildings.println((i * 7) % 40 + "," + (i * 13) % 40);
+        }
+        for (int i = 0; i < CROWD_BUILDINGS; i++) {
+            buildings.println(crowdBuilding(i));
+        }
+        buildings.close();
+        PrintWriter citizens = new PrintWriter(CITIZENS);
+        for (int i = 0; i < 200; i++) {
+            citizens.println((i * 11) % 40 + "," + (i * 17 + 3) % 40 + "," + i + ",C" + i + "," + (20 + i % 50));
+        }
+        for (int i = 200; i < 200 + CROWD_CITIZENS; i++) {
+            citizens.println((i * 23) % 40 + "," + (i * 31 + 5) % 40 + "," + i + ",C" + i + "," + (20 + i % 50));
+        }
+        citizens.close();
+        PrintWriter units = new PrintWriter(UNITS);
+        String[] types = {"AMB", "DCU", "FTK", "GCU"};
+        for (int i = 0; i < 12; i++) {
+            units.println(types[i % 4] + ",U" + i + "," + (1 + i % 4));
+        }
+        units.println("EVC,U12,3,5");
+        for (int i = 13; i < 13 + CROWD_UNITS; i++) {
+            units.println(types[i % 4] + ",U" + i + "," + (1 + i % 4));
+        }
+        units.close();
+        PrintWriter disasters = new PrintWriter(DISASTERS);
+        for (int i = 0; i < 60; i++) {
+            int building = (i * 29) % 120;
+            String location = (building * 7) % 40 + "," + (building * 13) % 40;
+            disasters.println((1 + i % 20) + "," + (i % 2 == 0 ? "FIR," : "GLK,") + location);
+            disasters.println((1 + i % 25) + "," + (i % 2 == 0 ? "INJ," : "INF,") + (i * 3));
+        }
+        // The crowd is struck within a few cycles, so that the damage phases and the disaster phase hold more
+        // items than the parallel engines hand to their threads.
+        for (int i = 0; i < CROWD_BUILDINGS; i++) {
+            disasters.println((1 + i % 8) + "," + (i % 4 == 3 ? "GLK," : "FIR,") + crowdBuilding(i));
+        }
+        for (int i = 0; i < CROWD_CITIZENS; i++) {
+            disasters.println((1 + i % 8) + "," + (i % 2 == 0 ? "INJ," : "INF,") + (200 + i));
+        }
+        disasters.close();
+    }
+
+    private static String crowdBuilding(int i) {
+        return i % 40 + "," + (20 + i / 40 * 3);
+    }
+
+    @After
+    public void deleteScenario() {
+        new File(BUILDINGS).delete();
+        new File(CITIZENS).delete();
+        new File(UNITS).delete();
+        new File(DISASTERS).delete();
+        File[] stored = new File(STORE).listFiles();
+        if (stored != null) {
+            for (File file : stored) file.delete();
+        }
+        new File(STORE).delete();
+    }
+
+    @Test(timeout = 20000)
+    public void testParallelEngineMatchesReference() throws Exception {
+        EngineSettings settings = new EngineSettings();
+        settings.setSeed(11);
+        settings.setParallelism(4);
+        LockstepVerifier verifier = new LockstepVerifier(scenario, settings);
+        try {
+            assertNull("A parallel engine should stay in lockstep with the sequential one", run(verifier));
+            assertPhasesRanInParallel();
+        } finally {
+            verifier.close();
+        }
+    }
+
+    @Test(timeout = 20000)
+    public void testParallelColumnarEngineMatchesReference() throws Exception {
+        EngineSettings settings = new EngineSettings();
+        settings.setSeed(11);
+        settings.setColumnarStorage(true);
+        settings.setParallelism(4);
+        LockstepVerifier verifier = new LockstepVerifier(scenario, settings);
+        try {
+            assertNull("A parallel columnar engine should stay in lockstep with the sequential one", run(verifier));
+            assertPhasesRanInParallel();
+        } finally {
+            verifier.close();
+        }
+    }
+
+    // The double-buffered engine reads each cycle's damage from the state before it, so its reference is the
+    // double-buffered engine on one thread.
+    @Test(timeout = 20000)
+    public void testParallelDoubleBufferedEngineMatchesSequentialOne() throws Exception {
+        EngineSettings reference = new EngineSettings();
+        reference.setSeed(11);
+        reference.setDoubleBuffered(true);
+        EngineSettings settings = new EngineSettings();
+        settings.setSeed(11);
+        settings.setDoubleBuffered(true);
+        settings.setParallelism(4);
+        LockstepVerifier verifier = new LockstepVerifier(scenario, reference, settings);
+        try {
+            assertNull("A parallel double-buffered engine should stay in lockstep with the sequential one", run(verifier));
+            assertPhasesRanInParallel();
+        } finally {
+            verifier.close();
+        }
+    }
+
+    @Test(timeout = 20000)
+    public void testColumnarEngineMatchesReference() throws Exception {
+        EngineSettings settings = new EngineSettings();
+        settings.setSeed(11);
+        settings.setColumnarStorage(true);
+        LockstepVerifier verifier = new LockstepVerifier(scenario, settings);
+        try {
+            assertNull("A columnar engine should stay in lockstep with the object one", run(verifier));
+        } finally {
+            verifier.close();
+        }
+    }
+
+    @Test(timeout = 20000)
+    public void testVectorizedHealthMatchesReference() throws Exception {
+        EngineSettings settings = new EngineSettings();
+        settings.setSeed(11);
+        settings.setVectorizedHealth(true);
+        LockstepVerifier verifier = new LockstepVerifier(scenario, settings);
+        try {
+            assertNotNull("Citizen damage should be stepped by a health kernel", verifier.getCandidate().getHealthKernelName());
+            assertNull("The " + verifier.getCandidate().getHealthKernelName() + " health kernel should stay in lockstep"
+                    + " with the object engine", run(verifier));
+        } finally {
+            verifier.close();
+        }
+    }
+
+    @Test(timeout = 20000)
+    public void testZeroAllocationEngineMatchesReference() throws Exception {
+        EngineSettings settings = new EngineSettings();
+        settings.setSeed(11);
+        settings.setZeroAllocation(true);
+        LockstepVerifier verifier = new LockstepVerifier(scenario, settings);
+        try {
+            assertNull("A zero-allocation engine should stay in lockstep with the plain one", run(verifier));
+        } finally {
+            verifier.close();
+        }
+    }
+
+    // Each cycle is followed by a jump over whatever quiet cycles come next, which the reference steps through.
+    // Disasters are spaced out here so that the world settles between them.
+    @Test(timeout = 20000)
+    public void testSkippedQuietCyclesMatchReference() throws Exception {
+        PrintWriter disasters = new PrintWriter(DISASTERS);
+        for (int i = 0; i < 6; i++) {
+            int building = (i * 29) % 120;
+            disasters.println((1 + i * 20) + ",INJ," + (i * 31));
+            disasters.println((11 + i * 20) + "," + (i % 2 == 0 ? "FIR," : "GLK,") + (building * 7) % 40 + "," + (building * 13) % 40);
+        }
+        disasters.close();
+        EngineSettings settings = new EngineSettings();
+        settings.setSeed(11);
+        LockstepVerifier verifier = new LockstepVerifier(scenario, settings);
+        try {
+            Divergence divergence = null;
+            int skipped = 0;
+            while (divergence == null && verifier.getCycle() < 120) {
+                divergence = dispatchIdleUnits(verifier);
+                if (divergence == null) divergence = verifier.nextCycle();
+                if (divergence == null) {
+                    int cycle = verifier.getCycle();
+                    divergence = verifier.skipQuietCycles(10);
+                    skipped += verifier.getCycle() - cycle;
+                }
+            }
+            assertNull("Skipping quiet cycles should leave the world as stepping through them does", divergence);
+            assertTrue("The run should have quiet cycles to skip", skipped > 0);
+        } finally {
+            verifier.close();
+        }
+    }
+
+    // Nobody is dispatched, so citizens bleed and buildings burn until they die or fall; the jumps stop short of
+    // every death, collapse and fire turning into a Collapse, and the decay in between is applied in bulk.
+    @Test(timeout = 20000)
+    public void testSkippingThroughDecayMatchesReference() throws Exception {
+        PrintWriter disasters = new PrintWriter(DISASTERS);
+        for (int i = 0; i < 4; i++) {
+            int building = (i * 29) % 120;
+            String location = (building * 7) % 40 + "," + (building * 13) % 40;
+            disasters.println((1 + i * 30) + ",FIR," + location);
+            disasters.println((1 + i * 30) + ",GLK," + location);
+            disasters.println((2 + i * 30) + ",INJ," + (i * 31));
+            disasters.println((2 + i * 30) + ",INF," + (i * 31 + 7));
+        }
+        disasters.close();
+        EngineSettings columnar = new EngineSettings();
+        columnar.setColumnarStorage(true);
+        for (EngineSettings settings : new EngineSettings[]{new EngineSettings(), columnar}) {
+            settings.setSeed(11);
+            LockstepVerifier verifier = new LockstepVerifier(scenario, settings);
+            try {
+                Divergence divergence = null;
+                int skipped = 0;
+                while (divergence == null && verifier.getCycle() < 120) {
+                    divergence = verifier.nextCycle();
+                    if (divergence == null && countDecaying(verifier.getCandidate()) > 0) {
+                        int cycle = verifier.getCycle();
+                        divergence = verifier.skipQuietCycles(10);
+                        skipped += verifier.getCycle() - cycle;
+                    }
+                }
+                assertNull("Skipping through decay should leave the world as stepping through it does", divergence);
+                assertTrue("Cycles should be skipped while entities decay", skipped > 0);
+            } finally {
+                verifier.close();
+            }
+        }
+    }
+
+    // Every worker of a 2x2 cluster holds the whole world, so each is compared with the reference after a cycle.
+    @Test(timeout = 30000)
+    public void testClusterMatchesReference() throws Exception {
+        EngineSettings settings = new EngineSettings();
+        settings.setSeed(11);
+        LockstepVerifier verifier = new LockstepVerifier(scenario, settings);
+        ClusterCoordinator coordinator = new ClusterCoordinator(scenario, settings, 2, 2);
+        ArrayList<ClusterWorker> workers = new ArrayList<ClusterWorker>();
+        try {
+            for (int i = 0; i < coordinator.getRegionCount(); i++) {
+                ClusterWorker worker = new ClusterWorker("127.0.0.1", coordinator.getPort());
+                workers.add(worker);
+                new Thread(worker).start();
+            }
+            coordinator.connectWorkers();
+            Divergence divergence = null;
+            while (divergence == null && verifier.getCycle() < 40) {
+                ArrayList<Disaster> active = new ArrayList<Disaster>(verifier.getReference().getActiveDisasters());
+                for (Unit unit : verifier.getReference().getEmergencyUnits()) {
+                    if (unit.getState() != UnitState.IDLE || active.isEmpty()) continue;
+                    Rescuable target = active.get(next++ % active.size()).getTarget();
+                    try {
+                        if (target instanceof Citizen) {
+                            coordinator.dispatchToCitizen(unit.getUnitID(), ((Citizen) target).getNationalID());
+                        } else {
+                            coordinator.dispatchToBuilding(unit.getUnitID(), target.getLocation().getX(), target.getLocation().getY());
+                        }
+                    } catch (UnitException e) {
+                    }
+                    dispatch(verifier, unit, target);
+                }
+                try {
+                    coordinator.nextCycle();
+                } catch (DisasterException e) {
+                }
+                verifier.nextCycle();
+                for (int i = 0; divergence == null && i < workers.size(); i++) {
+                    divergence = verifier.compare(workers.get(i).getSimulator());
+                }
+            }
+            assertNull("Every worker of a cluster should stay in lockstep with a single simulator", divergence);
+        } finally {
+            coordinator.close();
+            verifier.close();
+        }
+    }
+
+    @Test(timeout = 20000)
+    public void testReopenedWorldStoreMatchesReference() throws Exception {
+        EngineSettings settings = new EngineSettings();
+        settings.setSeed(11);
+        settings.setWorldStore(STORE);
+        Simulator saved = new Simulator(null, scenario, settings);
+        saved.saveWorld();
+        saved.close();
+
+        LockstepVerifier verifier = new LockstepVerifier(scenario, settings);
+        try {
+            assertNull("A world reopened from its store should stay in lockstep with one loaded from the scenario",
+                    run(verifier));
+        } finally {
+            verifier.close();
+        }
+        try {
+            new Simulator(null, scenario, settings).close();
+            fail("A world store stepped on after it was saved should not be reopened");
+        } catch (IllegalStateException e) {
+        }
+    }
+
+    @Test(timeout = 20000)
+    public void testWorldStoreSavedMidRunResumesInLockstep() throws Exception {
+        // A fire and then a gas leak collapse a building next to the base, so that the evacuator soon carries
+        // its occupants.
+        append(BUILDINGS, "2,1");
+        append(CITIZENS, "2,1,900,C900,30", "2,1,901,C901,40", "2,1,902,C902,50");
+        append(DISASTERS, "1,FIR,2,1", "2,GLK,2,1");
+        EngineSettings settings = new EngineSettings();
+        settings.setSeed(11);
+        settings.setWorldStore(STORE);
+        LockstepVerifier verifier = new LockstepVerifier(scenario, settings);
+        try {
+            Divergence divergence = null;
+            while (divergence == null && verifier.getCycle() < 40 && countPassengers(verifier.getCandidate()) == 0) {
+                divergence = dispatchIdleUnits(verifier);
+                if (divergence == null) divergence = dispatchEvacuator(verifier);
+                if (divergence == null) divergence = verifier.nextCycle();
+            }
+            assertNull("The world store should match the reference before it is saved", divergence);
+            assertTrue("The evacuator should carry citizens when the world is saved",
+                    countPassengers(verifier.getCandidate()) > 0);
+            assertTrue("Disasters should be active when the world is saved",
+                    verifier.getCandidate().getActiveDisasters().size() > 0);
+
+            verifier.getCandidate().saveWorld();
+            verifier.reopenCandidate();
+            assertNull("A reopened world should match the one it was saved from", verifier.compare());
+            ArrayList<Citizen> expected = verifier.getReference().getCitizens();
+            ArrayList<Citizen> actual = verifier.getCandidate().getCitizens();
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals("A reopened citizen should read its name from the store", expected.get(i).getName(),
+                        actual.get(i).getName());
+                assertEquals("A reopened citizen should keep its national ID", expected.get(i).getNationalID(),
+                        actual.get(i).getNationalID());
+            }
+            assertNull("A world resumed from its store should stay in lockstep with the reference", run(verifier));
+        } finally {
+            verifier.close();
+        }
+    }
+
+    @Test(timeout = 20000)
+    public void testReportsFirstDivergentField() throws Exception {
+        EngineSettings settings = new EngineSettings();
+        settings.setSeed(11);
+        LockstepVerifier verifier = new LockstepVerifier(scenario, settings);
+        Citizen citizen = verifier.getCandidate().getCitizens().get(5);
+        citizen.setHp(citizen.getHp() - 1);
+
+        Divergence divergence = verifier.compare();
+        verifier.close();
+        assertEquals("The verifier should name the entity that differs", "citizen", divergence.getEntity());
+        assertEquals("The verifier should name the entity that differs", 5, divergence.getIndex());
+        assertEquals("The verifier should name the field that differs", "hp", divergence.getField());
+        assertEquals("The verifier should report the reference value", "100", divergence.getReferenceValue());
+        assertEquals("The verifier should report the candidate value", "99", divergence.getCandidateValue());
+    }
+
+    // Every idle unit is sent to the target of some active disaster before each cycle.
+    private Divergence run(LockstepVerifier verifier) {
+        Divergence divergence = null;
+        while (divergence == null && verifier.getCycle() < 40) {
+            divergence = dispatchIdleUnits(verifier);
+            if (divergence == null) divergence = verifier.nextCycle();
+            recordPeaks(verifier.getReference());
+        }
+        return divergence;
+    }
+
+    private void recordPeaks(Simulator simulator) {
+        int buildings = 0, citizens = 0;
+        for (ResidentialBuilding building : simulator.getBuildings()) {
+            if (building.getFireDamage() > 0 || building.getFoundationDamage() > 0 && building.getStructuralIntegrity() > 0) {
+                buildings++;
+            }
+        }
+        for (Citizen citizen : simulator.getCitizens()) {
+            if (!citizen.isDead() && (citizen.getBloodLoss() > 0 || citizen.getToxicity() > 0)) citizens++;
+        }
+        peakBuildings = Math.max(peakBuildings, buildings);
+        peakCitizens = Math.max(peakCitizens, citizens);
+        peakDisasters = Math.max(peakDisasters, simulator.getActiveDisasters().size());
+        int units = 0;
+        for (Unit unit : simulator.getEmergencyUnits()) {
+            if (unit.getState() != UnitState.IDLE) units++;
+        }
+        peakUnits = Math.max(peakUnits, units);
+    }
+
+    private void assertPhasesRanInParallel() {
+        assertTrue("The building phase should get enough buildings to run in parallel", peakBuildings >= PARALLEL_ITEMS);
+        assertTrue("The citizen phase should get enough citizens to run in parallel", peakCitizens >= PARALLEL_ITEMS);
+        assertTrue("The disaster phase should get enough disasters to run in parallel", peakDisasters >= PARALLEL_ITEMS);
+        assertTrue("The unit phase should get enough busy units to run in parallel", peakUnits >= PARALLEL_ITEMS);
+    }
+
+    private Divergence dispatchIdleUnits(LockstepVerifier verifier) {
+        ArrayList<Disaster> active = new ArrayList<Disaster>(verifier.getReference().getActiveDisasters());
+        for (Unit unit : verifier.getReference().getEmergencyUnits()) {
+            if (unit.getState() != UnitState.IDLE || active.isEmpty()) continue;
+            Divergence divergence = dispatch(verifier, unit, active.get(next++ % active.size()).getTarget());
+            if (divergence != null) return divergence;
+        }
+        return null;
+    }
+
+    private Divergence dispatch(LockstepVerifier verifier, Unit unit, Rescuable target) {
+        if (target instanceof Citizen) {
+            return verifier.dispatchToCitizen(unit.getUnitID(), ((Citizen) target).getNationalID());
+        }
+        return verifier.dispatchToBuilding(unit.getUnitID(), target.getLocation().getX(), target.getLocation().getY());
+    }
+
+    // An idle evacuator goes to the occupied building collapsing nearest the base.
+    private Divergence dispatchEvacuator(LockstepVerifier verifier) {
+        Unit evacuator = verifier.getReference().getEmergencyUnits().get(12);
+        if (evacuator.getState() != UnitState.IDLE) return null;
+        ResidentialBuilding nearest = null;
+        for (Disaster disaster : verifier.getReference().getActiveDisasters()) {
+            if (!(disaster instanceof Collapse)) continue;
+            ResidentialBuilding building = (ResidentialBuilding) disaster.getTarget();
+            if (building.getOccupants().isEmpty() || building.getStructuralIntegrity() == 0) continue;
+            if (nearest == null || distanceToBase(building) < distanceToBase(nearest)) nearest = building;
+        }
+        return nearest != null ? dispatch(verifier, evacuator, nearest) : null;
+    }
+
+    private static int distanceToBase(ResidentialBuilding building) {
+        return building.getLocation().getX() + building.getLocation().getY();
+    }
+
+    private static void append(String file, String... lines) throws Exception {
+        PrintWriter writer = new PrintWriter(new FileWriter(file, true));
+        for (String line : lines) {
+            writer.println(line);
+        }
+        writer.close();
+    }
+
+    private static int countPassengers(Simulator simulator) {
+        int passengers = 0;
+        for (Unit unit : simulator.getEmergencyUnits()) {
+            if (unit instanceof Evacuator) passengers += ((Evacuator) unit).getPassengers().size();
+        }
+        return passengers;
+    }
+
+    private static int countDecaying(Simulator simulator) {
+        int decaying = 0;
+        for (Citizen citizen : simulator.getCitizens()) {
+            if (!citizen.isDead() && (citizen.getBloodLoss() > 0 || citizen.getToxicity() > 0)) decaying++;
+        }
+        for (ResidentialBuilding building : simulator.getBuildings()) {
+            if (building.getStructuralIntegrity() > 0 && building.getFireDamage() > 0) decaying++;
+        }
+        return decaying;
+    }
+}
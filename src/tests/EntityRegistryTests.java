@@ -0,0 +1,77 @@
+package tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import model.people.Citizen;
+import model.units.Ambulance;
+
+import org.junit.Test;
+
+import simulation.Address;
+import simulation.EntityRegistry;
+
+public class EntityRegistryTests {
+
+    @Test(timeout = 1000)
+    public void testFindsNumericNationalIDs() {
+        EntityRegistry registry = new EntityRegistry();
+        Citizen citizen = register(registry, "4213");
+        register(registry, "0");
+
+        assertEquals("A numeric national ID should be stored as its number", 4213, citizen.getNumericID());
+        assertSame("A citizen should be found by its numeric national ID", citizen, registry.findCitizen("4213"));
+        assertEquals("The national ID should be rebuilt from its number", "4213", citizen.getNationalID());
+        assertNotSame("The rebuilt national ID should not be kept", citizen.getNationalID(), citizen.getNationalID());
+        assertEquals("The ID 0 should be numeric", 0, registry.findCitizen("0").getNumericID());
+        assertNull("An unknown numeric ID should not be found", registry.findCitizen("4214"));
+    }
+
+    @Test(timeout = 1000)
+    public void testFindsNonCanonicalNationalIDs() {
+        EntityRegistry registry = new EntityRegistry();
+        Citizen padded = register(registry, "007");
+        Citizen seven = register(registry, "7");
+        Citizen lettered = register(registry, "A-12");
+        Citizen huge = register(registry, "12345678901234567890");
+
+        assertEquals("An ID with leading zeros should keep its string", -1, padded.getNumericID());
+        assertSame("An ID with leading zeros should be found as written", padded, registry.findCitizen("007"));
+        assertSame("An ID with leading zeros should not match its number", seven, registry.findCitizen("7"));
+        assertNull("An ID with a different padding should not be found", registry.findCitizen("07"));
+        assertEquals("An ID with leading zeros should keep its string", "007", padded.getNationalID());
+        assertSame("A non-digit ID should be found", lettered, registry.findCitizen("A-12"));
+        assertNull("A non-digit ID should not match its digits", registry.findCitizen("12"));
+        assertSame("An ID too long for a long should be found", huge, registry.findCitizen("12345678901234567890"));
+        assertNull("An empty ID should not be found", registry.findCitizen(""));
+        assertNull("A missing ID should not be found", registry.findCitizen(null));
+    }
+
+    @Test(timeout = 1000)
+    public void testDuplicateIDsFindTheFirstEntity() {
+        EntityRegistry registry = new EntityRegistry();
+        Citizen first = register(registry, "42");
+        Citizen second = register(registry, "42");
+        Citizen firstLettered = register(registry, "B7");
+        register(registry, "B7");
+        Ambulance firstUnit = new Ambulance("1", new Address(0, 0), 1, null);
+        Ambulance secondUnit = new Ambulance("1", new Address(0, 0), 1, null);
+        registry.registerUnit(firstUnit);
+        registry.registerUnit(secondUnit);
+
+        assertSame("A duplicate numeric national ID should find the first citizen", first, registry.findCitizen("42"));
+        assertSame("A duplicate national ID should find the first citizen", firstLettered, registry.findCitizen("B7"));
+        assertSame("A duplicate unit ID should find the first unit", firstUnit, registry.findUnit("1"));
+        assertSame("Every citizen should still be registered under its own entity ID", second,
+                registry.getCitizen(second.getEntityId()));
+        assertEquals("Every citizen should still be counted", 4, registry.getCitizenCount());
+    }
+
+    private static Citizen register(EntityRegistry registry, String nationalID) {
+        Citizen citizen = new Citizen(new Address(0, 0), nationalID, "C" + nationalID, 30, null);
+        registry.registerCitizen(citizen);
+        return citizen;
+    }
+}
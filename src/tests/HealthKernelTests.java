@@ -0,0 +1,69 @@
+package tests;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import model.people.Citizen;
+import model.people.CitizenState;
+
+import org.junit.Test;
+
+import simulation.Address;
+import simulation.HealthKernel;
+
+// Steps the same population through the scalar kernel, the kernel HealthKernel.load() picks (the vector one when
+// it is built and jdk.incubator.vector is present) and Citizen.cycleStep, and expects the same hp everywhere.
+public class HealthKernelTests {
+
+    // Not a multiple of any lane count, so the scalar tail of the vector kernel runs too.
+    private static final int ROWS = 1037;
+
+    @Test(timeout = 10000)
+    public void testKernelsMatchObjectPath() {
+        Random random = new Random(21);
+        int[] hp = new int[ROWS];
+        int[] bloodLoss = new int[ROWS];
+        int[] toxicity = new int[ROWS];
+        byte[] states = new byte[ROWS];
+        ArrayList<Citizen> citizens = new ArrayList<Citizen>();
+        int[] levels = {0, 1, 29, 30, 69, 70, 99};
+        for (int row = 0; row < ROWS; row++) {
+            boolean deceased = row % 11 == 0;
+            hp[row] = deceased ? 0 : 1 + random.nextInt(100);
+            bloodLoss[row] = row % 3 == 0 ? levels[random.nextInt(levels.length)] : random.nextInt(100);
+            toxicity[row] = row % 5 == 0 ? levels[random.nextInt(levels.length)] : random.nextInt(100);
+            CitizenState state = deceased ? CitizenState.DECEASED : CitizenState.values()[1 + random.nextInt(3)];
+            states[row] = (byte) state.ordinal();
+
+            Citizen citizen = new Citizen(new Address(0, 0), String.valueOf(row), "C" + row, 30, null);
+            citizen.setBloodLoss(bloodLoss[row]);
+            citizen.setToxicity(toxicity[row]);
+            citizen.setHp(hp[row]);
+            citizen.setState(state);
+            citizens.add(citizen);
+        }
+
+        int[] scalar = hp.clone();
+        new HealthKernel().step(scalar, bloodLoss, toxicity, states, ROWS);
+        HealthKernel loaded = HealthKernel.load();
+        int[] picked = hp.clone();
+        loaded.step(picked, bloodLoss, toxicity, states, ROWS);
+        int[] objects = new int[ROWS];
+        for (int row = 0; row < ROWS; row++) {
+            Citizen citizen = citizens.get(row);
+            if (citizen.getState() != CitizenState.DECEASED) citizen.cycleStep();
+            objects[row] = citizen.getHp();
+        }
+
+        assertArrayEquals("The scalar kernel should step hp like Citizen.cycleStep", objects, scalar);
+        assertArrayEquals("The " + loaded.getName() + " kernel should step hp like the scalar one", scalar, picked);
+        for (int row = 0; row < ROWS; row++) {
+            if (states[row] == CitizenState.DECEASED.ordinal()) {
+                assertEquals("A kernel should not touch a deceased row", hp[row], picked[row]);
+            }
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.PrintWriter;
+
+import model.disasters.Collapse;
+import model.disasters.Fire;
+import model.disasters.GasLeak;
+import model.events.SOSListener;
+import model.infrastructure.ResidentialBuilding;
+
+import org.junit.After;
+import org.junit.Test;
+
+import simulation.EngineSettings;
+import simulation.Rescuable;
+import simulation.Scenario;
+import simulation.Simulator;
+
+// Strikes a second disaster on buildings that already have one and checks the outcome at the edges of every
+// gas level band.
+public class InteractionRulesTests {
+
+    private static final String BUILDINGS = "rules_buildings.csv";
+    private static final String CITIZENS = "rules_citizens.csv";
+    private static final String UNITS = "rules_units.csv";
+    private static final String DISASTERS = "rules_disasters.csv";
+
+    private static final int[] GAS_LEVELS = {0, 1, 69, 70};
+
+    private static final SOSListener IGNORE_CALLS = new SOSListener() {
+        @Override
+        public void receiveSOSCall(Rescuable r) {
+        }
+    };
+
+    @After
+    public void deleteScenario() {
+        new File(BUILDINGS).delete();
+        new File(CITIZENS).delete();
+        new File(UNITS).delete();
+        new File(DISASTERS).delete();
+    }
+
+    @Test(timeout = 1000)
+    public void testFireOnGasLeakDependsOnGasLevel() throws Exception {
+        Simulator simulator = strikeTwice("GLK", "FIR");
+        for (int i = 0; i < GAS_LEVELS.length; i++) {
+            building(simulator, i).setGasLevel(GAS_LEVELS[i]);
+        }
+        simulator.nextCycle();
+
+        ResidentialBuilding noGas = building(simulator, 0);
+        assertTrue("A fire should strike a building without gas", noGas.getDisaster() instanceof Fire);
+        assertEquals("A fire should strike a building without gas", 10, noGas.getFireDamage());
+        for (int i = 1; i <= 2; i++) {
+            ResidentialBuilding building = building(simulator, i);
+            String where = "A fire on gas level " + GAS_LEVELS[i];
+            assertTrue(where + " should collapse the building", building.getDisaster() instanceof Collapse);
+            assertEquals(where + " should leave no fire behind", 0, building.getFireDamage());
+            assertTrue(where + " should not destroy the building", building.getStructuralIntegrity() > 0);
+        }
+        ResidentialBuilding explosive = building(simulator, 3);
+        assertEquals("A fire on gas level 70 should destroy the building", 0, explosive.getStructuralIntegrity());
+        assertTrue("A destroyed building should keep its gas leak", explosive.getDisaster() instanceof GasLeak);
+        simulator.close();
+    }
+
+    @Test(timeout = 1000)
+    public void testGasLeakOnFireCollapses() throws Exception {
+        Simulator simulator = strikeTwice("FIR", "GLK");
+        simulator.nextCycle();
+        for (int i = 0; i < GAS_LEVELS.length; i++) {
+            ResidentialBuilding building = building(simulator, i);
+            assertTrue("A gas leak on a fire should collapse the building", building.getDisaster() instanceof Collapse);
+            assertEquals("A gas leak on a fire should put the fire out", 0, building.getFireDamage());
+            assertFalse("A gas leak on a fire should not destroy the building", building.getStructuralIntegrity() == 0);
+        }
+        simulator.close();
+    }
+
+    // One building per gas level; the first disaster strikes all of them in cycle 1, the second in cycle 2.
+    private Simulator strikeTwice(String first, String second) throws Exception {
+        PrintWriter buildings = new PrintWriter(BUILDINGS);
+        PrintWriter disasters = new PrintWriter(DISASTERS);
+        for (int i = 0; i < GAS_LEVELS.length; i++) {
+            buildings.println(i + ",0");
+            disasters.println("1," + first + "," + i + ",0");
+            disasters.println("2," + second + "," + i + ",0");
+        }
+        buildings.close();
+        disasters.close();
+        new PrintWriter(CITIZENS).close();
+        new PrintWriter(UNITS).close();
+        Simulator simulator = new Simulator(IGNORE_CALLS, new Scenario(10, 10, BUILDINGS, CITIZENS, UNITS, DISASTERS),
+                new EngineSettings());
+        simulator.nextCycle();
+        return simulator;
+    }
+
+    private static ResidentialBuilding building(Simulator simulator, int x) {
+        for (ResidentialBuilding building : simulator.getBuildings()) {
+            if (building.getLocation().getX() == x && building.getLocation().getY() == 0) return building;
+        }
+        throw new IllegalStateException("No building at " + x + ",0");
+    }
+}
@@ -0,0 +1,245 @@
+package tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Random;
+
+import model.disasters.Disaster;
+import model.events.SOSListener;
+import model.infrastructure.ResidentialBuilding;
+import model.people.Citizen;
+import model.people.CitizenState;
+
+import org.junit.After;
+import org.junit.Test;
+
+import simulation.EngineSettings;
+import simulation.Rescuable;
+import simulation.Scenario;
+import simulation.Simulator;
+import simulation.util.RandomStream;
+
+// Runs real simulators and checks every forecast the simulator makes against the cycle in which the death or
+// collapse actually happens. The first cycle strikes the disasters; the entities are then given a spread of
+// damage levels, and nothing strikes afterwards, which is what the forecasts assume.
+public class OutcomePredictorTests {
+
+    private static final String BUILDINGS = "predictor_buildings.csv";
+    private static final String CITIZENS = "predictor_citizens.csv";
+    private static final String UNITS = "predictor_units.csv";
+    private static final String DISASTERS = "predictor_disasters.csv";
+
+    private static final int SIZE = 30;
+    private static final int HORIZON = 80;
+
+    private static final SOSListener IGNORE_CALLS = new SOSListener() {
+        @Override
+        public void receiveSOSCall(Rescuable r) {
+        }
+    };
+
+    @After
+    public void deleteScenario() {
+        new File(BUILDINGS).delete();
+        new File(CITIZENS).delete();
+        new File(UNITS).delete();
+        new File(DISASTERS).delete();
+    }
+
+    @Test(timeout = 30000)
+    public void testDeathHappensInPredictedCycle() throws Exception {
+        PrintWriter citizens = new PrintWriter(CITIZENS);
+        PrintWriter disasters = new PrintWriter(DISASTERS);
+        for (int i = 0; i < SIZE * SIZE; i++) {
+            citizens.println(i % SIZE + "," + i / SIZE + "," + i + ",C" + i + ",30");
+            if (i % 4 == 0 || i % 4 == 2) disasters.println("1,INJ," + i);
+            if (i % 4 == 1 || i % 4 == 2) disasters.println("1,INF," + i);
+        }
+        citizens.close();
+        disasters.close();
+        writeEmpty(BUILDINGS);
+        writeEmpty(UNITS);
+
+        Simulator simulator = new Simulator(IGNORE_CALLS, scenario(), new EngineSettings());
+        simulator.nextCycle();
+        Random random = new Random(12);
+        for (Citizen citizen : simulator.getCitizens()) {
+            citizen.setBloodLoss(random.nextInt(100));
+            citizen.setToxicity(random.nextInt(100));
+            citizen.setHp(1 + random.nextInt(100));
+        }
+        stepAndCheckDeaths(simulator, simulator.getCitizens());
+        simulator.close();
+    }
+
+    @Test(timeout = 30000)
+    public void testCollapseHappensInPredictedCycleAtMaximumDecay() throws Exception {
+        Simulator simulator = new Simulator(IGNORE_CALLS, buildingScenario(), new EngineSettings());
+        for (ResidentialBuilding building : simulator.getBuildings()) {
+            building.setRandomStream(new MaximumDecay());
+        }
+        simulator.nextCycle();
+        damageBuildings(simulator);
+
+        ArrayList<ResidentialBuilding> buildings = simulator.getBuildings();
+        int[] predicted = new int[buildings.size()];
+        for (int i = 0; i < buildings.size(); i++) {
+            predicted[i] = simulator.predictCollapseCycle(buildings.get(i));
+        }
+        ArrayList<Citizen> occupants = simulator.getCitizens();
+        int[] deaths = predictDeaths(simulator, occupants);
+        for (int cycle = 2; cycle <= HORIZON; cycle++) {
+            simulator.nextCycle();
+            for (int i = 0; i < buildings.size(); i++) {
+                ResidentialBuilding building = buildings.get(i);
+                if (predicted[i] < cycle) continue;
+                String where = "Building " + i + " in cycle " + cycle;
+                if (building.getStructuralIntegrity() == 0) {
+                    assertEquals(where + " should collapse in the predicted cycle", predicted[i], cycle);
+                    putOut(simulator, building);
+                } else {
+                    assertTrue(where + " should not outlive the predicted cycle", predicted[i] > cycle);
+                    assertEquals(where + " should keep its forecast", predicted[i], simulator.predictCollapseCycle(building));
+                }
+            }
+            checkDeaths(simulator, occupants, deaths, cycle);
+        }
+        simulator.close();
+    }
+
+    @Test(timeout = 30000)
+    public void testCollapseIsNeverEarlierThanPredicted() throws Exception {
+        EngineSettings settings = new EngineSettings();
+        settings.setSeed(5);
+        Simulator simulator = new Simulator(IGNORE_CALLS, buildingScenario(), settings);
+        simulator.nextCycle();
+        damageBuildings(simulator);
+
+        ArrayList<ResidentialBuilding> buildings = simulator.getBuildings();
+        int[] predicted = new int[buildings.size()];
+        for (int cycle = 2; cycle <= HORIZON; cycle++) {
+            for (int i = 0; i < buildings.size(); i++) {
+                if (buildings.get(i).getStructuralIntegrity() != 0) predicted[i] = simulator.predictCollapseCycle(buildings.get(i));
+            }
+            simulator.nextCycle();
+            for (int i = 0; i < buildings.size(); i++) {
+                if (buildings.get(i).getStructuralIntegrity() == 0 && predicted[i] != 0) {
+                    assertTrue("Building " + i + " should not collapse before the earliest predicted cycle", predicted[i] <= cycle);
+                    predicted[i] = 0;
+                    putOut(simulator, buildings.get(i));
+                }
+            }
+        }
+        simulator.close();
+    }
+
+    // Every occupant dies when its building collapses or fills with gas; a building without disasters still
+    // burns or crumbles from the damage it was given.
+    private Scenario buildingScenario() throws Exception {
+        PrintWriter buildings = new PrintWriter(BUILDINGS);
+        PrintWriter citizens = new PrintWriter(CITIZENS);
+        PrintWriter disasters = new PrintWriter(DISASTERS);
+        for (int i = 0; i < SIZE * SIZE; i++) {
+            int x = i % SIZE, y = i / SIZE;
+            buildings.println(x + "," + y);
+            citizens.println(x + "," + y + "," + i + ",C" + i + ",30");
+            switch (i % 5) {
+                case 0:
+                    disasters.println("1,FIR," + x + "," + y);
+                    break;
+                case 1:
+                    disasters.println("1,GLK," + x + "," + y);
+                    break;
+                case 2:
+                    disasters.println("1,FIR," + x + "," + y);
+                    disasters.println("1,FIR," + x + "," + y);
+                    break;
+                case 3:
+                    disasters.println("1,GLK," + x + "," + y);
+                    disasters.println("1,FIR," + x + "," + y);
+                    break;
+            }
+        }
+        buildings.close();
+        citizens.close();
+        disasters.close();
+        writeEmpty(UNITS);
+        return scenario();
+    }
+
+    private static void damageBuildings(Simulator simulator) {
+        Random random = new Random(34);
+        for (ResidentialBuilding building : simulator.getBuildings()) {
+            if (building.getStructuralIntegrity() == 0) continue;
+            building.setFireDamage(random.nextInt(101));
+            building.setGasLevel(random.nextInt(100));
+            building.setFoundationDamage(random.nextInt(4) == 0 ? random.nextInt(100) : 0);
+            building.setStructuralIntegrity(1 + random.nextInt(100));
+        }
+    }
+
+    // A fire left burning on a collapsed building reaches 100 and fails the next cycle's collapse strike, so
+    // every disaster on a building that fell is treated, as a unit would.
+    private static void putOut(Simulator simulator, ResidentialBuilding building) {
+        for (Disaster disaster : new ArrayList<Disaster>(simulator.getActiveDisasters())) {
+            if (disaster.getTarget() == building) disaster.setActive(false);
+        }
+        building.setFireDamage(0);
+    }
+
+    private static void stepAndCheckDeaths(Simulator simulator, ArrayList<Citizen> citizens) throws Exception {
+        int[] deaths = predictDeaths(simulator, citizens);
+        for (int cycle = 2; cycle <= HORIZON; cycle++) {
+            simulator.nextCycle();
+            checkDeaths(simulator, citizens, deaths, cycle);
+        }
+    }
+
+    private static int[] predictDeaths(Simulator simulator, ArrayList<Citizen> citizens) {
+        int[] deaths = new int[citizens.size()];
+        for (int i = 0; i < citizens.size(); i++) {
+            Citizen citizen = citizens.get(i);
+            deaths[i] = citizen.getState() == CitizenState.DECEASED ? 0 : simulator.predictDeathCycle(citizen);
+        }
+        return deaths;
+    }
+
+    private static void checkDeaths(Simulator simulator, ArrayList<Citizen> citizens, int[] deaths, int cycle) {
+        for (int i = 0; i < citizens.size(); i++) {
+            Citizen citizen = citizens.get(i);
+            if (deaths[i] < cycle) continue;
+            String who = "Citizen " + i + " in cycle " + cycle;
+            if (citizen.getState() == CitizenState.DECEASED) {
+                assertEquals(who + " should die in the predicted cycle", deaths[i], cycle);
+            } else {
+                assertTrue(who + " should not outlive the predicted cycle", deaths[i] > cycle);
+                assertEquals(who + " should keep its forecast", deaths[i], simulator.predictDeathCycle(citizen));
+            }
+        }
+    }
+
+    private static Scenario scenario() {
+        return new Scenario(SIZE, SIZE, BUILDINGS, CITIZENS, UNITS, DISASTERS);
+    }
+
+    private static void writeEmpty(String file) throws Exception {
+        new PrintWriter(file).close();
+    }
+
+    // The forecast takes foundation decay at its maximum; this stream always draws it.
+    private static class MaximumDecay extends RandomStream {
+
+        MaximumDecay() {
+            super(0);
+        }
+
+        @Override
+        public int nextInt(int bound) {
+            return bound - 1;
+        }
+    }
+}
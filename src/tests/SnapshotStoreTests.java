@@ -0,0 +1,242 @@
+package tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+
+import model.disasters.Disaster;
+import model.events.SOSListener;
+import model.infrastructure.ResidentialBuilding;
+import model.people.Citizen;
+import model.people.CitizenState;
+import model.units.Unit;
+import model.units.UnitState;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import exceptions.CitizenAlreadyDeadException;
+import exceptions.DisasterException;
+import exceptions.UnitException;
+import simulation.BuildingSnapshot;
+import simulation.CitizenSnapshot;
+import simulation.EngineSettings;
+import simulation.Rescuable;
+import simulation.Scenario;
+import simulation.Simulator;
+import simulation.SnapshotStore;
+import simulation.UnitSnapshot;
+import simulation.WorldSnapshot;
+
+public class SnapshotStoreTests {
+
+    private static final String BUILDINGS = "snapshot_buildings.csv";
+    private static final String CITIZENS = "snapshot_citizens.csv";
+    private static final String UNITS = "snapshot_units.csv";
+    private static final String DISASTERS = "snapshot_disasters.csv";
+
+    private static final SOSListener IGNORE_CALLS = new SOSListener() {
+        @Override
+        public void receiveSOSCall(Rescuable r) {
+        }
+    };
+
+    private Scenario scenario = new Scenario(10, 10, BUILDINGS, CITIZENS, UNITS, DISASTERS);
+
+    @Before
+    public void writeScenario() throws Exception {
+        PrintWriter buildings = new PrintWriter(BUILDINGS);
+        buildings.println("2,3");
+        buildings.println("6,6");
+        buildings.close();
+        PrintWriter citizens = new PrintWriter(CITIZENS);
+        citizens.println("2,3,1,C1,30");
+        citizens.println("6,6,2,C2,40");
+        citizens.println("4,4,3,C3,50");
+        citizens.close();
+        PrintWriter units = new PrintWriter(UNITS);
+        units.println("AMB,U1,2");
+        units.close();
+        PrintWriter disasters = new PrintWriter(DISASTERS);
+        disasters.println("1,INJ,3");
+        disasters.println("2,FIR,6,6");
+        disasters.println("3,INF,1");
+        disasters.close();
+    }
+
+    @After
+    public void deleteScenario() {
+        new File(BUILDINGS).delete();
+        new File(CITIZENS).delete();
+        new File(UNITS).delete();
+        new File(DISASTERS).delete();
+    }
+
+    @Test(timeout = 5000)
+    public void testPinnedVersionsOutliveLaterCycles() throws Exception {
+        Simulator simulator = new Simulator(IGNORE_CALLS, scenario, snapshotSettings());
+        SnapshotStore snapshots = simulator.getSnapshots();
+        WorldSnapshot first = snapshots.pin();
+        WorldSnapshot again = snapshots.pin(0);
+        assertEquals("The first version should be the loaded world", 0, first.getCycle());
+        assertSame("Pinning a cycle twice should share its version", first.getCitizens(), again.getCitizens());
+
+        simulator.nextCycle();
+        simulator.nextCycle();
+        assertEquals("An unpinned older version should be dropped", 2, snapshots.getVersionCount());
+        assertEquals("A pinned version should keep the values of its cycle", 100, first.getCitizens().get(2).getHp());
+        assertTrue("The live citizen should have moved on", simulator.getCitizens().get(2).getHp() < 100);
+        try {
+            snapshots.pin(1);
+            fail("An unpinned older version should not be retained");
+        } catch (IllegalArgumentException e) {
+        }
+
+        first.close();
+        first.close();
+        assertEquals("Closing one reader's pin twice should leave the other reader's pin", 2, snapshots.getVersionCount());
+        again.close();
+        assertEquals("A released older version should be dropped", 1, snapshots.getVersionCount());
+        WorldSnapshot latest = snapshots.pin();
+        assertEquals("The latest version should always be kept", 2, latest.getCycle());
+        latest.close();
+        assertEquals("The latest version should always be kept", 1, snapshots.getVersionCount());
+        simulator.close();
+    }
+
+    // Only the rows marked since the last version get new snapshots, so every cycle of a busy world is compared
+    // with the live entities; units are kept dispatched so that treatment, evacuation and moves are published too.
+    @Test(timeout = 10000)
+    public void testPublishedRowsMatchLiveWorld() throws Exception {
+        PrintWriter buildings = new PrintWriter(BUILDINGS);
+        PrintWriter citizens = new PrintWriter(CITIZENS);
+        PrintWriter disasters = new PrintWriter(DISASTERS);
+        for (int i = 0; i < 40; i++) {
+            buildings.println(i % 10 + "," + (i / 10 + 1));
+            disasters.println((1 + i % 15) + "," + (i % 3 == 0 ? "GLK," : "FIR,") + i % 10 + "," + (i / 10 + 1));
+        }
+        for (int i = 0; i < 600; i++) {
+            citizens.println(i % 10 + "," + (i % 7 + 1) + "," + i + ",C" + i + "," + (20 + i % 50));
+            if (i % 9 == 0) disasters.println((1 + i % 20) + "," + (i % 2 == 0 ? "INJ," : "INF,") + i);
+        }
+        buildings.close();
+        citizens.close();
+        disasters.close();
+        PrintWriter units = new PrintWriter(UNITS);
+        String[] types = {"AMB", "DCU", "FTK", "GCU"};
+        for (int i = 0; i < 12; i++) {
+            units.println(types[i % 4] + ",U" + i + "," + (1 + i % 3));
+        }
+        units.println("EVC,U12,2,5");
+        units.println("EVC,U13,3,5");
+        units.close();
+
+        Simulator simulator = new Simulator(IGNORE_CALLS, scenario, snapshotSettings());
+        Citizen quiet = simulator.getCitizens().get(599);
+        CitizenSnapshot quietRow = null;
+        int next = 0;
+        for (int cycle = 1; cycle <= 40; cycle++) {
+            ArrayList<Disaster> active = new ArrayList<Disaster>(simulator.getActiveDisasters());
+            for (Unit unit : simulator.getEmergencyUnits()) {
+                if (unit.getState() != UnitState.IDLE || active.isEmpty()) continue;
+                try {
+                    unit.respond(active.get(next++ % active.size()).getTarget());
+                } catch (UnitException e) {
+                }
+            }
+            try {
+                simulator.nextCycle();
+            } catch (DisasterException e) {
+            }
+            WorldSnapshot version = simulator.getSnapshots().pin();
+            assertMatches(simulator, version);
+            if (quiet.getBloodLoss() == 0 && quiet.getToxicity() == 0 && quiet.getState() == CitizenState.SAFE) {
+                if (quietRow != null) {
+                    assertSame("A citizen nothing touched should share its row", quietRow, version.getCitizens().get(599));
+                }
+                quietRow = version.getCitizens().get(599);
+            }
+            version.close();
+        }
+        assertTrue("The quiet citizen should have kept its row", quietRow != null);
+        simulator.close();
+    }
+
+    @Test(timeout = 5000)
+    public void testFailedStrikeStillPublishesCycle() throws Exception {
+        Simulator simulator = new Simulator(IGNORE_CALLS, scenario, snapshotSettings());
+        Citizen dead = simulator.getCitizens().get(2);
+        dead.setHp(0);
+        try {
+            simulator.nextCycle();
+            fail("Striking a dead citizen should fail the cycle");
+        } catch (CitizenAlreadyDeadException e) {
+        }
+        WorldSnapshot version = simulator.getSnapshots().pin();
+        assertEquals("A cycle ended by a failed strike should still be published", 1, version.getCycle());
+        assertEquals("The published version should hold the world the cycle left", CitizenState.DECEASED,
+                version.getCitizens().get(2).getState());
+        version.close();
+        simulator.close();
+    }
+
+    @Test(timeout = 5000)
+    public void testZeroAllocationRejectsSnapshots() throws Exception {
+        EngineSettings settings = snapshotSettings();
+        settings.setZeroAllocation(true);
+        try {
+            new Simulator(IGNORE_CALLS, scenario, settings);
+            fail("Snapshots allocate every cycle and should not be accepted in zero-allocation mode");
+        } catch (IllegalArgumentException e) {
+        }
+    }
+
+    private static void assertMatches(Simulator simulator, WorldSnapshot version) {
+        String when = " in cycle " + version.getCycle();
+        int casualties = 0;
+        for (int i = 0; i < simulator.getBuildings().size(); i++) {
+            ResidentialBuilding building = simulator.getBuildings().get(i);
+            BuildingSnapshot row = version.getBuildings().get(i);
+            String which = "Building " + i + when;
+            assertEquals(which + " should have its integrity", building.getStructuralIntegrity(), row.getStructuralIntegrity());
+            assertEquals(which + " should have its fire damage", building.getFireDamage(), row.getFireDamage());
+            assertEquals(which + " should have its gas level", building.getGasLevel(), row.getGasLevel());
+            assertEquals(which + " should have its foundation damage", building.getFoundationDamage(), row.getFoundationDamage());
+            assertEquals(which + " should have its occupants", building.getOccupants().size(), row.getOccupants());
+        }
+        for (int i = 0; i < simulator.getCitizens().size(); i++) {
+            Citizen citizen = simulator.getCitizens().get(i);
+            CitizenSnapshot row = version.getCitizens().get(i);
+            String which = "Citizen " + i + when;
+            assertEquals(which + " should have its hp", citizen.getHp(), row.getHp());
+            assertEquals(which + " should have its blood loss", citizen.getBloodLoss(), row.getBloodLoss());
+            assertEquals(which + " should have its toxicity", citizen.getToxicity(), row.getToxicity());
+            assertEquals(which + " should have its state", citizen.getState(), row.getState());
+            assertSame(which + " should have its location", citizen.getLocation(), row.getLocation());
+            if (citizen.getState() == CitizenState.DECEASED) casualties++;
+        }
+        for (int i = 0; i < simulator.getEmergencyUnits().size(); i++) {
+            Unit unit = simulator.getEmergencyUnits().get(i);
+            UnitSnapshot row = version.getEmergencyUnits().get(i);
+            String which = "Unit " + i + when;
+            assertEquals(which + " should have its state", unit.getState(), row.getState());
+            assertSame(which + " should have its location", unit.getLocation(), row.getLocation());
+            assertSame(which + " should have its target", unit.getTarget() == null ? null : unit.getTarget().getLocation(),
+                    row.getTargetLocation());
+        }
+        assertEquals("The casualties should be counted" + when, casualties, version.getCasualties());
+    }
+
+    private static EngineSettings snapshotSettings() {
+        EngineSettings settings = new EngineSettings();
+        settings.setSeed(3);
+        settings.setSnapshots(true);
+        return settings;
+    }
+}
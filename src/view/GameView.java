@@ -2,18 +2,22 @@ package view;
 
 import javafx.util.Pair;
 import model.disasters.*;
+import model.events.SimulationListener;
 import model.infrastructure.ResidentialBuilding;
 import model.people.Citizen;
 import model.units.*;
+import simulation.Address;
 import simulation.Rescuable;
 import simulation.Simulatable;
+import simulation.Simulator;
+import simulation.TypeRegistry;
 
 import javax.swing.*;
 import java.awt.*;
 import java.util.ArrayList;
 import java.util.Comparator;
 
-public class GameView extends JFrame {
+public class GameView extends JFrame implements SimulationListener {
 
     private JPanel infoPanel, gridPanel, unitsPanel;
     private JPanel availableUnits, respondingUnits, treatingUnits;
@@ -23,10 +27,23 @@ public class GameView extends JFrame {
     private JTextArea disastersInfo;
     private JTextArea logInfo;
 
+    private int worldWidth, worldHeight;
+    private StringBuilder cycleLog = new StringBuilder();
+    private ArrayList<Pair<Rescuable, Double>> recommendedPairs = new ArrayList<>();
+
     private static final int PADDING = 10;
     private static final int TEXT_AREA_MARGIN = 4;
 
-    public GameView() {
+    private static final Comparator<Pair<Rescuable, Double>> BY_DISTANCE = new Comparator<Pair<Rescuable, Double>>() {
+        @Override
+        public int compare(Pair<Rescuable, Double> o1, Pair<Rescuable, Double> o2) {
+            return (int) (o1.getValue() - o2.getValue());
+        }
+    };
+
+    public GameView(int worldWidth, int worldHeight) {
+        this.worldWidth = worldWidth;
+        this.worldHeight = worldHeight;
         setTitle("Rescue Simulation");
         setDefaultCloseOperation(WindowConstants.EXIT_ON_CLOSE);
         setExtendedState(JFrame.MAXIMIZED_BOTH);
@@ -84,10 +101,10 @@ public class GameView extends JFrame {
 
     private void initGridPanel() {
         gridPanel = new JPanel();
-        gridPanel.setLayout(new GridLayout(10, 10));
+        gridPanel.setLayout(new GridLayout(worldHeight, worldWidth));
         gridPanel.setBorder(BorderFactory.createEmptyBorder(PADDING, PADDING, PADDING, PADDING));
-        for (int i = 0; i < 10; i++) {
-            for (int j = 0; j < 10; j++) {
+        for (int i = 0; i < worldHeight; i++) {
+            for (int j = 0; j < worldWidth; j++) {
                 WorldBlock worldBlock = new WorldBlock(this);
                 gridPanel.add(worldBlock);
             }
@@ -141,27 +158,26 @@ public class GameView extends JFrame {
 
     public void addSimulatableOnWorldMap(Simulatable simulatable) {
         if (simulatable instanceof Rescuable) {
-            ((WorldBlock) gridPanel.getComponent(((Rescuable) simulatable).getLocation().getY() * 10 +
-                    ((Rescuable) simulatable).getLocation().getX())).addSimulatable(simulatable);
+            getWorldBlock(((Rescuable) simulatable).getLocation()).addSimulatable(simulatable);
         } else if (simulatable instanceof Unit) {
-            ((WorldBlock) gridPanel.getComponent(((Unit) simulatable).getLocation().getY() * 10 +
-                    ((Unit) simulatable).getLocation().getX())).addSimulatable(simulatable);
+            getWorldBlock(((Unit) simulatable).getLocation()).addSimulatable(simulatable);
         }
     }
 
     public void removeSimulatableOnWorldMap(Simulatable simulatable) {
         if (simulatable instanceof Rescuable) {
-            ((WorldBlock) gridPanel.getComponent(((Rescuable) simulatable).getLocation().getY() * 10 +
-                    ((Rescuable) simulatable).getLocation().getX())).removeSimulatable(simulatable);
+            getWorldBlock(((Rescuable) simulatable).getLocation()).removeSimulatable(simulatable);
         } else if (simulatable instanceof Unit) {
-            ((WorldBlock) gridPanel.getComponent(((Unit) simulatable).getLocation().getY() * 10 +
-                    ((Unit) simulatable).getLocation().getX())).removeSimulatable(simulatable);
+            getWorldBlock(((Unit) simulatable).getLocation()).removeSimulatable(simulatable);
         } else {
-            ((WorldBlock) gridPanel.getComponent(((Disaster) simulatable).getTarget().getLocation().getY() * 10 +
-                    ((Disaster) simulatable).getTarget().getLocation().getX())).removeSimulatable(simulatable);
+            getWorldBlock(((Disaster) simulatable).getTarget().getLocation()).removeSimulatable(simulatable);
         }
     }
 
+    private WorldBlock getWorldBlock(Address location) {
+        return (WorldBlock) gridPanel.getComponent(location.getY() * worldWidth + location.getX());
+    }
+
     public void setCycleInfo(int cycleNumber, int casualties) {
         cycleInfo.setText("<html>Current Cycle: " + cycleNumber + "<br>Casualties: " + casualties + "</html>");
     }
@@ -174,6 +190,55 @@ public class GameView extends JFrame {
         logInfo.setText((logInfo.getText() + "\n\n" + text).trim());
     }
 
+    @Override
+    public void disasterStruck(Disaster disaster) {
+        Rescuable target = disaster.getTarget();
+        cycleLog.append(disaster.getClass().getSimpleName()).append(" occurred on ")
+                .append(target.getClass().getSimpleName()).append(" at (")
+                .append(target.getLocation().getX()).append(",").append(target.getLocation().getY()).append(").\n");
+    }
+
+    @Override
+    public void buildingCollapsed(ResidentialBuilding building) {
+        cycleLog.append("ResidentialBuilding has just collapsed at location (")
+                .append(building.getLocation().getX()).append(",")
+                .append(building.getLocation().getY()).append(").\n");
+    }
+
+    @Override
+    public void citizenDied(Citizen citizen) {
+        cycleLog.append("Citizen ").append(citizen.getName()).append(" has just died at location (")
+                .append(citizen.getLocation().getX()).append(",")
+                .append(citizen.getLocation().getY()).append(").\n");
+    }
+
+    @Override
+    public void simulatableMoved(Simulatable simulatable, Address oldLocation) {
+        getWorldBlock(oldLocation).removeSimulatable(simulatable);
+        addSimulatableOnWorldMap(simulatable);
+    }
+
+    @Override
+    public void cycleEnded(Simulator simulator, int cycle) {
+        if (cycleLog.length() > 0) {
+            cycleLog.insert(0, "Cycle " + cycle + ":\n");
+            addToLog(cycleLog.toString());
+            cycleLog.setLength(0);
+        }
+        setCycleInfo(cycle, simulator.calculateCasualties());
+        invalidateUnitsPanel();
+        StringBuilder activeDisasters = new StringBuilder();
+        for (Disaster disaster : simulator.getActiveDisasters()) {
+            Rescuable rescuable = disaster.getTarget();
+            activeDisasters.append(disaster.getClass().getSimpleName()).append(" on ")
+                    .append(rescuable.getClass().getSimpleName()).append(" at (")
+                    .append(rescuable.getLocation().getX()).append(",")
+                    .append(rescuable.getLocation().getY()).append(")\n");
+        }
+        setActiveDisasters(activeDisasters.toString().trim());
+        updateGrid();
+    }
+
     public void deselectAllUnits() {
         for (int i = 0; i < getAvailableUnits().getComponentCount(); i++) {
             UnitBlock unitBlock = (UnitBlock) getAvailableUnits().getComponent(i);
@@ -242,69 +307,51 @@ public class GameView extends JFrame {
         StringBuilder recommendation = new StringBuilder();
         for (Unit unit : units) {
             if (unit.getTarget() == null) {
-                ArrayList<Pair<Rescuable, Double>> pairs = new ArrayList<>();
-                if (unit instanceof Ambulance) {
+                int disasterType = TypeRegistry.treatedDisaster(unit.getTypeCode());
+                recommendedPairs.clear();
+                if (TypeRegistry.targetOf(disasterType) == TypeRegistry.CITIZEN) {
                     for (Citizen citizen : citizens) {
-                        if (citizen.getDisaster() instanceof Injury && !citizen.isDead()) {
-                            pairs.add(new Pair<>(citizen, getDistanceDifference(unit, citizen)));
+                        if (TypeRegistry.typeOf(citizen.getDisaster()) == disasterType && !citizen.isDead()) {
+                            recommendedPairs.add(new Pair<Rescuable, Double>(citizen, getDistanceDifference(unit, citizen)));
                         }
                     }
-                } else if (unit instanceof DiseaseControlUnit) {
-                    for (Citizen citizen : citizens) {
-                        if (citizen.getDisaster() instanceof Infection && !citizen.isDead()) {
-                            pairs.add(new Pair<>(citizen, getDistanceDifference(unit, citizen)));
-                        }
-                    }
-                } else if (unit instanceof Evacuator) {
+                } else if (TypeRegistry.targetOf(disasterType) == TypeRegistry.BUILDING) {
                     for (ResidentialBuilding building : buildings) {
-                        if (building.getDisaster() instanceof Collapse && !building.isCollapsed()) {
-                            pairs.add(new Pair<>(building, getDistanceDifference(unit, building) / (building.countAliveOccupants() + 1)));
-                        }
-                    }
-                } else if (unit instanceof FireTruck) {
-                    for (ResidentialBuilding building : buildings) {
-                        if (building.getDisaster() instanceof Fire && !building.isCollapsed()) {
-                            pairs.add(new Pair<>(building, getDistanceDifference(unit, building) / (building.countAliveOccupants() + 1)));
-                        }
-                    }
-                } else if (unit instanceof GasControlUnit) {
-                    for (ResidentialBuilding building : buildings) {
-                        if (building.getDisaster() instanceof GasLeak && !building.isCollapsed()) {
-                            pairs.add(new Pair<>(building, getDistanceDifference(unit, building) / (building.countAliveOccupants() + 1)));
+                        if (TypeRegistry.typeOf(building.getDisaster()) == disasterType && !building.isCollapsed()) {
+                            recommendedPairs.add(new Pair<Rescuable, Double>(building,
+                                    getDistanceDifference(unit, building) / (building.countAliveOccupants() + 1)));
                         }
                     }
                 }
-                if (!pairs.isEmpty()) {
-                    pairs.sort(new Comparator<Pair<Rescuable, Double>>() {
-                        @Override
-                        public int compare(Pair<Rescuable, Double> o1, Pair<Rescuable, Double> o2) {
-                            return (int) (o1.getValue() - o2.getValue());
-                        }
-                    });
+                if (!recommendedPairs.isEmpty()) {
+                    recommendedPairs.sort(BY_DISTANCE);
                     recommendation.append(unit.getClass().getSimpleName()).append(" ").append(unit.getUnitID()).append(":\n");
-                    for (int i = 1; i <= pairs.size(); i++) {
-                        Pair<Rescuable, Double> pair = pairs.get(i - 1);
-                        Rescuable rescuable = pair.getKey();
-                        if (rescuable instanceof Citizen) {
-                            Citizen citizen = (Citizen) pair.getKey();
-                            recommendation.append(i).append(". Citizen ").append(citizen.getName()).append(" at (")
-                                    .append(citizen.getLocation().getX()).append(",")
-                                    .append(citizen.getLocation().getY()).append("), [")
-                                    .append(citizen.getHp()).append(" hp]\n");
-                        } else if (rescuable instanceof ResidentialBuilding) {
-                            ResidentialBuilding building = (ResidentialBuilding) pair.getKey();
-                            int aliveOccupants = building.countAliveOccupants();
-                            recommendation.append(i).append(". ResidentialBuilding at (")
-                                    .append(building.getLocation().getX()).append(",")
-                                    .append(building.getLocation().getY()).append("), [")
-                                    .append((aliveOccupants == 0) ? "no" : aliveOccupants)
-                                    .append(" alive occupants]\n");
+                    for (int i = 1; i <= recommendedPairs.size(); i++) {
+                        Rescuable rescuable = recommendedPairs.get(i - 1).getKey();
+                        switch (TypeRegistry.typeOf(rescuable)) {
+                            case TypeRegistry.CITIZEN:
+                                Citizen citizen = (Citizen) rescuable;
+                                recommendation.append(i).append(". Citizen ").append(citizen.getName()).append(" at (")
+                                        .append(citizen.getLocation().getX()).append(",")
+                                        .append(citizen.getLocation().getY()).append("), [")
+                                        .append(citizen.getHp()).append(" hp]\n");
+                                break;
+                            case TypeRegistry.BUILDING:
+                                ResidentialBuilding building = (ResidentialBuilding) rescuable;
+                                int aliveOccupants = building.countAliveOccupants();
+                                recommendation.append(i).append(". ResidentialBuilding at (")
+                                        .append(building.getLocation().getX()).append(",")
+                                        .append(building.getLocation().getY()).append("), [")
+                                        .append((aliveOccupants == 0) ? "no" : aliveOccupants)
+                                        .append(" alive occupants]\n");
+                                break;
                         }
                     }
                     recommendation.append("\n");
                 }
             }
         }
+        recommendedPairs.clear();
         recommenderInfo.setText(recommendation.toString().trim());
     }
 
@@ -1,6 +1,7 @@
 package view;
 
-import model.units.*;
+import model.units.Unit;
+import simulation.TypeRegistry;
 
 import javax.swing.*;
 import java.awt.*;
@@ -36,18 +37,7 @@ public class UnitBlock extends JToggleButton {
     }
 
     private void requestLayout() {
-        Icon icon = null;
-        if (unit instanceof Ambulance) {
-            icon = new GameIcon("ambulance.png").resize(GameIcon.Size.UNIT_BLOCK);
-        } else if (unit instanceof DiseaseControlUnit) {
-            icon = new GameIcon("disease_control.png").resize(GameIcon.Size.UNIT_BLOCK);
-        } else if (unit instanceof FireTruck) {
-            icon = new GameIcon("fire_truck.png").resize(GameIcon.Size.UNIT_BLOCK);
-        } else if (unit instanceof GasControlUnit) {
-            icon = new GameIcon("gas_control.png").resize(GameIcon.Size.UNIT_BLOCK);
-        } else if (unit instanceof Evacuator) {
-            icon = new GameIcon("evacuator.png").resize(GameIcon.Size.UNIT_BLOCK);
-        }
-        setIcon(icon);
+        String iconName = TypeRegistry.getIconName(unit.getTypeCode());
+        setIcon(iconName == null ? null : new GameIcon(iconName + ".png").resize(GameIcon.Size.UNIT_BLOCK));
     }
 }
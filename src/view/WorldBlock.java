@@ -6,6 +6,7 @@ import model.people.Citizen;
 import model.units.*;
 import simulation.Rescuable;
 import simulation.Simulatable;
+import simulation.TypeRegistry;
 
 import javax.swing.*;
 import java.awt.*;
@@ -23,13 +24,25 @@ public class WorldBlock extends JButton {
     private ArrayList<Evacuator> evacuators = new ArrayList<>();
     private ArrayList<FireTruck> fireTrucks = new ArrayList<>();
     private ArrayList<GasControlUnit> gasUnits = new ArrayList<>();
+    private ArrayList<?>[] listsByType = new ArrayList<?>[TypeRegistry.TYPE_COUNT];
 
     private static final Color HOVER_COLOR = new Color(0, 255, 0, 60);
     private static final Color NORMAL_COLOR = new Color(255, 255, 255, 0);
     private static final Color DISASTER_COLOR = new Color(248, 160, 0, 60);
     private static final Color DEAD_COLOR = new Color(183, 28, 28, 60);
 
+    private static final int[] LAYOUT_ORDER = {TypeRegistry.BUILDING, TypeRegistry.AMBULANCE,
+            TypeRegistry.DISEASE_CONTROL_UNIT, TypeRegistry.EVACUATOR, TypeRegistry.FIRE_TRUCK,
+            TypeRegistry.GAS_CONTROL_UNIT, TypeRegistry.CITIZEN};
+
     public WorldBlock(final GameView gameView) {
+        listsByType[TypeRegistry.BUILDING] = buildings;
+        listsByType[TypeRegistry.CITIZEN] = citizens;
+        listsByType[TypeRegistry.AMBULANCE] = ambulances;
+        listsByType[TypeRegistry.DISEASE_CONTROL_UNIT] = diseaseUnits;
+        listsByType[TypeRegistry.EVACUATOR] = evacuators;
+        listsByType[TypeRegistry.FIRE_TRUCK] = fireTrucks;
+        listsByType[TypeRegistry.GAS_CONTROL_UNIT] = gasUnits;
         addMouseListener(new MouseAdapter() {
             @Override
             public void mouseEntered(MouseEvent e) {
@@ -88,57 +101,26 @@ public class WorldBlock extends JButton {
     }
 
     public void addSimulatable(Simulatable simulatable) {
-        if (simulatable instanceof ResidentialBuilding) {
-            if (!buildings.contains(simulatable)) {
-                buildings.add((ResidentialBuilding) simulatable);
-            }
-        } else if (simulatable instanceof Citizen) {
-            if (!citizens.contains(simulatable)) {
-                citizens.add((Citizen) simulatable);
-            }
-        } else if (simulatable instanceof Ambulance) {
-            if (!ambulances.contains(simulatable)) {
-                ambulances.add((Ambulance) simulatable);
-            }
-        } else if (simulatable instanceof DiseaseControlUnit) {
-            if (!diseaseUnits.contains(simulatable)) {
-                diseaseUnits.add((DiseaseControlUnit) simulatable);
-            }
-        } else if (simulatable instanceof Evacuator) {
-            if (!evacuators.contains(simulatable)) {
-                evacuators.add((Evacuator) simulatable);
-            }
-        } else if (simulatable instanceof FireTruck) {
-            if (!fireTrucks.contains(simulatable)) {
-                fireTrucks.add((FireTruck) simulatable);
-            }
-        } else if (simulatable instanceof GasControlUnit) {
-            if (!gasUnits.contains(simulatable)) {
-                gasUnits.add((GasControlUnit) simulatable);
-            }
+        ArrayList<Simulatable> list = getList(simulatable);
+        if (list != null && !list.contains(simulatable)) {
+            list.add(simulatable);
         }
         requestLayout();
     }
 
     public void removeSimulatable(Simulatable simulatable) {
-        if (simulatable instanceof ResidentialBuilding) {
-            buildings.remove(simulatable);
-        } else if (simulatable instanceof Citizen) {
-            citizens.remove(simulatable);
-        } else if (simulatable instanceof Ambulance) {
-            ambulances.remove(simulatable);
-        } else if (simulatable instanceof DiseaseControlUnit) {
-            diseaseUnits.remove(simulatable);
-        } else if (simulatable instanceof Evacuator) {
-            evacuators.remove(simulatable);
-        } else if (simulatable instanceof FireTruck) {
-            fireTrucks.remove(simulatable);
-        } else if (simulatable instanceof GasControlUnit) {
-            gasUnits.remove(simulatable);
+        ArrayList<Simulatable> list = getList(simulatable);
+        if (list != null) {
+            list.remove(simulatable);
         }
         requestLayout();
     }
 
+    @SuppressWarnings("unchecked")
+    private ArrayList<Simulatable> getList(Simulatable simulatable) {
+        return (ArrayList<Simulatable>) listsByType[TypeRegistry.typeOf(simulatable)];
+    }
+
     public Rescuable getMainRescuable(Unit unit) {
         if (unit != null) {
             for (ResidentialBuilding building : buildings) {
@@ -153,13 +135,10 @@ public class WorldBlock extends JButton {
 
     private ArrayList<Pair<String, Integer>> getAllPairs() {
         ArrayList<Pair<String, Integer>> pairs = new ArrayList<>();
-        if (buildings.size() > 0) pairs.add(new Pair<>("building", buildings.size()));
-        if (ambulances.size() > 0) pairs.add(new Pair<>("ambulance", ambulances.size()));
-        if (diseaseUnits.size() > 0) pairs.add(new Pair<>("disease_control", diseaseUnits.size()));
-        if (evacuators.size() > 0) pairs.add(new Pair<>("evacuator", evacuators.size()));
-        if (fireTrucks.size() > 0) pairs.add(new Pair<>("fire_truck", fireTrucks.size()));
-        if (gasUnits.size() > 0) pairs.add(new Pair<>("gas_control", gasUnits.size()));
-        if (citizens.size() > 0) pairs.add(new Pair<>("citizen", citizens.size()));
+        for (int type : LAYOUT_ORDER) {
+            ArrayList<?> list = listsByType[type];
+            if (list.size() > 0) pairs.add(new Pair<>(TypeRegistry.getIconName(type), list.size()));
+        }
         return pairs;
     }
 
@@ -224,9 +203,7 @@ public class WorldBlock extends JButton {
 
     private void updateBackgroundColor() {
         Rescuable rescuable = getMainRescuable(null);
-        if (rescuable != null &&
-                ((rescuable instanceof ResidentialBuilding && ((ResidentialBuilding) rescuable).isCollapsed())
-                        || (rescuable instanceof Citizen && ((Citizen) rescuable).isDead()))) {
+        if (isLost(rescuable)) {
             setBackground(DEAD_COLOR);
         } else if (rescuable != null && rescuable.getDisaster() != null && rescuable.getDisaster().isActive()) {
             setBackground(DISASTER_COLOR);
@@ -235,6 +212,17 @@ public class WorldBlock extends JButton {
         }
     }
 
+    private static boolean isLost(Rescuable rescuable) {
+        switch (TypeRegistry.typeOf(rescuable)) {
+            case TypeRegistry.BUILDING:
+                return ((ResidentialBuilding) rescuable).isCollapsed();
+            case TypeRegistry.CITIZEN:
+                return ((Citizen) rescuable).isDead();
+            default:
+                return false;
+        }
+    }
+
     private Image getIcon(String iconName) {
         return new ImageIcon("assets/ico/" + iconName + ".png").getImage();
     }